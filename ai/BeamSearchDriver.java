@@ -0,0 +1,442 @@
+package ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import headless.Driver;
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import rotation.RotationSystem;
+import timer.Clock;
+import timer.SystemClock;
+
+/**
+ * Driver that picks placements by beam search over the active piece and the preview pieces.
+ *
+ * Each level of the search places one more piece. Every board in the beam is expanded with all of the
+ * piece's reachable placements (see PlacementEnumerator), the resulting boards are scored with a
+ * BoardEvaluator, and the best beamWidth of them make up the next beam. Expanding the beam is split
+ * across a fork-join pool, one task per board. The active piece is then moved to the first placement on
+ * the path to the best board found.
+ *
+ * Evaluations are cached in a TranspositionTable keyed by the board's Zobrist hash, since the same board
+ * is often reached by placing pieces in a different order (or at a different spot in the same column).
+ * Boards already in the next beam are skipped for the same reason, so the beam doesn't fill up with copies.
+ *
+ * With a time budget, the search stops when the budget runs out (checked before each board is expanded)
+ * and throws away the level it was in the middle of, using the deepest level it finished. The first
+ * level always finishes, so there's always a move. That makes the result depend on how fast the machine
+ * is, so the budget is only meant for live play. Without one (the default), every search goes the full
+ * depth, and the driver plays the same way every time. Results don't depend on the number of threads.
+ */
+public class BeamSearchDriver implements Driver {
+
+	//Time budget for live play, where a decision has to come back within a few frames
+	public static final long liveTimeBudget = 50000000L;
+
+	private int beamWidth;
+	private int depth;              //Number of pieces to search, counting the active piece
+	private long timeBudget;        //Nanoseconds, or 0 for no limit
+	private Clock clock;            //What the time budget is measured on
+	private long deadline;
+	private volatile boolean outOfTime;
+	private BoardEvaluator evaluator;
+	private ForkJoinPool pool;
+	private TranspositionTable evaluations;   //Board hash -> evaluator.evaluateBoard()
+
+	//Two beams of boards, swapped every level. Allocated once.
+	private Node[] beam;
+	private Node[] nextBeam;
+	private int beamSize;
+	private int lastDepth;
+
+	private ThreadLocal<Worker> workers;
+
+
+
+
+	/**
+	 * Creates a driver with no time budget (see the class comment).
+	 */
+	public BeamSearchDriver() {
+		this(0);
+	}
+
+
+
+
+	/**
+	 * @param timeBudget - How long a decision may take, in nanoseconds, or 0 for no limit.
+	 */
+	public BeamSearchDriver(long timeBudget) {
+		this(8, 3, timeBudget, new BoardEvaluator(), ForkJoinPool.commonPool());
+	}
+
+
+
+
+	/**
+	 * @param beamWidth - How many boards to keep at each level.
+	 * @param depth - How many pieces to look at, counting the active piece (so 3 means the active piece
+	 * and two preview pieces).
+	 * @param timeBudget - How long a decision may take, in nanoseconds, or 0 for no limit.
+	 */
+	public BeamSearchDriver(int beamWidth, int depth, long timeBudget, BoardEvaluator evaluator, ForkJoinPool pool) {
+		this.beamWidth  = beamWidth;
+		this.depth      = depth;
+		this.timeBudget = timeBudget;
+		this.evaluator  = evaluator;
+		this.pool       = pool;
+		beam            = new Node[beamWidth];
+		nextBeam        = new Node[beamWidth];
+		workers         = new ThreadLocal<Worker>();
+		evaluations     = new TranspositionTable(16);
+		clock           = SystemClock.instance;
+	}
+
+
+
+
+	/**
+	 * Sets the clock the time budget is measured on.
+	 */
+	public void setClock(Clock clock) {
+		this.clock = clock;
+	}
+
+
+
+
+	/**
+	 * Gets how many pieces deep the last decision got before it ran out of time or pieces.
+	 */
+	public int getLastDepth() {
+		return lastDepth;
+	}
+
+
+
+
+	@Override
+	public void placePiece(GameBoard theBoard) {
+		int best = search(theBoard);
+		if (best >= 0) {
+			Node node = beam[best];
+			theBoard.getActivePiece().moveTo(node.firstRotation, node.firstOriginRow, node.firstOriginCol);
+		}
+	}
+
+
+
+
+	/**
+	 * Runs the search.
+	 * @return Returns the index (in beam) of the best board found, or -1 if the active piece has nowhere
+	 * to go.
+	 */
+	private int search(GameBoard theBoard) {
+		deadline      = clock.nanoTime() + timeBudget;
+		outOfTime     = false;
+		int rows      = theBoard.getRows();
+		int cols      = theBoard.getCols();
+		allocateBeams(rows, cols);
+
+		//The root: the board without the active piece.
+		Node root = nextBeam[0];
+		root.board.copySquaresFrom(theBoard);
+		for (int i = 0; i < 4; ++i)
+			root.board.clearSquare(theBoard.getActivePiece().getPoints()[i]);
+		root.board.setRotationSystem(theBoard.getRotationSystem());
+		root.linesCleared = 0;
+		swapBeams(1);
+
+		lastDepth = 0;
+		for (int level = 0; level < depth; ++level) {
+			PieceType type;
+			int rotation, originRow, originCol;
+			RotationSystem rotationSystem = theBoard.getRotationSystem();
+			if (level == 0) {
+				type      = theBoard.getActivePiece().getType();
+				rotation  = theBoard.getActivePiece().getRotation();
+				originRow = theBoard.getActivePiece().getOriginRow();
+				originCol = theBoard.getActivePiece().getOriginCol();
+			}
+			else {
+				type      = theBoard.getPreviewPiece(level - 1);
+				rotation  = 0;
+				originRow = rotationSystem.getSpawnRow(type);
+				originCol = rotationSystem.getSpawnCol(type, cols);
+			}
+
+			pool.invoke(new ExpandTask(0, beamSize, type, rotation, originRow, originCol, level > 0 && timeBudget > 0));
+
+			//Out of time partway through: keep the last full level
+			if (outOfTime)
+				break;
+			if (!selectNextBeam(level == 0, type, rotationSystem))
+				break;
+			lastDepth = level + 1;
+		}
+
+		if (lastDepth == 0)
+			return -1;
+
+		int best = 0;
+		for (int i = 1; i < beamSize; ++i) {
+			if (beam[i].score > beam[best].score)
+				best = i;
+		}
+		return best;
+	}
+
+
+
+
+	private void allocateBeams(int rows, int cols) {
+		if (beam[0] != null && beam[0].board.getRows() == rows && beam[0].board.getCols() == cols)
+			return;
+
+		for (int i = 0; i < beamWidth; ++i) {
+			beam[i]     = new Node(rows, cols);
+			nextBeam[i] = new Node(rows, cols);
+		}
+	}
+
+
+
+
+	private void swapBeams(int newSize) {
+		Node[] temp = beam;
+		beam        = nextBeam;
+		nextBeam    = temp;
+		beamSize    = newSize;
+	}
+
+
+
+
+	/**
+	 * Picks the best beamWidth children of the current beam and builds their boards.
+	 * @return Returns false if no board in the beam had anywhere to put the piece.
+	 */
+	private boolean selectNextBeam(boolean isFirstLevel, PieceType type, RotationSystem rotationSystem) {
+		int selected = 0;
+
+		//Simple selection of the top beamWidth distinct children. Ties go to the earlier child, so the
+		//result doesn't depend on how the expansion was scheduled.
+		while (selected < beamWidth) {
+			int bestParent = -1, bestChild = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+
+			for (int p = 0; p < beamSize; ++p) {
+				Node parent = beam[p];
+				for (int c = 0; c < parent.numChildren; ++c) {
+					if (!parent.taken[c] && (bestParent < 0 || parent.childScores[c] > bestScore)) {
+						bestParent = p;
+						bestChild  = c;
+						bestScore  = parent.childScores[c];
+					}
+				}
+			}
+
+			if (bestParent < 0)
+				break;
+
+			Node parent = beam[bestParent];
+			parent.taken[bestChild] = true;
+			if (isDuplicate(parent.childHashes[bestChild], selected))
+				continue;
+			Node child  = nextBeam[selected++];
+
+			child.board.copySquaresFrom(parent.board);
+			child.board.setRotationSystem(rotationSystem);
+			int rotation  = parent.children.getRotation(bestChild);
+			int originRow = parent.children.getOriginRow(bestChild);
+			int originCol = parent.children.getOriginCol(bestChild);
+			child.linesCleared = parent.linesCleared + lockPiece(child.board, rotationSystem, type, rotation, originRow, originCol);
+			child.score        = bestScore;
+
+			if (isFirstLevel) {
+				child.firstRotation  = rotation;
+				child.firstOriginRow = originRow;
+				child.firstOriginCol = originCol;
+			}
+			else {
+				child.firstRotation  = parent.firstRotation;
+				child.firstOriginRow = parent.firstOriginRow;
+				child.firstOriginCol = parent.firstOriginCol;
+			}
+		}
+
+		if (selected == 0)
+			return false;
+
+		swapBeams(selected);
+		return true;
+	}
+
+
+
+
+	/**
+	 * Checks whether a board is already among the first count boards of the next beam.
+	 */
+	private boolean isDuplicate(long hash, int count) {
+		for (int i = 0; i < count; ++i) {
+			if (nextBeam[i].board.getHash() == hash)
+				return true;
+		}
+		return false;
+	}
+
+
+
+
+	/**
+	 * Sets a piece's squares on a board and clears any full rows.
+	 * @return Returns the number of rows cleared.
+	 */
+	static int lockPiece(GameBoard theBoard, RotationSystem rotationSystem, PieceType type, int rotation,
+						 int originRow, int originCol) {
+		byte color = type.getColorIndex();
+		for (int i = 0; i < 4; ++i) {
+			theBoard.setSquare(originRow + rotationSystem.getRowOffset(type, rotation, i),
+							   originCol + rotationSystem.getColOffset(type, rotation, i), color);
+		}
+		return theBoard.clearFullRows();
+	}
+
+
+
+
+	/**
+	 * A board in the beam, plus the placements of the next piece on it and their scores.
+	 */
+	private static class Node {
+		GameBoard board;
+		int linesCleared;
+		double score;
+		int firstRotation;     //Placement of the active piece that leads to this board
+		int firstOriginRow;
+		int firstOriginCol;
+
+		PlacementList children = new PlacementList();
+		double[] childScores   = new double[64];
+		long[] childHashes     = new long[64];
+		boolean[] taken        = new boolean[64];
+		int numChildren;
+
+
+
+		Node(int rows, int cols) {
+			board = new GameBoard(rows, cols, 0);
+		}
+	}
+
+
+
+
+	/**
+	 * Per-thread scratch space for the expansion.
+	 */
+	private static class Worker {
+		PlacementEnumerator enumerator;
+		GameBoard scratch;
+
+
+
+		Worker(int rows, int cols) {
+			enumerator = new PlacementEnumerator(rows, cols);
+			scratch    = new GameBoard(rows, cols, 0);
+		}
+	}
+
+
+
+
+	private Worker getWorker(int rows, int cols) {
+		Worker worker = workers.get();
+		if (worker == null || worker.scratch.getRows() != rows || worker.scratch.getCols() != cols) {
+			worker = new Worker(rows, cols);
+			workers.set(worker);
+		}
+		return worker;
+	}
+
+
+
+
+	/**
+	 * Expands the boards in beam[begin, end): enumerates the piece's placements on each and scores them.
+	 */
+	private class ExpandTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int begin;
+		private int end;
+		private PieceType type;
+		private int rotation;
+		private int originRow;
+		private int originCol;
+		private boolean timed;          //Whether to give up when the time budget runs out
+
+
+
+		ExpandTask(int begin, int end, PieceType type, int rotation, int originRow, int originCol, boolean timed) {
+			this.begin     = begin;
+			this.end       = end;
+			this.type      = type;
+			this.rotation  = rotation;
+			this.originRow = originRow;
+			this.originCol = originCol;
+			this.timed     = timed;
+		}
+
+
+
+		@Override
+		protected void compute() {
+			if (end - begin > 1) {
+				int mid = (begin + end) >>> 1;
+				invokeAll(new ExpandTask(begin, mid, type, rotation, originRow, originCol, timed),
+						  new ExpandTask(mid, end, type, rotation, originRow, originCol, timed));
+				return;
+			}
+
+			if (timed && (outOfTime || clock.nanoTime() > deadline)) {
+				outOfTime = true;
+				return;
+			}
+
+			Node node = beam[begin];
+			GameBoard board = node.board;
+			Worker worker = getWorker(board.getRows(), board.getCols());
+			RotationSystem rotationSystem = board.getRotationSystem();
+
+			int count = worker.enumerator.enumerate(board, type, rotation, originRow, originCol, node.children);
+			if (node.childScores.length < count) {
+				node.childScores = new double[count];
+				node.childHashes = new long[count];
+				node.taken       = new boolean[count];
+			}
+
+			for (int c = 0; c < count; ++c) {
+				worker.scratch.copySquaresFrom(board);
+				int lines = node.linesCleared + lockPiece(worker.scratch, rotationSystem, type, node.children.getRotation(c),
+														  node.children.getOriginRow(c), node.children.getOriginCol(c));
+				long hash    = worker.scratch.getHash();
+				double score = evaluations.getScore(hash);
+				if (Double.isNaN(score)) {
+					score = evaluator.evaluateBoard(worker.scratch);
+					evaluations.putScore(hash, score);
+				}
+				node.childScores[c] = score + evaluator.getLinesWeight() * lines;
+				node.childHashes[c] = hash;
+				node.taken[c]       = false;
+			}
+			node.numChildren = count;
+		}
+	}
+
+}
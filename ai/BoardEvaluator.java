@@ -0,0 +1,105 @@
+package ai;
+
+import logic.GameBoard;
+
+/**
+ * Heuristic board evaluation for the AI drivers: a weighted sum of the aggregate column height, the number
+ * of holes, the bumpiness (sum of height differences between neighboring columns) and the number of rows
+ * cleared. Higher is better.
+ *
+ * Heights come straight from the board's incrementally maintained column heights, and holes are counted
+ * with one mask operation per row, so an evaluation is cheap.
+ */
+public class BoardEvaluator {
+
+	private double heightWeight;
+	private double linesWeight;
+	private double holesWeight;
+	private double bumpinessWeight;
+
+
+
+
+	/**
+	 * Uses a well-known set of weights that plays reasonably well.
+	 */
+	public BoardEvaluator() {
+		this(-0.510066, 0.760666, -0.35663, -0.184483);
+	}
+
+
+
+
+	public BoardEvaluator(double heightWeight, double linesWeight, double holesWeight, double bumpinessWeight) {
+		this.heightWeight    = heightWeight;
+		this.linesWeight     = linesWeight;
+		this.holesWeight     = holesWeight;
+		this.bumpinessWeight = bumpinessWeight;
+	}
+
+
+
+
+	/**
+	 * Gets the weight given to each row cleared.
+	 */
+	public double getLinesWeight() {
+		return linesWeight;
+	}
+
+
+
+
+	/**
+	 * Counts the empty squares that have a set square somewhere above them in the same column.
+	 */
+	public static int countHoles(GameBoard theBoard) {
+		int holes   = 0;
+		int covered = 0;   //Columns that have a set square in or above the current row
+		int rows    = theBoard.getRows();
+
+		for (int row = 0; row < rows; ++row) {
+			int mask = theBoard.getRowMask(row);
+			holes   += Integer.bitCount(covered & ~mask);
+			covered |= mask;
+		}
+		return holes;
+	}
+
+
+
+
+	/**
+	 * Evaluates a board with no active piece on it.
+	 * @param linesCleared - The number of rows cleared to get to this board.
+	 */
+	public double evaluate(GameBoard theBoard, int linesCleared) {
+		return evaluateBoard(theBoard) + linesWeight * linesCleared;
+	}
+
+
+
+
+	/**
+	 * Gets the part of the evaluation that only depends on the board's squares (everything except the
+	 * lines cleared), so it can be cached by the board's hash.
+	 */
+	public double evaluateBoard(GameBoard theBoard) {
+		int cols          = theBoard.getCols();
+		int totalHeight   = 0;
+		int bumpiness     = 0;
+		int previous      = theBoard.getColumnHeight(0);
+
+		for (int col = 0; col < cols; ++col) {
+			int height   = theBoard.getColumnHeight(col);
+			totalHeight += height;
+			bumpiness   += Math.abs(height - previous);
+			previous     = height;
+		}
+
+		return heightWeight    * totalHeight +
+			   holesWeight     * countHoles(theBoard) +
+			   bumpinessWeight * bumpiness;
+	}
+
+}
@@ -0,0 +1,246 @@
+package ai;
+
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import pieces.ActivePiece;
+import point.Point;
+import rotation.RotationSystem;
+
+/**
+ * Finds every distinct place a piece can come to rest, using only legal moves: left, right, soft drop and
+ * both rotations (with the board's rotation system's kicks). That includes tucks under overhangs and
+ * placements that are only reachable by kicking.
+ *
+ * The search is a breadth-first search over packed piece states (rotation state + origin). The visited
+ * set, queue and path arrays are allocated once and reused, so an enumeration doesn't allocate. The live
+ * board is never modified.
+ *
+ * Placements that cover exactly the same squares (e.g., the two horizontal states of the line) are only
+ * reported once.
+ */
+public class PlacementEnumerator {
+
+	//Move codes, for getMoves()
+	public static final byte MOVE_LEFT    = 0;
+	public static final byte MOVE_RIGHT   = 1;
+	public static final byte MOVE_DOWN    = 2;
+	public static final byte ROTATE_LEFT  = 3;
+	public static final byte ROTATE_RIGHT = 4;
+
+	private static final int MARGIN = 4;   //How far outside the board an origin is allowed to be
+
+	private int rows;
+	private int cols;
+	private int colSpan;
+	private int numStates;
+
+	private GameBoard scratch;    //Copy of the board with the active piece lifted off
+	private int[] visited;        //Generation in which each state was visited
+	private int[] placed;         //Generation in which each (canonical) resting state was reported
+	private int generation;
+	private int[] queue;
+	private int[] parents;        //State each state was reached from, for getMoves()
+	private byte[] moves;         //Move each state was reached with
+	private Point kick;
+
+
+
+
+	public PlacementEnumerator(int rows, int cols) {
+		this.rows    = rows;
+		this.cols    = cols;
+		colSpan      = cols + 2 * MARGIN;
+		numStates    = (rows + 2 * MARGIN) * colSpan * 4;
+
+		scratch    = new GameBoard(rows, cols, 0);
+		visited    = new int[numStates];
+		placed     = new int[numStates];
+		generation = 0;
+		queue      = new int[numStates];
+		parents    = new int[numStates];
+		moves      = new byte[numStates];
+		kick       = new Point();
+	}
+
+
+
+
+	/**
+	 * Packs a rotation state and origin into a single int.
+	 * @return Returns -1 if the origin is too far outside the board.
+	 */
+	public int pack(int rotation, int originRow, int originCol) {
+		int row = originRow + MARGIN;
+		int col = originCol + MARGIN;
+		if (row < 0 || col < 0 || col >= colSpan || row >= rows + 2 * MARGIN)
+			return -1;
+		return ((row * colSpan + col) << 2) | rotation;
+	}
+
+
+
+
+	public static int getRotation(int state) {
+		return state & 3;
+	}
+
+
+
+
+	public int getOriginRow(int state) {
+		return (state >> 2) / colSpan - MARGIN;
+	}
+
+
+
+
+	public int getOriginCol(int state) {
+		return (state >> 2) % colSpan - MARGIN;
+	}
+
+
+
+
+	/**
+	 * Enumerates the resting placements of the board's active piece, starting from where it is now.
+	 * @param theBoard - The board. It isn't modified.
+	 * @param out - Receives the placements. Cleared first.
+	 * @return Returns the number of placements found.
+	 */
+	public int enumerate(GameBoard theBoard, PlacementList out) {
+		ActivePiece piece = theBoard.getActivePiece();
+
+		scratch.copySquaresFrom(theBoard);
+		Point[] points = piece.getPoints();
+		for (int i = 0; i < 4; ++i)
+			scratch.clearSquare(points[i]);
+		scratch.setRotationSystem(theBoard.getRotationSystem());
+
+		return enumerate(scratch, piece.getType(), piece.getRotation(), piece.getOriginRow(), piece.getOriginCol(), out);
+	}
+
+
+
+
+	/**
+	 * Enumerates the resting placements of a piece that isn't on the board (for example, a preview piece
+	 * at its spawn position on a board where the current piece has already been locked).
+	 * @param theBoard - The board, which must not contain the piece. It isn't modified.
+	 * @param out - Receives the placements. Cleared first.
+	 * @return Returns the number of placements found.
+	 */
+	public int enumerate(GameBoard theBoard, PieceType type, int rotation, int originRow, int originCol, PlacementList out) {
+		out.clear();
+		if (theBoard.getRows() != rows || theBoard.getCols() != cols)
+			throw new IllegalArgumentException("PlacementEnumerator was created for a different board size.");
+
+		RotationSystem rotationSystem = theBoard.getRotationSystem();
+		int start = pack(rotation, originRow, originCol);
+		if (start < 0 || !rotationSystem.fits(theBoard, type, rotation, originRow, originCol))
+			return 0;
+
+		nextGeneration();
+		int head = 0, tail = 0;
+		visited[start] = generation;
+		parents[start] = -1;
+		queue[tail++]  = start;
+
+		int state, rot, row, col;
+		while (head < tail) {
+			state = queue[head++];
+			rot   = getRotation(state);
+			row   = getOriginRow(state);
+			col   = getOriginCol(state);
+
+			//Same rules as ActivePiece.move(): the moved piece must be in bounds and not colliding.
+			if (rotationSystem.fits(theBoard, type, rot, row, col - 1))
+				tail = visit(state, pack(rot, row, col - 1), MOVE_LEFT, tail);
+			if (rotationSystem.fits(theBoard, type, rot, row, col + 1))
+				tail = visit(state, pack(rot, row, col + 1), MOVE_RIGHT, tail);
+
+			if (rotationSystem.fits(theBoard, type, rot, row + 1, col))
+				tail = visit(state, pack(rot, row + 1, col), MOVE_DOWN, tail);
+
+			//Can't move down, so this is where the piece would lock. (Kicks can leave a piece sticking
+			//out of the top of the board; it can't lock there.)
+			else if (rotationSystem.fits(theBoard, type, rot, row, col))
+				addPlacement(rotationSystem, type, state, rot, row, col, out);
+
+			int toRotation = RotationSystem.rotateLeft(rot);
+			if (rotationSystem.findKick(theBoard, type, rot, row, col, toRotation, kick))
+				tail = visit(state, pack(toRotation, row + kick.x, col + kick.y), ROTATE_LEFT, tail);
+
+			toRotation = RotationSystem.rotateRight(rot);
+			if (rotationSystem.findKick(theBoard, type, rot, row, col, toRotation, kick))
+				tail = visit(state, pack(toRotation, row + kick.x, col + kick.y), ROTATE_RIGHT, tail);
+		}
+
+		return out.size();
+	}
+
+
+
+
+	/**
+	 * Adds a state to the queue if it hasn't been visited yet.
+	 */
+	private int visit(int from, int state, byte move, int tail) {
+		if (state < 0 || visited[state] == generation)
+			return tail;
+
+		visited[state] = generation;
+		parents[state] = from;
+		moves[state]   = move;
+		queue[tail]    = state;
+		return tail + 1;
+	}
+
+
+
+
+	private void addPlacement(RotationSystem rotationSystem, PieceType type, int state, int rot, int row, int col,
+							  PlacementList out) {
+		int canonical = pack(rotationSystem.getCanonicalRotation(type, rot),
+							 row + rotationSystem.getCanonicalRowShift(type, rot),
+							 col + rotationSystem.getCanonicalColShift(type, rot));
+		if (canonical >= 0) {
+			if (placed[canonical] == generation)
+				return;
+			placed[canonical] = generation;
+		}
+		out.add(state, rot, row, col);
+	}
+
+
+
+
+	private void nextGeneration() {
+		if (++generation == 0) {
+			java.util.Arrays.fill(visited, 0);
+			java.util.Arrays.fill(placed, 0);
+			generation = 1;
+		}
+	}
+
+
+
+
+	/**
+	 * Gets the moves that take the piece from the starting position of the last enumeration to a state
+	 * it found (for example, PlacementList.getState(i)). The path is one of the shortest.
+	 * @param state - A packed state reached by the last enumeration.
+	 * @param out - Receives the move codes, in order. Must be large enough.
+	 * @return Returns the number of moves.
+	 */
+	public int getMoves(int state, byte[] out) {
+		int count = 0;
+		for (int s = state; parents[s] >= 0; s = parents[s])
+			++count;
+
+		int i = count;
+		for (int s = state; parents[s] >= 0; s = parents[s])
+			out[--i] = moves[s];
+		return count;
+	}
+
+}
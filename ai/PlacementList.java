@@ -0,0 +1,102 @@
+package ai;
+
+/**
+ * A reusable list of piece placements, filled in by PlacementEnumerator. A placement is a rotation state
+ * and an origin (see RotationSystem), stored in parallel int arrays so that refilling the list doesn't
+ * allocate once it has grown large enough.
+ *
+ */
+public class PlacementList {
+
+	private int[] states;   //Packed states, see PlacementEnumerator.pack()
+	private int[] rotations;
+	private int[] originRows;
+	private int[] originCols;
+	private int size;
+
+
+
+
+	public PlacementList() {
+		this(64);
+	}
+
+
+
+
+	public PlacementList(int capacity) {
+		states     = new int[capacity];
+		rotations  = new int[capacity];
+		originRows = new int[capacity];
+		originCols = new int[capacity];
+		size       = 0;
+	}
+
+
+
+
+	public void clear() {
+		size = 0;
+	}
+
+
+
+
+	public void add(int state, int rotation, int originRow, int originCol) {
+		if (size == states.length)
+			grow();
+
+		states[size]     = state;
+		rotations[size]  = rotation;
+		originRows[size] = originRow;
+		originCols[size] = originCol;
+		++size;
+	}
+
+
+
+
+	private void grow() {
+		int capacity = Math.max(states.length * 2, 16);
+		states     = java.util.Arrays.copyOf(states, capacity);
+		rotations  = java.util.Arrays.copyOf(rotations, capacity);
+		originRows = java.util.Arrays.copyOf(originRows, capacity);
+		originCols = java.util.Arrays.copyOf(originCols, capacity);
+	}
+
+
+
+
+	public int size() {
+		return size;
+	}
+
+
+
+
+	public int getState(int i) {
+		return states[i];
+	}
+
+
+
+
+	public int getRotation(int i) {
+		return rotations[i];
+	}
+
+
+
+
+	public int getOriginRow(int i) {
+		return originRows[i];
+	}
+
+
+
+
+	public int getOriginCol(int i) {
+		return originCols[i];
+	}
+
+}
@@ -0,0 +1,94 @@
+package ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size cache from 64 bit keys (usually a board's Zobrist hash, see GameBoard.getHash()) to 64 bit
+ * values, shared by all of a search's threads without locking.
+ *
+ * Each slot is a pair of longs: the value, and the key XORed with the value. A lookup only hits if the
+ * stored pair XORs back to the key, so a slot torn by two threads writing it at once just reads as a miss.
+ * Newer entries always replace older ones in the same slot.
+ *
+ * A key of 0 is never stored, since it can't be told apart from an empty slot.
+ */
+public class TranspositionTable {
+
+	private AtomicLongArray entries;   //Pairs of (key ^ value, value)
+	private int mask;
+
+
+
+
+	/**
+	 * @param sizeBits - log2 of the number of slots. Each slot is 16 bytes.
+	 */
+	public TranspositionTable(int sizeBits) {
+		entries = new AtomicLongArray(2 << sizeBits);
+		mask    = (1 << sizeBits) - 1;
+	}
+
+
+
+
+	private int getSlot(long key) {
+		return ((int)(key ^ (key >>> 32)) & mask) << 1;
+	}
+
+
+
+
+	/**
+	 * Looks up a key.
+	 * @param defaultValue - What to return if the key isn't in the table.
+	 * @return Returns the value stored for the key, or defaultValue.
+	 */
+	public long get(long key, long defaultValue) {
+		if (key == 0)
+			return defaultValue;
+
+		int slot   = getSlot(key);
+		long check = entries.get(slot);
+		long value = entries.get(slot + 1);
+		return (check ^ value) == key ? value : defaultValue;
+	}
+
+
+
+
+	public void put(long key, long value) {
+		if (key == 0)
+			return;
+
+		int slot = getSlot(key);
+		entries.set(slot + 1, value);
+		entries.set(slot, key ^ value);
+	}
+
+
+
+
+	/**
+	 * Convenience for caching evaluations.
+	 * @return Returns the score stored for the key, or NaN if there isn't one.
+	 */
+	public double getScore(long key) {
+		return Double.longBitsToDouble(get(key, Double.doubleToRawLongBits(Double.NaN)));
+	}
+
+
+
+
+	public void putScore(long key, double score) {
+		put(key, Double.doubleToRawLongBits(score));
+	}
+
+
+
+
+	public void clear() {
+		for (int i = 0; i < entries.length(); ++i)
+			entries.set(i, 0);
+	}
+
+}
@@ -0,0 +1,87 @@
+package animation;
+
+import org.newdawn.slick.Graphics;
+
+/**
+ * Something that plays over time, run by an AnimationScheduler. Animations don't keep their own timers;
+ * the scheduler hands them the time since they started, taken from the one game clock, so everything on
+ * screen moves in step (and stops together if the clock does).
+ *
+ * Animations are meant to be reused: they come from an AnimationPool, and go back to it once they finish
+ * or are cancelled, so starting one during play doesn't allocate.
+ *
+ */
+public abstract class Animation {
+
+	private long startTime;
+	private boolean active;
+	private AnimationPool<?> pool;   //Where the animation goes back to when it's done, if anywhere
+
+
+
+
+	/**
+	 * Advances the animation.
+	 * @param elapsed - Nanoseconds since the animation started.
+	 * @return Returns false once the animation is done.
+	 */
+	protected abstract boolean update(long elapsed);
+
+
+
+
+	public abstract void render(Graphics g);
+
+
+
+
+	/**
+	 * Called when the animation finishes or is cancelled, before it goes back to its pool. Animations should
+	 * let go of anything they don't need to keep here.
+	 */
+	protected void end() {
+	}
+
+
+
+
+	public boolean isActive() {
+		return active;
+	}
+
+
+
+
+	void begin(long now) {
+		startTime = now;
+		active    = true;
+	}
+
+
+
+
+	/**
+	 * Ends the animation and hands it back to its pool.
+	 */
+	void finish() {
+		active = false;
+		end();
+		if (pool != null)
+			pool.free(this);
+	}
+
+
+
+
+	long getStartTime() {
+		return startTime;
+	}
+
+
+
+
+	void setPool(AnimationPool<?> pool) {
+		this.pool = pool;
+	}
+
+}
@@ -0,0 +1,81 @@
+package animation;
+
+/**
+ * A pool of reusable animations of one kind. Every animation is created up front, so taking one during
+ * play doesn't allocate. If they're all in use, another one is created (and kept from then on), so an
+ * effect is never dropped.
+ *
+ * Subclasses say how to create an animation.
+ *
+ */
+public abstract class AnimationPool<T extends Animation> {
+
+	private Animation[] free;
+	private int numFree;
+
+
+
+
+	/**
+	 * @param size - How many animations to create up front, i.e., how many can play at once without the
+	 * pool growing.
+	 */
+	public AnimationPool(int size) {
+		free = new Animation[Math.max(size, 1)];
+		for (int i = 0; i < size; ++i)
+			free[numFree++] = newAnimation();
+	}
+
+
+
+
+	/**
+	 * Creates a new animation for the pool.
+	 */
+	protected abstract T create();
+
+
+
+
+	private Animation newAnimation() {
+		Animation animation = create();
+		animation.setPool(this);
+		return animation;
+	}
+
+
+
+
+	/**
+	 * Takes an animation out of the pool. Give it to an AnimationScheduler to play it; it comes back to the
+	 * pool by itself when it's done.
+	 */
+	@SuppressWarnings("unchecked")
+	public T obtain() {
+		if (numFree == 0)
+			return (T)newAnimation();
+		Animation animation = free[--numFree];
+		free[numFree] = null;
+		return (T)animation;
+	}
+
+
+
+
+	void free(Animation animation) {
+		if (numFree == free.length) {
+			Animation[] more = new Animation[free.length * 2];
+			System.arraycopy(free, 0, more, 0, free.length);
+			free = more;
+		}
+		free[numFree++] = animation;
+	}
+
+
+
+
+	public int getFreeCount() {
+		return numFree;
+	}
+
+}
@@ -0,0 +1,123 @@
+package animation;
+
+import org.newdawn.slick.Graphics;
+
+/**
+ * Plays any number of animations at once, all advanced from the same clock. Animations are drawn in the
+ * order they were started. Finished animations are removed and go back to their pools; the scheduler's
+ * own list is allocated once (and only grows if more animations than ever before play at once).
+ *
+ */
+public class AnimationScheduler {
+
+	private Animation[] active;
+	private int numActive;
+
+
+
+
+	public AnimationScheduler() {
+		this(16);
+	}
+
+
+
+
+	public AnimationScheduler(int capacity) {
+		active = new Animation[Math.max(capacity, 1)];
+	}
+
+
+
+
+	/**
+	 * Starts playing an animation (usually one just taken from an AnimationPool).
+	 * @param now - The current time on the game clock, in nanoseconds.
+	 */
+	public void start(Animation animation, long now) {
+		if (numActive == active.length) {
+			Animation[] more = new Animation[active.length * 2];
+			System.arraycopy(active, 0, more, 0, active.length);
+			active = more;
+		}
+		animation.begin(now);
+		active[numActive++] = animation;
+	}
+
+
+
+
+	/**
+	 * Stops an animation where it is, and hands it back to its pool. Does nothing if it isn't playing.
+	 */
+	public void cancel(Animation animation) {
+		for (int i = 0; i < numActive; ++i) {
+			if (active[i] == animation) {
+				remove(i);
+				animation.finish();
+				return;
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Advances every animation to the given time, and removes the ones that are done.
+	 * @param now - The current time on the game clock, in nanoseconds.
+	 */
+	public void update(long now) {
+		for (int i = 0; i < numActive; ) {
+			Animation animation = active[i];
+			if (animation.update(now - animation.getStartTime()))
+				++i;
+			else {
+				remove(i);
+				animation.finish();
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Draws every animation, in the order they were started.
+	 */
+	public void render(Graphics g) {
+		for (int i = 0; i < numActive; ++i)
+			active[i].render(g);
+	}
+
+
+
+
+	//Keeps the order, so later animations still draw on top.
+	private void remove(int i) {
+		System.arraycopy(active, i + 1, active, i, numActive - i - 1);
+		active[--numActive] = null;
+	}
+
+
+
+
+	public int getActiveCount() {
+		return numActive;
+	}
+
+
+
+
+	/**
+	 * Cancels every animation.
+	 */
+	public void clear() {
+		while (numActive > 0) {
+			Animation animation = active[--numActive];
+			active[numActive] = null;
+			animation.finish();
+		}
+	}
+
+}
@@ -1,21 +1,35 @@
 package animation;
 
-import java.util.Deque;
-import java.util.LinkedList;
-
 import org.newdawn.slick.Graphics;
 
-import point.Point;
-import point.Point2f;
 import logic.GameBoard;
 import pieces.GameBoardSquare;
-import tetrisgame.TetrisGame;
+import render.BlockBatch;
 
+//A chunk is a run of rows that moves as one during the row delete animation. Its squares are kept in
+//parallel primitive arrays (screen position before the fall, and color), and the whole chunk is moved by
+//a single offset, so moving a chunk is O(1) no matter how many squares it has. Chunks are allocated once
+//with room for a whole board and reused.
 public class Chunk {
-	private Deque<ScreenSpaceSubsquare> subsquareList;
+	private int[] x;         //Screen x of each square
+	private int[] y;         //Screen y of each square, before the chunk falls
+	private byte[] colors;   //Color index of each square, see PieceType.getColorIndex()
+	private int size;
+	private int topY;        //Screen y of the top of the chunk, before it falls
+	private int bottomY;     //Screen y of the bottom of the chunk, before it falls
+	private float fallDistance;   //How far (in pixels) the chunk falls
+	private float offset;         //How far it has fallen so far
+	
+	
 	
-	public Chunk() {
-		subsquareList = new LinkedList<ScreenSpaceSubsquare>();
+	
+	/**
+	 * @param capacity - The most squares the chunk can hold (e.g. the number of squares on the board).
+	 */
+	public Chunk(int capacity) {
+		x      = new int[capacity];
+		y      = new int[capacity];
+		colors = new byte[capacity];
 	}
 	
 	
@@ -33,199 +47,108 @@ public class Chunk {
 	
 	
 	
-	public void addSubsquare(ScreenSpaceSubsquare s) {
-		subsquareList.addFirst(s);
-	}
-	
-	
-	
 	/**
-	 * Calculates the line (i.e., the y value) of the top of the chunk in screen space. Runs in O(1).
-	 * @return Returns -1.0 if the chunk is empty, otherwise, returns the y value of the top of the
-	 * chunk in screen space.
+	 * Gets the y value of the top of the chunk in screen space, where it is now.
+	 * @return Returns -1.0 if the chunk is empty.
 	 */
 	public float getTopBoundScreenSpace() {
-		if (subsquareList.isEmpty())
+		if (size == 0)
 			return -1;
 		
-		return subsquareList.peekLast().getPoint().y;
+		return topY + offset;
 	}
 	
 	/**
-	 * Calculates the line (i.e., the y value) of the bottom of the chunk in screen space. Runs in 
-	 * O(1).
-	 * @return Returns -1.0 if the chunk is empty, otherwise, returns the y value of the bottom of
-	 * the chunk in screen space.
+	 * Gets the y value of the bottom of the chunk in screen space, where it is now.
+	 * @return Returns -1.0 if the chunk is empty.
 	 */
 	public float getBottomBoundScreenSpace() {
-		if (subsquareList.isEmpty())
+		if (size == 0)
 			return -1;
 		
-		return subsquareList.peekFirst().getPoint().y + TetrisGame.pieceSize;
+		return bottomY + offset;
 	}
 	
 	
 	
 	
-	public Deque<ScreenSpaceSubsquare> getSubsquareList() {
-		return subsquareList;
-	}
-	
-	
-	
 	/**
-	 * Sets the chunk on the game board.
-	 * @param theBoard - the board.
+	 * Fills this chunk with the subsquares on the interval [upperBound, lowerBound), in the board's
+	 * coordinates from BEFORE the last line clear. The board has already been compacted, so the
+	 * subsquares are read from rowOffset rows further down, which is where the chunk ends up.
+	 * @param theBoard - The GameBoard containing the chunk.
+	 * @param lowerBound - The bottom-most row index plus 1 of the chunk (before the clear).
+	 * @param upperBound - The top-most row index of the chunk (before the clear).
+	 * @param rowOffset - How many rows the chunk fell in the line clear.
 	 */
-	public void setOnBoard(GameBoard theBoard) {
-		for (ScreenSpaceSubsquare s : subsquareList) {
-			Point2f screenSpace = s.getPoint();
-			Point logicSpace = GameBoardSquare.screenToBoard(screenSpace.x, screenSpace.y);
-			theBoard.setSquare(logicSpace.x, logicSpace.y, s.getColor());
-		}
-	}
-	
-	
-	
-	
-//	/**
-//	 * Creates a chunk on the interval [upperBound, lowerBound). This chunk is guaranteed
-//	 * to be sorted, such that the first subsquare is on the highest row of the chunk, and the last 
-//	 * subsquare is on the lowest row. This method also clears the chunk from the board.
-//	 * @param theBoard - The GameBoard containing the chunks.
-//	 * @param lowerBound - The bottom-most row index plus 1 of the chunk in logic space.
-//	 * @param upperBound - The top-most row index of the chunk in logic space.
-//	 * @param clearChunk - We can optionally clear this chunk from the game board while we're
-//	 * acquiring it.
-//	 * @return If the chunk is empty, returns an empty chunk. Returns a non-empty chunk otherwise.
-//	 */
-//	public static Chunk createChunkFromBounds(GameBoard theBoard, int lowerBound, int upperBound, boolean clearChunk) {
-//		if (isEmptyChunk(lowerBound, upperBound))
-//			return new Chunk();
-//		
-//		Chunk chunk = new Chunk();
-//		int numCols = theBoard.getCols();
-//		
-//		//Two versions of the loop for maximum efficiency. This is better than checking the clearChunk
-//		//value for each (i,j) index.
-//		if (clearChunk) {
-//			for (int i = upperBound; i < lowerBound; ++i) {
-//				for (int j = 0; j < numCols; ++j) {
-//					if (theBoard.isSet(i,j)) {
-//						Point p = GameBoardSquare.boardToScreen(i, j);
-//						chunk.addSubsquare(new ScreenSpaceSubsquare(new Point2f(p), theBoard.getSquare(i,j).getColor()));
-//						theBoard.clearSquare(i,j);
-//					}
-//				}
-//			}
-//		}
-//		
-//		else {
-//			for (int i = upperBound; i < lowerBound; ++i) {
-//				for (int j = 0; j < numCols; ++j) {
-//					if (theBoard.isSet(i,j)) {
-//						Point p = GameBoardSquare.boardToScreen(i, j);
-//						chunk.addSubsquare(new ScreenSpaceSubsquare(new Point2f(p), theBoard.getSquare(i,j).getColor()));
-//					}
-//				}
-//			}
-//		}
-//		
-//		return chunk;
-//	}
-	
-	
-	
-	
-	public void createChunkFromBounds(GameBoard theBoard, int lowerBound, int upperBound, boolean clearChunk) {
+	public void createChunkFromBounds(GameBoard theBoard, int lowerBound, int upperBound, int rowOffset) {
+		size         = 0;
+		offset       = 0;
+		fallDistance = rowOffset * (GameBoardSquare.boardToScreenY(1) - GameBoardSquare.boardToScreenY(0));
 		if (isEmptyChunk(lowerBound, upperBound))
 			return;
 		
-		int numCols = theBoard.getCols();
+		int numCols    = theBoard.getCols();
+		int topRow     = -1;
+		int bottomRow  = -1;
 		
-		//Two versions of the loop for maximum efficiency. This is better than checking the clearChunk
-		//value for each (i,j) index.
-		if (clearChunk) {
-			for (int i = upperBound; i < lowerBound; ++i) {
-				for (int j = 0; j < numCols; ++j) {
-					if (theBoard.isSet(i,j)) {
-						Point p = GameBoardSquare.boardToScreen(i, j);
-						addSubsquare(new ScreenSpaceSubsquare(new Point2f(p), theBoard.getSquare(i,j).getColor()));
-						theBoard.clearSquare(i,j);
-					}
+		for (int i = upperBound; i < lowerBound; ++i) {
+			if (theBoard.isRowEmpty(i + rowOffset))
+				continue;
+			for (int j = 0; j < numCols; ++j) {
+				if (theBoard.isSet(i + rowOffset, j)) {
+					x[size]      = GameBoardSquare.boardToScreenX(j);
+					y[size]      = GameBoardSquare.boardToScreenY(i);
+					colors[size] = theBoard.getColor(i + rowOffset, j);
+					++size;
 				}
 			}
+			if (topRow < 0)
+				topRow = i;
+			bottomRow = i;
 		}
 		
-		else {
-			for (int i = upperBound; i < lowerBound; ++i) {
-				for (int j = 0; j < numCols; ++j) {
-					if (theBoard.isSet(i,j)) {
-						Point p = GameBoardSquare.boardToScreen(i, j);
-						addSubsquare(new ScreenSpaceSubsquare(new Point2f(p), theBoard.getSquare(i,j).getColor()));
-					}
-				}
-			}
+		if (size > 0) {
+			topY    = GameBoardSquare.boardToScreenY(topRow);
+			bottomY = GameBoardSquare.boardToScreenY(bottomRow + 1);
 		}
-				
 	}
 	
 	
 	
 	
-	public void moveChunk(float amount) {
-		for (ScreenSpaceSubsquare s : subsquareList) {
-			s.getPoint().add(0, amount);
-		}
+	/**
+	 * Gets how far (in pixels) the chunk falls before it lands.
+	 */
+	public float getFallDistance() {
+		return fallDistance;
 	}
 	
 	
 	
+	
 	/**
-	 * Note: This method is potentially buggy in its current, simplistic state.
-	 * This method removes floating point imprecisions after a chunk is done falling, using the current
-	 * collision line in screen space. The bottom-most row of the chunk will be aligned with 
-	 * collisionLine + pieceSize, the one above that will be aligned with collisionLine + 2*pieceSize,
-	 * and so on. This method guarantees that all the chunks will convert back to logic space 
-	 * without problems, and that any hiccups with the timer will be smoothed out.
-	 * 
-	 * @return Returns true if the method successfully aligns the chunks, and false otherwise (it
-	 * should never return false; this is just here for debugging).
+	 * Puts the chunk the given distance below where it started.
 	 */
-	//Update: not using this method. Instead, if updating the chunk would put it below the collision line, then
-	//we simply update by the exact amount needed to align it with the line. This is cleaner.
-	
-	public boolean align() {
-		
-		//Really simplistic rounding. Might cause a problem if the computer stutters enough to
-		//allow the timer to update the chunk beyond 1 integer below the collision line.
-		for (ScreenSpaceSubsquare s : subsquareList) {
-			Point2f p = s.getPoint();
-			p.set((float)Math.round(p.x), (float)Math.round(p.y));
-		}
-		
-		//topChunkScreenSpaceY = (float)Math.round(topChunkScreenSpaceY);
-		//bottomChunkScreenSpaceY = (float)Math.round(bottomChunkScreenSpaceY);
-		
-		return true;
+	public void setOffset(float offset) {
+		this.offset = offset;
 	}
 	
 	
 	
 	
 	public boolean isEmpty() {
-		return subsquareList.isEmpty();
+		return size == 0;
 	}
 	
 	
 	
 	
+	/**
+	 * Draws the chunk. Must be called between BlockBatch.begin() and BlockBatch.end().
+	 */
 	public void render(Graphics graphics) {
-		for (ScreenSpaceSubsquare s : subsquareList) {
-			//graphics.setColor(s.getColor());
-			//graphics.fillRect(s.getPoint().x, s.getPoint().y, TetrisGame.pieceSize, TetrisGame.pieceSize);
-			Point2f p = s.getPoint();
-			graphics.drawImage(s.getColor(), p.x, p.y);
-		}
+		for (int i = 0; i < size; ++i)
+			BlockBatch.drawScreen(colors[i], x[i], y[i] + offset);
 	}
 }
@@ -0,0 +1,74 @@
+package animation;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
+
+import pieces.GameBoardSquare;
+import point.Point;
+import tetrisgame.TetrisGame;
+
+/**
+ * Briefly flashes the squares of a piece that just locked, fading out.
+ */
+public class LockFlashAnimation extends Animation {
+	public static final long duration    = 150000000L;   //Nanoseconds
+	public static final float startAlpha = 0.6f;
+	
+	private int[] rows;
+	private int[] cols;
+	private int numSquares;
+	private Color color;    //Reused every frame; only the alpha changes
+	
+	
+	
+	public LockFlashAnimation() {
+		rows  = new int[4];
+		cols  = new int[4];
+		color = new Color(1f, 1f, 1f, startAlpha);
+	}
+	
+	
+	
+	
+	/**
+	 * Sets which squares flash. Call this before the animation is started.
+	 * @param piece - The four subsquares of the piece that locked. They're copied.
+	 */
+	public void setPiece(Point[] piece) {
+		numSquares = Math.min(piece.length, rows.length);
+		for (int i = 0; i < numSquares; ++i) {
+			rows[i] = piece[i].x;
+			cols[i] = piece[i].y;
+		}
+	}
+	
+	
+	
+	
+	@Override
+	protected boolean update(long elapsed) {
+		color.a = startAlpha * (1f - Math.min((float)elapsed / duration, 1f));
+		return elapsed < duration;
+	}
+	
+	
+	
+	
+	@Override
+	public void render(Graphics g) {
+		g.setColor(color);
+		for (int i = 0; i < numSquares; ++i) {
+			if (rows[i] >= TetrisGame.numInvisRows)
+				g.fillRect(GameBoardSquare.boardToScreenX(cols[i]), GameBoardSquare.boardToScreenY(rows[i]),
+						   TetrisGame.pieceSize, TetrisGame.pieceSize);
+		}
+	}
+	
+	
+	
+	
+	@Override
+	protected void end() {
+		numSquares = 0;
+	}
+}
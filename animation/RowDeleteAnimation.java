@@ -1,103 +1,72 @@
 package animation;
 import timer.Timer;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.List;
-import java.util.ArrayList;
-
 import org.newdawn.slick.Graphics;
 
-import pieces.GameBoardSquare;
+import render.BlockBatch;
 import logic.GameBoard;
+import metrics.Metrics;
 
-public class RowDeleteAnimation {
-	private List<Chunk> chunkRenderList;
-	private Deque<Chunk> chunkStack;
-	private float currentCollisionY;
-	private Timer animationTimer;
-	private boolean isFirstFrame;
+/**
+ * Replays the board's last line clear: the chunks of squares between the cleared rows fall back into
+ * place. The animation is purely visual; the board was already updated by the logical line clear, and
+ * nothing here writes to it.
+ */
+public class RowDeleteAnimation extends Animation {
+	public static final double acceleration = 1200d;   //Pixels per second squared
+	
+	private Chunk[] chunks;     //Top to bottom; allocated once and reused
+	private int numChunks;
+	private double duration;    //Seconds until the last chunk lands
 	private GameBoard theBoard;
 	
-	//debug
-	double testTime = 0d;
-	double testdt   = 0.05d;
-	
 	
 	
 	public RowDeleteAnimation(GameBoard theBoard) {
-		chunkStack        = new ArrayDeque<Chunk>(5);
-		chunkRenderList   = new ArrayList<Chunk>(5); //max number of possible chunks
-		animationTimer    = new Timer();
-		isFirstFrame      = true;
-		currentCollisionY = GameBoardSquare.boardToScreen(theBoard.getRows(), 0).y; //Bottom of the board
+		chunks            = new Chunk[5]; //max number of possible chunks for a four line clear
 		this.theBoard     = theBoard;
 	}
 	
 	
 	
 	
-	private List<Integer> getFullRowsAndClearThem() {
-		List<Integer> deletedRows = new ArrayList<Integer>(4);
-		int rows = theBoard.getRows();
-		int cols = theBoard.getCols();
-		boolean fullRow;
-		
-		for (int i = 0; i < rows; ++i) {
-			fullRow = true;
-			for (int j = 0; j < cols; ++j) {
-				if (!theBoard.isSet(i,j)) {
-					fullRow = false;
-					break;
-				}
-			}
-			if (fullRow) {
-				deletedRows.add(i);
-				theBoard.clearRow(i);
-			}
+	/**
+	 * Gets the next unused chunk, allocating it the first time.
+	 */
+	private Chunk nextChunk() {
+		if (numChunks == chunks.length) {
+			Chunk[] more = new Chunk[chunks.length * 2];
+			System.arraycopy(chunks, 0, more, 0, chunks.length);
+			chunks = more;
 		}
-		return deletedRows;
+		if (chunks[numChunks] == null)
+			chunks[numChunks] = new Chunk(theBoard.getRows() * theBoard.getCols());
+		return chunks[numChunks];
 	}
 	
 	
-
-	//working on this method
-	private void getChunksAndClearBoard() {
-		List<Integer> deletedRows = getFullRowsAndClearThem();
+	
+	
+	/**
+	 * Builds the chunks from the board. The rows have already been cleared (see GameBoard.clearFullRows()),
+	 * so each chunk is read from where it ended up, and placed back where it was before the clear.
+	 */
+	private void getChunks() {
 		Chunk currentChunk;
-		System.out.println("Deleted rows: ");
-		for (Integer i : deletedRows)
-			System.out.println(i.intValue());
-		//Better way of doing the loop?
+		int numClearedRows = theBoard.getClearedRowCount();
+		
 		//Check each "chunk interval": between the top of the board and the top-most deleted row,
 		//between the deleted rows, and between the bottom-most deleted row and the bottom of the
-		//board. Each of these intervals optionally contains a chunk.
+		//board. Each of these intervals optionally contains a chunk, which fell by the number of
+		//deleted rows below it. The bottom-most one doesn't move, but it still has to be drawn.
 		int upperBound = 0; //Initialize to the top of the board
-		for (Integer lowerBound : deletedRows) {
-			currentChunk = new Chunk();
-			currentChunk.createChunkFromBounds(theBoard, lowerBound, upperBound, true);
-			if (!currentChunk.isEmpty()) {
-				chunkStack.addFirst(currentChunk);
-				chunkRenderList.add(currentChunk);
-			}
-			upperBound = lowerBound.intValue() + 1;
-		}
-		
-		
-		//Handle last potential "chunk interval," namely, the chunk between the bottom-most deleted
-		//row and the bottom of the board.
-		if (upperBound < theBoard.getRows()) {
-			//currentChunk = Chunk.createChunkFromBounds(theBoard, upperBound, theBoard.getRows(), false);
-			currentChunk = new Chunk();
-			currentChunk.createChunkFromBounds(theBoard, theBoard.getRows(), upperBound, false);
-			
-			//We don't add this chunk to the stack because it doesn't need to move.
-			//However, we need to initialize the collision line to the top of this stationary 
-			//bottom-most stack.
-			if (!currentChunk.isEmpty()) {
-				chunkRenderList.add(currentChunk);
-				currentCollisionY = currentChunk.getTopBoundScreenSpace();
-			}
+		for (int k = 0; k <= numClearedRows; ++k) {
+			int lowerBound = k < numClearedRows ? theBoard.getClearedRow(k) : theBoard.getRows();
+			currentChunk = nextChunk();
+			currentChunk.createChunkFromBounds(theBoard, lowerBound, upperBound, numClearedRows - k);
+			if (!currentChunk.isEmpty())
+				++numChunks;
+			upperBound = lowerBound + 1;
 		}
 		
 	}
@@ -105,122 +74,80 @@ public class RowDeleteAnimation {
 	
 	
 	
-	private void moveChunks(float amount) {
-		for (Chunk c : chunkStack)
-			c.moveChunk(amount);
-		
+	/**
+	 * Gets how far a chunk has fallen at time t. Every chunk falls together from rest, with the same
+	 * constant acceleration, s(t) = a*t^2/2, until it has fallen its own distance and lands. The chunks
+	 * further up the board fall further, so a chunk never passes the one below it.
+	 */
+	private static float getOffset(Chunk chunk, double t) {
+		double s = 0.5d * acceleration * t * t;
+		return (float)Math.min(s, chunk.getFallDistance());
+	}
+	
+	
+	
+	
+	/**
+	 * Gets the time a chunk lands, i.e., when s(t) reaches its fall distance.
+	 */
+	private static double getLandingTime(Chunk chunk) {
+		return Math.sqrt(2d * chunk.getFallDistance() / acceleration);
 	}
 	
 	
 	
-	private void renderChunks(Graphics graphics) {
-		for (Chunk c : chunkRenderList)
-			c.render(graphics);
+	/**
+	 * Sets up the animation from the board's last line clear. Must be called right after
+	 * GameBoard.clearFullRows(), before anything else changes on the board, and before the animation is
+	 * started.
+	 */
+	public void prepare() {
+		numChunks = 0;
+		duration  = 0;
+		getChunks();
+		for (int i = 0; i < numChunks; ++i)
+			duration = Math.max(duration, getLandingTime(chunks[i]));
 	}
 	
 	
 	
 	
-	private void resetState() {
-		testTime = 0;
-		isFirstFrame = true;
-		chunkRenderList.clear();
-		chunkStack.clear();
-		animationTimer.stop();
-		animationTimer.reset();
-		currentCollisionY = GameBoardSquare.boardToScreen(theBoard.getRows(), 0).y;
+	/**
+	 * Moves the chunks to where they are at the given time. Every chunk's position comes straight from the
+	 * time since the animation started, so where the chunks are (and when they land) doesn't depend on how
+	 * often frames are drawn. Only one offset per chunk is updated.
+	 */
+	@Override
+	protected boolean update(long elapsed) {
+		double t = Timer.nanoToSeconds(elapsed);
+		for (int i = 0; i < numChunks; ++i)
+			chunks[i].setOffset(getOffset(chunks[i], t));
 		
+		//The animation is done when the last chunk has landed
+		if (t >= duration) {
+			Metrics.animationDuration.record(elapsed);
+			return false;
+		}
+		return true;
 	}
 	
 	
 	
 	
-	private void setChunksOnBoard() {
-		for (Chunk c : chunkRenderList) {
-			c.setOnBoard(theBoard);
-		}
+	@Override
+	public void render(Graphics graphics) {
+		BlockBatch.begin();
+		for (int i = 0; i < numChunks; ++i)
+			chunks[i].render(graphics);
+		BlockBatch.end();
 	}
 	
 	
 	
 	
-	public boolean play(Graphics graphics) {
-		//If it's the first frame of animation, we want to get the algorithm set up.
-		//We begin the animation timer, which is used to calculate the position of the chunks
-		//based on the total elapsed time.
-		//We get all the chunks and add them to the chunk list for rendering, and the chunk stack
-		//for the meat of the algorithm.
-		//We also clear all the chunks off the board. This way, we can reset them when the animation
-		//is complete (by converting the screen space coordinates of the chunks' subsquares back to
-		//logic space (AKA, board space, the matrix of booleans in (row,col) form).
-		if (isFirstFrame) {
-			animationTimer.start();
-			
-			getChunksAndClearBoard();
-			
-			isFirstFrame = false;
-		}
-		
-		//If it's not the first frame of animation....
-		//This is the part where we move the chunks down.
-		//The basic gist is that we want to try moving the chunk on the top of the stack (i.e.,
-		//the chunk on the bottom of the screen) down. If it goes below the collision line, then
-		//we don't do the move, pop the chunk off the stack, and update the collision line (which is
-		//now the top of the popped chunk).
-		//****Note: We can optimize the "try moving chunk" part of the algorithm by choosing
-		//			the last subsquare in the chunk, which is guaranteed to be in the bottom 
-		//			row of the chunk. Thus, if this "test subsquare" goes below the collision line, then
-		//			we don't want to move the chunk. In that case, we want to eliminate floating-point
-		//			imprecision by rounding the subsquares' x and y values to the nearest integer.*****
-		//The animation is done when the chunk stack is empty.
-		else {
-			
-			boolean isAnimationDone = chunkStack.isEmpty();
-			if (isAnimationDone) { //Animation is done
-				setChunksOnBoard();
-				renderChunks(graphics);
-				resetState();
-				theBoard.spawnPiece();
-				return false;
-			}
-			
-			
-			animationTimer.tick(); //update dt
-			
-			Chunk chunk = chunkStack.peekFirst();
-			float testSquareY = chunk.getBottomBoundScreenSpace();
-			
-			//s(t) is approximately equal to the sum of all v(t)*dt, where dt is the time
-			//between animation frames (basic calculus). This is convenient, since we don't need
-			//to keep track of the initial heights of each and every subsquare, which would also
-			//require us to recalculate height for every subsquare, each frame. Instead, we just
-			//calculate the change in height each frame once, and apply it to all subsquares.
-			double t           = Timer.nanoToSeconds(animationTimer.getElapsedTime());
-			double dt          = Timer.nanoToSeconds(animationTimer.getDeltaTime());
-			double velocity    = 1200d * t;
-			double deltaHeight = velocity * dt;
-			
-			//debug
-//			testTime += testdt;
-//			double velocity = 285d * testTime;
-//			double deltaHeight = velocity * testdt;
-			
-			//If the chunk goes under the collision line, stop the chunk, update the collision line,
-			//and pop the chunk off the stack.
-			if (testSquareY + deltaHeight > currentCollisionY) {
-				deltaHeight = currentCollisionY - testSquareY; //Get the exact amount needed to move the chunk to the collision line
-				moveChunks((float)deltaHeight);
-				chunk = chunkStack.removeFirst();
-				currentCollisionY = chunk.getTopBoundScreenSpace();
-			}
-			
-			else
-				moveChunks((float)deltaHeight);
-			
-		}
-		
-		renderChunks(graphics);
-		return true;
+	@Override
+	protected void end() {
+		numChunks = 0;
 	}
 	
 	
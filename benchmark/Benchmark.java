@@ -0,0 +1,45 @@
+package benchmark;
+
+/**
+ * A single microbenchmark: some state set up once, and an operation that can be repeated any number of
+ * times in a steady state. See BenchmarkRunner.
+ *
+ */
+public abstract class Benchmark {
+
+	private String name;
+
+
+
+
+	protected Benchmark(String name) {
+		this.name = name;
+	}
+
+
+
+
+	public String getName() {
+		return name;
+	}
+
+
+
+
+	/**
+	 * Builds the benchmark's fixture. Called once, before any warmup.
+	 */
+	public void setUp() {
+	}
+
+
+
+
+	/**
+	 * Runs the operation a number of times.
+	 * @return Returns something computed from the results (e.g. a sum of return values), so the JIT can't
+	 * throw the work away.
+	 */
+	public abstract long run(int ops);
+
+}
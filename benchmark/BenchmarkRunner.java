@@ -0,0 +1,134 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs benchmarks and reports their throughput and allocation rate.
+ *
+ * Each benchmark is warmed up for a while (so the JIT has compiled it), then measured over several
+ * timed iterations. Throughput is reported as the mean and standard deviation over the iterations.
+ * Allocation is read from the JVM's per-thread allocation counter (HotSpot's
+ * com.sun.management.ThreadMXBean), and reported in bytes per operation, or "n/a" if the JVM doesn't
+ * support it.
+ *
+ */
+public class BenchmarkRunner {
+
+	private long warmupNanos;
+	private long iterationNanos;
+	private int iterations;
+	private List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+	private static volatile long sink;   //Results go here, so they can't be optimized away
+
+
+
+
+	/**
+	 * Warms up for 1 second, then measures 5 iterations of half a second each.
+	 */
+	public BenchmarkRunner() {
+		this(1000000000L, 500000000L, 5);
+	}
+
+
+
+
+	public BenchmarkRunner(long warmupNanos, long iterationNanos, int iterations) {
+		this.warmupNanos    = warmupNanos;
+		this.iterationNanos = iterationNanos;
+		this.iterations     = iterations;
+	}
+
+
+
+
+	public void add(Benchmark benchmark) {
+		benchmarks.add(benchmark);
+	}
+
+
+
+
+	/**
+	 * Runs every benchmark whose name contains the filter, and prints a table of the results.
+	 * @param filter - Part of a benchmark name, or null to run them all.
+	 */
+	public void run(String filter) {
+		System.out.println(String.format("%-32s %17s %12s %12s", "Benchmark", "ops/s", "ns/op", "B/op"));
+		for (Benchmark b : benchmarks) {
+			if (filter == null || b.getName().contains(filter))
+				System.out.println(measure(b));
+		}
+	}
+
+
+
+
+	/**
+	 * Runs the operation for about the given time, in batches that double until each takes at least a
+	 * millisecond (so the clock isn't read too often).
+	 * @param counts - Receives the number of operations run, and the time taken in nanoseconds.
+	 */
+	private static void runFor(Benchmark benchmark, long nanos, long[] counts) {
+		int batch  = 1;
+		long ops   = 0;
+		long start = System.nanoTime();
+		long now   = start;
+
+		while (now - start < nanos) {
+			long batchStart = now;
+			sink += benchmark.run(batch);
+			ops  += batch;
+			now   = System.nanoTime();
+			if (now - batchStart < 1000000 && batch < (1 << 24))
+				batch <<= 1;
+		}
+		counts[0] = ops;
+		counts[1] = now - start;
+	}
+
+
+
+
+	private String measure(Benchmark benchmark) {
+		benchmark.setUp();
+
+		long[] counts = new long[2];
+		runFor(benchmark, warmupNanos, counts);
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		boolean hasAllocation = threads instanceof com.sun.management.ThreadMXBean;
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = hasAllocation ? ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(threadId) : 0;
+
+		double[] throughput = new double[iterations];
+		long totalOps   = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < iterations; ++i) {
+			runFor(benchmark, iterationNanos, counts);
+			throughput[i] = counts[0] * 1e9 / counts[1];
+			totalOps     += counts[0];
+			totalNanos   += counts[1];
+		}
+
+		long allocated = hasAllocation ? ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(threadId) - allocatedBefore : 0;
+
+		double mean = 0;
+		for (double t : throughput)
+			mean += t;
+		mean /= iterations;
+		double variance = 0;
+		for (double t : throughput)
+			variance += (t - mean) * (t - mean);
+		double deviation = Math.sqrt(variance / Math.max(iterations - 1, 1));
+
+		String allocation = hasAllocation ? String.format("%12.2f", (double)allocated / totalOps) : String.format("%12s", "n/a");
+		return String.format("%-32s %9.0f +-%4.1f%% %12.1f %s", benchmark.getName(), mean, 100 * deviation / mean,
+							 (double)totalNanos / totalOps, allocation);
+	}
+
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import generator.XorShift;
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import rotation.RotationSystem;
+
+/**
+ * Boards for the benchmarks to run on. Everything is seeded, so every run sees the same boards.
+ *
+ */
+public class BoardFixtures {
+
+	public static final int ROWS = 21;
+	public static final int COLS = 10;
+
+
+
+
+	private BoardFixtures() {
+	}
+
+
+
+
+	public static GameBoard empty() {
+		return new GameBoard(ROWS, COLS, 1);
+	}
+
+
+
+
+	/**
+	 * A typical mid-game board: the bottom rows are filled, with one or two holes in each row (so none are
+	 * full), and a ragged surface on top.
+	 * @param height - How many rows to fill.
+	 */
+	public static GameBoard midGame(int height) {
+		GameBoard theBoard = new GameBoard(ROWS, COLS, 1);
+		XorShift random    = new XorShift(42);
+
+		for (int row = ROWS - height; row < ROWS; ++row) {
+			int hole      = random.nextInt(COLS);
+			int otherHole = random.nextInt(COLS);
+			for (int col = 0; col < COLS; ++col) {
+				if (col != hole && col != otherHole)
+					theBoard.setSquare(row, col, (byte)(1 + random.nextInt(PieceType.numPieces)));
+			}
+		}
+
+		//Ragged surface: a few squares sticking up out of the top row
+		int top = ROWS - height - 1;
+		for (int col = 0; col < COLS; col += 1 + random.nextInt(3))
+			theBoard.setSquare(top, col, (byte)1);
+
+		return theBoard;
+	}
+
+
+
+
+	/**
+	 * The bottom four rows are full except for the left column, so a vertical line piece there clears all
+	 * four (a "Tetris").
+	 */
+	public static GameBoard tetrisReady() {
+		GameBoard theBoard = new GameBoard(ROWS, COLS, 1);
+		for (int row = ROWS - 4; row < ROWS; ++row) {
+			for (int col = 1; col < COLS; ++col)
+				theBoard.setSquare(row, col, (byte)(1 + (row + col) % PieceType.numPieces));
+		}
+		return theBoard;
+	}
+
+
+
+
+	/**
+	 * Kinds of rotation a position can produce (see findRotation()).
+	 */
+	public enum RotationKind {
+		NO_KICK,
+		WALL_KICK,    //The rotated piece would stick out of the board, and gets kicked back in
+		PIECE_KICK    //The rotated piece would overlap squares on the board, and gets kicked clear
+	}
+
+
+
+
+	/**
+	 * Looks for a position on the board where rotating the active piece (of the given type) clockwise
+	 * succeeds with the given kind of kick. The piece is left at that position, not rotated.
+	 * @return Returns false if there's no such position.
+	 */
+	public static boolean findRotation(GameBoard theBoard, PieceType type, RotationKind kind) {
+		RotationSystem rotationSystem = theBoard.getRotationSystem();
+		theBoard.getActivePiece().spawn(type);
+		theBoard.getActivePiece().clearPiece();
+
+		for (int rotation = 0; rotation < 4; ++rotation) {
+			for (int row = -2; row < theBoard.getRows() + 2; ++row) {
+				for (int col = -2; col < theBoard.getCols() + 2; ++col) {
+					if (!rotationSystem.fits(theBoard, type, rotation, row, col))
+						continue;
+
+					int toRotation = RotationSystem.rotateRight(rotation);
+					RotationKind actual = RotationKind.NO_KICK;
+					for (int i = 0; i < 4; ++i) {
+						int r = row + rotationSystem.getRowOffset(type, toRotation, i);
+						int c = col + rotationSystem.getColOffset(type, toRotation, i);
+						if (!theBoard.inBounds(r, c))
+							actual = RotationKind.WALL_KICK;
+						else if (theBoard.isSet(r, c) && actual == RotationKind.NO_KICK)
+							actual = RotationKind.PIECE_KICK;
+					}
+					if (actual != kind)
+						continue;
+
+					//Make sure the rotation actually succeeds from here
+					theBoard.getActivePiece().moveTo(rotation, row, col);
+					boolean rotated = theBoard.getActivePiece().rotate(false);
+					theBoard.getActivePiece().moveTo(rotation, row, col);
+					if (rotated)
+						return true;
+					theBoard.getActivePiece().clearPiece();
+				}
+			}
+		}
+		return false;
+	}
+
+}
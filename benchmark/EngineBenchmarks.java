@@ -0,0 +1,311 @@
+package benchmark;
+
+import benchmark.BoardFixtures.RotationKind;
+import logic.BoardSnapshot;
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import pieces.ActivePiece;
+import pieces.GameBoardSquare.MoveType;
+
+/**
+ * The engine's hot paths: moving, rotating (with and without kicks), dropping, checking for full rows,
+ * spawning, and a whole line clear.
+ *
+ * Run with: java main.AppMain --bench [name filter]
+ *
+ */
+public class EngineBenchmarks {
+
+	private EngineBenchmarks() {
+	}
+
+
+
+
+	public static BenchmarkRunner createRunner() {
+		BenchmarkRunner runner = new BenchmarkRunner();
+
+		runner.add(new MoveBenchmark("move (empty)", BoardFixtures.empty()));
+		runner.add(new MoveBenchmark("move (mid-game)", BoardFixtures.midGame(8)));
+		runner.add(new RotateBenchmark("rotate (no kick)", BoardFixtures.empty(), PieceType.PIECE_T, RotationKind.NO_KICK));
+		runner.add(new RotateBenchmark("rotate (wall kick)", BoardFixtures.empty(), PieceType.PIECE_LINE, RotationKind.WALL_KICK));
+		runner.add(new RotateBenchmark("rotate (piece kick)", BoardFixtures.midGame(8), PieceType.PIECE_T, RotationKind.PIECE_KICK));
+		runner.add(new DropBenchmark("dropPiece (empty)", BoardFixtures.empty()));
+		runner.add(new DropBenchmark("dropPiece (mid-game)", BoardFixtures.midGame(8)));
+		runner.add(new CheckFullRowsBenchmark("checkFullRows (mid-game)", BoardFixtures.midGame(12)));
+		runner.add(new SpawnBenchmark("spawnPiece", BoardFixtures.empty()));
+		runner.add(new LineClearBenchmark("line clear (tetris)", BoardFixtures.tetrisReady()));
+		runner.add(new RestoreBenchmark("snapshot restore (baseline)", BoardFixtures.midGame(8)));
+
+		return runner;
+	}
+
+
+
+
+	/**
+	 * Shifts a piece left and right across the board.
+	 */
+	private static class MoveBenchmark extends Benchmark {
+		private GameBoard theBoard;
+		private ActivePiece piece;
+		private MoveType direction = MoveType.MOVE_LEFT;
+
+
+
+		MoveBenchmark(String name, GameBoard theBoard) {
+			super(name);
+			this.theBoard = theBoard;
+		}
+
+
+
+		@Override
+		public void setUp() {
+			theBoard.getActivePiece().spawn(PieceType.PIECE_T);
+			piece = theBoard.getActivePiece();
+		}
+
+
+
+		@Override
+		public long run(int ops) {
+			long moved = 0;
+			for (int i = 0; i < ops; ++i) {
+				if (piece.move(direction, 1))
+					++moved;
+				else
+					direction = (direction == MoveType.MOVE_LEFT) ? MoveType.MOVE_RIGHT : MoveType.MOVE_LEFT;
+			}
+			return moved;
+		}
+	}
+
+
+
+
+	/**
+	 * Rotates a piece from a fixed position, found so that the rotation takes the given kind of kick. The
+	 * piece is moved back (with moveTo()) after every rotation, and that's included in the time.
+	 */
+	private static class RotateBenchmark extends Benchmark {
+		private GameBoard theBoard;
+		private PieceType type;
+		private RotationKind kind;
+		private ActivePiece piece;
+		private int rotation, originRow, originCol;
+
+
+
+		RotateBenchmark(String name, GameBoard theBoard, PieceType type, RotationKind kind) {
+			super(name);
+			this.theBoard = theBoard;
+			this.type     = type;
+			this.kind     = kind;
+		}
+
+
+
+		@Override
+		public void setUp() {
+			if (!BoardFixtures.findRotation(theBoard, type, kind))
+				throw new IllegalStateException("No position on the board gives a " + kind + " rotation.");
+			piece     = theBoard.getActivePiece();
+			rotation  = piece.getRotation();
+			originRow = piece.getOriginRow();
+			originCol = piece.getOriginCol();
+		}
+
+
+
+		@Override
+		public long run(int ops) {
+			long rotated = 0;
+			for (int i = 0; i < ops; ++i) {
+				if (piece.rotate(false))
+					++rotated;
+				piece.moveTo(rotation, originRow, originCol);
+			}
+			return rotated;
+		}
+	}
+
+
+
+
+	/**
+	 * Drops a freshly spawned piece, then puts it back at the spawn position.
+	 */
+	private static class DropBenchmark extends Benchmark {
+		private GameBoard theBoard;
+		private ActivePiece piece;
+
+
+
+		DropBenchmark(String name, GameBoard theBoard) {
+			super(name);
+			this.theBoard = theBoard;
+		}
+
+
+
+		@Override
+		public void setUp() {
+			theBoard.getActivePiece().spawn(PieceType.PIECE_L);
+			piece = theBoard.getActivePiece();
+		}
+
+
+
+		@Override
+		public long run(int ops) {
+			long rows = 0;
+			int spawnRow = piece.getOriginRow();
+			for (int i = 0; i < ops; ++i) {
+				piece.dropPiece();
+				rows += piece.getOriginRow();
+				piece.moveTo(0, spawnRow, piece.getOriginCol());
+			}
+			return rows;
+		}
+	}
+
+
+
+
+	private static class CheckFullRowsBenchmark extends Benchmark {
+		private GameBoard theBoard;
+
+
+
+		CheckFullRowsBenchmark(String name, GameBoard theBoard) {
+			super(name);
+			this.theBoard = theBoard;
+		}
+
+
+
+		@Override
+		public long run(int ops) {
+			long full = 0;
+			for (int i = 0; i < ops; ++i) {
+				if (theBoard.checkFullRows())
+					++full;
+			}
+			return full;
+		}
+	}
+
+
+
+
+	/**
+	 * Takes the active piece off the board and spawns the next one.
+	 */
+	private static class SpawnBenchmark extends Benchmark {
+		private GameBoard theBoard;
+
+
+
+		SpawnBenchmark(String name, GameBoard theBoard) {
+			super(name);
+			this.theBoard = theBoard;
+		}
+
+
+
+		@Override
+		public void setUp() {
+			theBoard.spawnPiece();
+		}
+
+
+
+		@Override
+		public long run(int ops) {
+			long spawned = 0;
+			for (int i = 0; i < ops; ++i) {
+				theBoard.getActivePiece().clearPiece();
+				if (theBoard.spawnPiece())
+					++spawned;
+			}
+			return spawned;
+		}
+	}
+
+
+
+
+	/**
+	 * Drops a line piece into a well to clear four rows, then restores the board from a snapshot. Compare
+	 * with the snapshot restore baseline.
+	 */
+	private static class LineClearBenchmark extends Benchmark {
+		private GameBoard theBoard;
+		private BoardSnapshot snapshot;
+
+
+
+		LineClearBenchmark(String name, GameBoard theBoard) {
+			super(name);
+			this.theBoard = theBoard;
+		}
+
+
+
+		@Override
+		public void setUp() {
+			ActivePiece piece = theBoard.getActivePiece();
+			piece.spawn(PieceType.PIECE_LINE);
+			piece.rotate(false);
+			while (piece.move(MoveType.MOVE_LEFT, 1));
+			snapshot = theBoard.snapshot();
+		}
+
+
+
+		@Override
+		public long run(int ops) {
+			long cleared = 0;
+			for (int i = 0; i < ops; ++i) {
+				theBoard.getActivePiece().dropPiece();
+				cleared += theBoard.clearFullRows(theBoard.getActivePiece().getPoints());
+				theBoard.restore(snapshot);
+			}
+			return cleared;
+		}
+	}
+
+
+
+
+	private static class RestoreBenchmark extends Benchmark {
+		private GameBoard theBoard;
+		private BoardSnapshot snapshot;
+
+
+
+		RestoreBenchmark(String name, GameBoard theBoard) {
+			super(name);
+			this.theBoard = theBoard;
+		}
+
+
+
+		@Override
+		public void setUp() {
+			theBoard.spawnPiece();
+			snapshot = theBoard.snapshot();
+		}
+
+
+
+		@Override
+		public long run(int ops) {
+			for (int i = 0; i < ops; ++i)
+				theBoard.restore(snapshot);
+			return theBoard.getHash();
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import logic.GameBoard.PieceType;
+
+/**
+ * The "7-bag": deals all seven pieces in a random order, then shuffles and deals them again. There are
+ * never more than 12 pieces between two of the same kind.
+ *
+ */
+public class BagGenerator implements PieceGenerator {
+
+	private XorShift random;
+	private byte[] bag;
+	private int position;   //Next piece to deal from the bag
+
+
+
+
+	public BagGenerator(long seed) {
+		random   = new XorShift(seed);
+		bag      = new byte[PieceType.numPieces];
+		for (int i = 0; i < bag.length; ++i)
+			bag[i] = (byte)i;
+		position = bag.length;   //Shuffle on the first call
+	}
+
+
+
+
+	//Fisher-Yates
+	private void shuffle() {
+		for (int i = bag.length - 1; i > 0; --i) {
+			int j    = random.nextInt(i + 1);
+			byte tmp = bag[i];
+			bag[i]   = bag[j];
+			bag[j]   = tmp;
+		}
+		position = 0;
+	}
+
+
+
+
+	@Override
+	public PieceType next() {
+		if (position == bag.length)
+			shuffle();
+		return PieceType.fromInteger(bag[position++]);
+	}
+
+
+
+
+	@Override
+	public PieceGenerator copy() {
+		BagGenerator copy = new BagGenerator(0);
+		copy.copyFrom(this);
+		return copy;
+	}
+
+
+
+
+	@Override
+	public void copyFrom(PieceGenerator other) {
+		BagGenerator bagGenerator = (BagGenerator)other;
+		random.setState(bagGenerator.random.getState());
+		System.arraycopy(bagGenerator.bag, 0, bag, 0, bag.length);
+		position = bagGenerator.position;
+	}
+
+
+
+
+	@Override
+	public void writeState(ByteBuffer buffer) {
+		buffer.putLong(random.getState());
+		buffer.put(bag);
+		buffer.put((byte)position);
+	}
+
+
+
+
+	@Override
+	public void readState(ByteBuffer buffer) throws IOException {
+		random.readState(buffer);
+
+		//The bag has to hold each piece exactly once
+		byte[] savedBag = new byte[bag.length];
+		buffer.get(savedBag);
+		int seen = 0;
+		for (int i = 0; i < savedBag.length; ++i) {
+			if (savedBag[i] < 0 || savedBag[i] >= PieceType.numPieces || (seen & (1 << savedBag[i])) != 0)
+				throw new IOException("Bad bag.");
+			seen |= 1 << savedBag[i];
+		}
+
+		int savedPosition = buffer.get() & 0xFF;
+		if (savedPosition > bag.length)
+			throw new IOException("Bad bag position " + savedPosition + ".");
+		System.arraycopy(savedBag, 0, bag, 0, bag.length);
+		position = savedPosition;
+	}
+
+
+
+
+	@Override
+	public GeneratorType getType() {
+		return GeneratorType.BAG;
+	}
+
+}
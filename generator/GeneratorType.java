@@ -0,0 +1,33 @@
+package generator;
+
+/**
+ * The available piece generators.
+ *
+ */
+public enum GeneratorType {
+	XORSHIFT,   //Every piece independent and equally likely
+	BAG,        //Each run of 7 pieces is a shuffled set of all 7
+	HISTORY;    //Rerolls pieces that came up recently
+
+
+
+	public PieceGenerator create(long seed) {
+		switch (this) {
+		case BAG:
+			return new BagGenerator(seed);
+		case HISTORY:
+			return new HistoryGenerator(seed);
+		default:
+			return new XorShiftGenerator(seed);
+		}
+	}
+
+
+
+	/**
+	 * Gets a generator type from its name (case doesn't matter), e.g. "bag".
+	 */
+	public static GeneratorType fromName(String name) {
+		return valueOf(name.toUpperCase());
+	}
+}
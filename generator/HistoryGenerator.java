@@ -0,0 +1,143 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import logic.GameBoard.PieceType;
+
+/**
+ * Remembers the last few pieces, and rerolls (up to a limit) any piece that's among them. Droughts and
+ * repeats are rare, but unlike the bag the sequence isn't fully predictable.
+ *
+ */
+public class HistoryGenerator implements PieceGenerator {
+
+	private XorShift random;
+	private byte[] history;   //Ring of the last pieces dealt
+	private int oldest;       //Index of the oldest piece in history
+	private int rolls;        //Rolls in all, counting the first, so rolls - 1 rerolls
+
+
+
+
+	/**
+	 * Remembers 4 pieces and rolls up to 6 times: the first roll and up to 5 rerolls (as in TGM2).
+	 */
+	public HistoryGenerator(long seed) {
+		this(seed, 4, 6);
+	}
+
+
+
+
+	/**
+	 * @param historySize - How many of the last pieces to avoid.
+	 * @param rolls - How many times to roll in all, counting the first roll, before accepting a repeat.
+	 */
+	public HistoryGenerator(long seed, int historySize, int rolls) {
+		this.random  = new XorShift(seed);
+		this.history = new byte[historySize];
+		this.rolls   = rolls;
+
+		//Start with a history of S and Z, so the first pieces aren't those (as in TGM)
+		for (int i = 0; i < historySize; ++i)
+			history[i] = (byte)((i & 1) == 0 ? PieceType.PIECE_S.ordinal() : PieceType.PIECE_Z.ordinal());
+	}
+
+
+
+
+	private boolean isInHistory(int piece) {
+		for (int i = 0; i < history.length; ++i) {
+			if (history[i] == piece)
+				return true;
+		}
+		return false;
+	}
+
+
+
+
+	@Override
+	public PieceType next() {
+		//The first roll, then rerolls until rolls have been made in all
+		int piece = random.nextInt(PieceType.numPieces);
+		for (int i = 1; i < rolls && isInHistory(piece); ++i)
+			piece = random.nextInt(PieceType.numPieces);
+
+		if (history.length > 0) {
+			history[oldest] = (byte)piece;
+			oldest = (oldest + 1) % history.length;
+		}
+		return PieceType.fromInteger(piece);
+	}
+
+
+
+
+	@Override
+	public PieceGenerator copy() {
+		HistoryGenerator copy = new HistoryGenerator(0, history.length, rolls);
+		copy.copyFrom(this);
+		return copy;
+	}
+
+
+
+
+	@Override
+	public void copyFrom(PieceGenerator other) {
+		HistoryGenerator historyGenerator = (HistoryGenerator)other;
+		if (history.length != historyGenerator.history.length)
+			history = new byte[historyGenerator.history.length];
+		random.setState(historyGenerator.random.getState());
+		System.arraycopy(historyGenerator.history, 0, history, 0, history.length);
+		oldest = historyGenerator.oldest;
+		rolls  = historyGenerator.rolls;
+	}
+
+
+
+
+	@Override
+	public void writeState(ByteBuffer buffer) {
+		buffer.putLong(random.getState());
+		buffer.put((byte)history.length);
+		buffer.put(history);
+		buffer.put((byte)oldest);
+		buffer.put((byte)rolls);
+	}
+
+
+
+
+	@Override
+	public void readState(ByteBuffer buffer) throws IOException {
+		random.readState(buffer);
+
+		int historySize    = buffer.get() & 0xFF;
+		byte[] savedHistory = new byte[historySize];
+		buffer.get(savedHistory);
+		for (int i = 0; i < historySize; ++i) {
+			if (savedHistory[i] < 0 || savedHistory[i] >= PieceType.numPieces)
+				throw new IOException("Bad piece " + savedHistory[i] + " in the history.");
+		}
+
+		int savedOldest = buffer.get() & 0xFF;
+		if (savedOldest >= Math.max(historySize, 1))
+			throw new IOException("Bad history position " + savedOldest + ".");
+
+		history = savedHistory;
+		oldest  = savedOldest;
+		rolls   = buffer.get() & 0xFF;
+	}
+
+
+
+
+	@Override
+	public GeneratorType getType() {
+		return GeneratorType.HISTORY;
+	}
+
+}
@@ -0,0 +1,56 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import logic.GameBoard.PieceType;
+
+/**
+ * Source of the sequence of pieces a game spawns. Implementations are seeded, so the same seed always
+ * gives the same sequence.
+ *
+ */
+public interface PieceGenerator {
+
+	/**
+	 * Produces the next piece in the sequence.
+	 */
+	public PieceType next();
+
+
+
+	/**
+	 * Gets which kind of generator this is, so a game can be recreated from its type and seed.
+	 */
+	public GeneratorType getType();
+
+
+
+	/**
+	 * Creates an independent generator in exactly the same state, i.e., one that will produce the same
+	 * pieces from here on.
+	 */
+	public PieceGenerator copy();
+
+
+
+	/**
+	 * Puts this generator in the same state as another one of the same class, without allocating.
+	 */
+	public void copyFrom(PieceGenerator other);
+
+
+
+	/**
+	 * Writes the generator's state (not its type) to a buffer.
+	 */
+	public void writeState(ByteBuffer buffer);
+
+
+
+	/**
+	 * Reads a state written by writeState() on a generator of the same type.
+	 * @throws IOException - If the state is corrupt.
+	 */
+	public void readState(ByteBuffer buffer) throws IOException;
+}
@@ -0,0 +1,173 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import logic.GameBoard.PieceType;
+
+/**
+ * Keeps the next few pieces from a PieceGenerator generated ahead of time, so they can be previewed (by the
+ * player, or by a search looking ahead). The pieces are kept in a ring buffer of ordinals that's allocated
+ * once.
+ *
+ */
+public class PieceQueue {
+
+	private PieceGenerator generator;
+	private byte[] ring;   //Piece ordinals; capacity is a power of two
+	private int mask;
+	private int head;      //Index of the next piece
+	private int size;      //Number of previews (the queue always holds this many pieces)
+
+
+
+
+	/**
+	 * @param previewSize - How many upcoming pieces can be previewed. With 0 the pieces come straight from
+	 * the generator.
+	 * @throws IllegalArgumentException - If previewSize is negative.
+	 */
+	public PieceQueue(PieceGenerator generator, int previewSize) {
+		if (previewSize < 0)
+			throw new IllegalArgumentException("Can't preview " + previewSize + " pieces.");
+		int capacity = Integer.highestOneBit(Math.max(previewSize, 1) * 2 - 1);
+		this.ring      = new byte[capacity];
+		this.mask      = capacity - 1;
+		this.size      = previewSize;
+		this.generator = generator;
+		fill();
+	}
+
+
+
+
+	private void fill() {
+		head = 0;
+		for (int i = 0; i < size; ++i)
+			ring[i] = (byte)generator.next().ordinal();
+	}
+
+
+
+
+	public PieceGenerator getGenerator() {
+		return generator;
+	}
+
+
+
+
+	/**
+	 * Swaps in a different generator, and refills the previews from it.
+	 */
+	public void setGenerator(PieceGenerator generator) {
+		this.generator = generator;
+		fill();
+	}
+
+
+
+
+	/**
+	 * Makes this queue an exact copy of another one: same upcoming pieces, and a copy of its generator.
+	 * If both generators are the same kind, the state is copied in place and nothing is allocated.
+	 */
+	public void copyFrom(PieceQueue other) {
+		if (ring.length != other.ring.length) {
+			ring = new byte[other.ring.length];
+			mask = other.mask;
+		}
+		System.arraycopy(other.ring, 0, ring, 0, ring.length);
+		head      = other.head;
+		size      = other.size;
+		if (generator.getClass() == other.generator.getClass())
+			generator.copyFrom(other.generator);
+		else
+			generator = other.generator.copy();
+	}
+
+
+
+
+	/**
+	 * Writes the upcoming pieces, and the generator's type and state, to a buffer.
+	 */
+	public void writeState(ByteBuffer buffer) {
+		buffer.put((byte)size);
+		for (int i = 0; i < size; ++i)
+			buffer.put(ring[(head + i) & mask]);
+		buffer.put((byte)generator.getType().ordinal());
+		generator.writeState(buffer);
+	}
+
+
+
+
+	/**
+	 * Reads a queue written by writeState(). If the saved generator is a different type than the current
+	 * one, a new generator of the saved type is created.
+	 * @throws IOException - If the saved generator type isn't one we know, or the state is corrupt.
+	 */
+	public void readState(ByteBuffer buffer) throws IOException {
+		int savedSize = buffer.get() & 0xFF;
+		if (savedSize > ring.length) {
+			int capacity = Integer.highestOneBit(savedSize * 2 - 1);
+			ring = new byte[capacity];
+			mask = capacity - 1;
+		}
+		size = savedSize;
+		head = 0;
+		buffer.get(ring, 0, size);
+		for (int i = 0; i < size; ++i) {
+			if (ring[i] < 0 || ring[i] >= PieceType.numPieces)
+				throw new IOException("Bad upcoming piece " + ring[i] + ".");
+		}
+
+		int typeId = buffer.get() & 0xFF;
+		if (typeId >= GeneratorType.values().length)
+			throw new IOException("Unknown generator type " + typeId + ".");
+		GeneratorType type = GeneratorType.values()[typeId];
+		if (generator.getType() != type)
+			generator = type.create(0);
+		generator.readState(buffer);
+	}
+
+
+
+
+	public int getPreviewSize() {
+		return size;
+	}
+
+
+
+
+	/**
+	 * Peeks at an upcoming piece.
+	 * @param i - 0 for the piece next() will return, 1 for the one after that, etc. Must be less than
+	 * getPreviewSize().
+	 */
+	public PieceType peek(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Only " + size + " pieces can be previewed, not piece " + i + ".");
+		return PieceType.fromInteger(ring[(head + i) & mask]);
+	}
+
+
+
+
+	/**
+	 * Takes the next piece, and generates a new one onto the end of the queue.
+	 */
+	public PieceType next() {
+		//Nothing is queued, and the slot below would be the one read
+		if (size == 0)
+			return generator.next();
+
+		byte piece = ring[head];
+		ring[(head + size) & mask] = (byte)generator.next().ordinal();
+		head = (head + 1) & mask;
+		return PieceType.fromInteger(piece);
+	}
+
+}
@@ -0,0 +1,86 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Small xorshift64 random number generator shared by the piece generators. Unlike java.util.Random it's
+ * cheap, has no synchronization and its whole state is a single long.
+ *
+ */
+public class XorShift {
+
+	private long state;
+
+
+
+
+	/**
+	 * @param seed - Any value. It's scrambled first (with SplitMix64), so similar seeds give unrelated
+	 * sequences, and the state is never 0 (where xorshift gets stuck).
+	 */
+	public XorShift(long seed) {
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		state = z ^ (z >>> 31);
+		if (state == 0)
+			state = 0x9E3779B97F4A7C15L;
+	}
+
+
+
+
+	public long nextLong() {
+		state ^= state << 13;
+		state ^= state >>> 7;
+		state ^= state << 17;
+		return state;
+	}
+
+
+
+
+	/**
+	 * Gets a uniformly distributed int in [0, bound). Values from the top of the range that would make
+	 * some results more likely than others (what a plain % does) are rejected and redrawn.
+	 * @param bound - Must be positive.
+	 */
+	public int nextInt(int bound) {
+		int limit = Integer.MAX_VALUE - (Integer.MAX_VALUE % bound);
+		int r;
+		do {
+			r = (int)(nextLong() >>> 33);   //Top 31 bits
+		} while (r >= limit);
+		return r % bound;
+	}
+
+
+
+
+	public long getState() {
+		return state;
+	}
+
+
+
+
+	public void setState(long state) {
+		this.state = state;
+	}
+
+
+
+
+	/**
+	 * Reads a state saved with getState() (8 bytes).
+	 * @throws IOException - If the state is 0, which no generator ever gets to.
+	 */
+	public void readState(ByteBuffer buffer) throws IOException {
+		long savedState = buffer.getLong();
+		if (savedState == 0)
+			throw new IOException("Bad random state 0.");
+		state = savedState;
+	}
+
+}
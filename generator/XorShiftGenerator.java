@@ -0,0 +1,73 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import logic.GameBoard.PieceType;
+
+/**
+ * Picks every piece independently, with equal odds.
+ *
+ */
+public class XorShiftGenerator implements PieceGenerator {
+
+	private XorShift random;
+
+
+
+
+	public XorShiftGenerator(long seed) {
+		random = new XorShift(seed);
+	}
+
+
+
+
+	@Override
+	public PieceType next() {
+		return PieceType.fromInteger(random.nextInt(PieceType.numPieces));
+	}
+
+
+
+
+	@Override
+	public PieceGenerator copy() {
+		XorShiftGenerator copy = new XorShiftGenerator(0);
+		copy.random.setState(random.getState());
+		return copy;
+	}
+
+
+
+
+	@Override
+	public void copyFrom(PieceGenerator other) {
+		random.setState(((XorShiftGenerator)other).random.getState());
+	}
+
+
+
+
+	@Override
+	public void writeState(ByteBuffer buffer) {
+		buffer.putLong(random.getState());
+	}
+
+
+
+
+	@Override
+	public void readState(ByteBuffer buffer) throws IOException {
+		random.readState(buffer);
+	}
+
+
+
+
+	@Override
+	public GeneratorType getType() {
+		return GeneratorType.XORSHIFT;
+	}
+
+}
@@ -0,0 +1,12 @@
+package headless;
+
+import logic.GameBoard;
+
+/**
+ * A Driver plays the game in place of a human. Each time a piece spawns, the driver moves and rotates the
+ * board's active piece wherever it wants; the piece is then dropped and locked by the HeadlessGame.
+ *
+ */
+public interface Driver {
+	public void placePiece(GameBoard theBoard);
+}
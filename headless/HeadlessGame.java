@@ -0,0 +1,169 @@
+package headless;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import logic.GameBoard;
+import metrics.Metrics;
+import pieces.ActivePiece;
+import replay.ReplayRecorder;
+import savestate.SaveStateFormat;
+import savestate.SaveStateReader;
+import savestate.SaveStateWriter;
+
+/**
+ * HeadlessGame runs the game rules (spawning, dropping, locking and clearing rows) as fast as the CPU
+ * allows, with a Driver standing in for the player. Nothing here touches Slick or LWJGL, so it runs on
+ * machines without a display.
+ *
+ */
+public class HeadlessGame {
+
+	private GameBoard theBoard;
+	private Driver driver;
+	private int piecesPlaced = 0;
+	private int linesCleared = 0;
+	private boolean gameOver = false;
+	private boolean started  = false;
+	private ReplayRecorder recorder = null;   //Optional
+
+
+
+
+	public HeadlessGame(GameBoard theBoard, Driver driver) {
+		this.theBoard = theBoard;
+		this.driver   = driver;
+	}
+
+
+
+
+	/**
+	 * Records the game as it's played. The recorder isn't closed by the game.
+	 */
+	public void setRecorder(ReplayRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+
+
+
+	private boolean spawnPiece() {
+		if (recorder != null)
+			recorder.recordSpawn();
+		return theBoard.spawnPiece();
+	}
+
+
+
+
+	/**
+	 * Plays a single piece: lets the driver position it, drops it, clears any full rows and spawns the
+	 * next piece.
+	 * @return Returns false if the game is over, and true otherwise.
+	 */
+	public boolean step() {
+		if (recorder != null)
+			recorder.tick();
+
+		if (!started) {
+			started = true;
+			if (!spawnPiece())
+				gameOver = true;
+		}
+
+		if (gameOver)
+			return false;
+
+		ActivePiece activePiece = theBoard.getActivePiece();
+		driver.placePiece(theBoard);
+		if (recorder != null) {
+			recorder.recordPlacement(activePiece.getRotation(), activePiece.getOriginRow(), activePiece.getOriginCol());
+			recorder.recordDrop();
+		}
+		activePiece.dropPiece();
+		if (recorder != null)
+			recorder.recordLock();
+		int cleared = theBoard.clearFullRows(activePiece.getPoints());
+		linesCleared += cleared;
+		++piecesPlaced;
+		Metrics.piecesLocked.increment();
+		Metrics.linesCleared.add(cleared);
+
+		if (!spawnPiece())
+			gameOver = true;
+
+		return !gameOver;
+	}
+
+
+
+
+	/**
+	 * Saves the game (board, pieces and counters) to a buffer.
+	 * @return Returns the number of bytes written.
+	 */
+	public int saveState(ByteBuffer buffer) {
+		int flags = (gameOver ? SaveStateFormat.FLAG_GAME_OVER : 0) | (started ? SaveStateFormat.FLAG_STARTED : 0);
+
+		//There's no gravity here: each step drops its piece straight down and spawns the next, so between
+		//steps the active piece has always just spawned, and its gravity timer (which restarts on every
+		//spawn, see GameSimulation) is at 0.
+		long gravityTime = 0;
+		return SaveStateWriter.write(buffer, theBoard, flags, gravityTime, piecesPlaced, linesCleared);
+	}
+
+
+
+
+	/**
+	 * Replaces the game with one saved by saveState().
+	 */
+	public void loadState(ByteBuffer buffer) throws IOException {
+		SaveStateReader reader = new SaveStateReader(buffer);
+		reader.restoreBoard(theBoard);
+		gameOver     = reader.hasFlag(SaveStateFormat.FLAG_GAME_OVER);
+		started      = reader.hasFlag(SaveStateFormat.FLAG_STARTED);
+		piecesPlaced = reader.getPiecesPlaced();
+		linesCleared = reader.getLinesCleared();
+	}
+
+
+
+
+	/**
+	 * Plays until the game is over or maxPieces pieces have been placed.
+	 */
+	public void run(int maxPieces) {
+		while (piecesPlaced < maxPieces && step());
+	}
+
+
+
+
+	public GameBoard getBoard() {
+		return theBoard;
+	}
+
+
+
+
+	public int getPiecesPlaced() {
+		return piecesPlaced;
+	}
+
+
+
+
+	public int getLinesCleared() {
+		return linesCleared;
+	}
+
+
+
+
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+}
@@ -0,0 +1,43 @@
+package headless;
+
+import java.util.Random;
+
+import logic.GameBoard;
+import pieces.ActivePiece;
+import pieces.GameBoardSquare.MoveType;
+
+/**
+ * Driver that rotates the active piece a random number of times and shifts it a random distance left or
+ * right. Not a good player, but it exercises the rules.
+ *
+ */
+public class RandomDriver implements Driver {
+
+	private Random RNG;
+
+
+
+
+	public RandomDriver(long seed) {
+		RNG = new Random(seed);
+	}
+
+
+
+
+	@Override
+	public void placePiece(GameBoard theBoard) {
+		ActivePiece piece = theBoard.getActivePiece();
+
+		int rotations = RNG.nextInt(4);
+		for (int i = 0; i < rotations; ++i)
+			piece.rotate(false);
+
+		int shift = RNG.nextInt(theBoard.getCols()) - theBoard.getCols() / 2;
+		if (shift < 0)
+			piece.move(MoveType.MOVE_LEFT, -shift);
+		else if (shift > 0)
+			piece.move(MoveType.MOVE_RIGHT, shift);
+	}
+
+}
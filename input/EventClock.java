@@ -0,0 +1,45 @@
+package input;
+
+/**
+ * Maps event timestamps from the input library's own time base onto the game clock.
+ *
+ * The two clocks tick at the same rate but start at different points, so the only unknown is the offset
+ * between them. Every event is reported after it happened, so now - eventTime is the true offset plus
+ * however long the event waited to be read. The smallest difference seen so far is the best estimate of
+ * the offset, and it gets better as more events come in.
+ *
+ */
+public class EventClock {
+
+	private long offset = Long.MAX_VALUE;   //Game clock time minus event time, at best
+
+
+
+
+	/**
+	 * Gets when an event happened, in game clock time (nanoseconds; see timer.Clock).
+	 * @param eventTime - The event's timestamp in the input library's time base, or 0 if it has none.
+	 * @param now - The game clock's time now.
+	 * @param earliest - The earliest the event can have happened, e.g. when input was last read. The
+	 * result is never earlier than this, or later than now.
+	 */
+	public long toGameTime(long eventTime, long now, long earliest) {
+		if (eventTime == 0)
+			return now;
+
+		offset    = Math.min(offset, now - eventTime);
+		long time = eventTime + offset;
+		return Math.max(Math.min(time, now), Math.min(earliest, now));
+	}
+
+
+
+
+	/**
+	 * Forgets the offset, e.g. after the game clock is replaced.
+	 */
+	public void reset() {
+		offset = Long.MAX_VALUE;
+	}
+
+}
@@ -0,0 +1,24 @@
+package input;
+
+/**
+ * The things a player can do. The keyboard (or anything else) is mapped onto these.
+ *
+ */
+public enum InputAction {
+	MOVE_LEFT,      //Auto-repeats (see InputController)
+	MOVE_RIGHT,     //Auto-repeats
+	SOFT_DROP,      //Auto-repeats
+	HARD_DROP,
+	ROTATE_LEFT,
+	ROTATE_RIGHT;
+
+
+
+	private static final InputAction[] values = values();
+
+
+
+	static InputAction fromOrdinal(int ordinal) {
+		return values[ordinal];
+	}
+}
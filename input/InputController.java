@@ -0,0 +1,220 @@
+package input;
+
+import tetrisgame.GameSimulation;
+
+/**
+ * Turns queued input events into GameSimulation actions, in the order and at the times they happened.
+ *
+ * Holding left or right moves the piece once, then, after the delayed auto-shift (DAS) delay, again every
+ * auto-repeat rate (ARR) interval. Holding down soft drops once, then again every soft drop interval.
+ * The repeats are worked out from the press's own timestamp rather than counted in frames or ticks, so a
+ * key held for exactly the DAS delay starts repeating exactly then, however the frames happen to fall. If
+ * both directions are held, the one pressed last wins, and releasing it hands over to the other one (which
+ * starts its DAS delay over).
+ *
+ * Like the queue, this isn't thread safe.
+ *
+ */
+public class InputController {
+
+	public static final long defaultDasNanos      = 167000000L;   //About 10 frames at 60Hz
+	public static final long defaultArrNanos      = 33000000L;    //About 2 frames at 60Hz
+	public static final long defaultSoftDropNanos = 33000000L;
+
+	private InputQueue queue;
+	private boolean[] held;
+	private long dasNanos      = defaultDasNanos;
+	private long arrNanos      = defaultArrNanos;   //0 means "straight to the wall"
+	private long softDropNanos = defaultSoftDropNanos;
+
+	//Auto-shift state
+	private int shiftDirection;     //-1 for left, 1 for right, 0 for neither
+	private long shiftStart;        //When the current direction was pressed
+	private long shiftsDone;        //Repeats applied since then
+	private int slidPiece;          //With an ARR of 0, the piece that was last slid to the wall
+
+	//Soft drop repeat state
+	private boolean softDropping;
+	private long softDropStart;
+	private long softDropsDone;
+
+
+
+
+	public InputController() {
+		queue = new InputQueue();
+		held  = new boolean[InputAction.values().length];
+	}
+
+
+
+
+	/**
+	 * Sets the auto-repeat timing.
+	 * @param dasNanos - How long left or right has to be held before it repeats.
+	 * @param arrNanos - Time between repeats once they start. 0 moves the piece as far as it goes at once.
+	 * @param softDropNanos - Time between soft drops while down is held.
+	 */
+	public void setRepeatRates(long dasNanos, long arrNanos, long softDropNanos) {
+		this.dasNanos      = Math.max(dasNanos, 0);
+		this.arrNanos      = Math.max(arrNanos, 0);
+		this.softDropNanos = Math.max(softDropNanos, 1);
+	}
+
+
+
+
+	/**
+	 * Queues a press. Presses of an action that's already held (e.g. the OS's key repeat) are ignored.
+	 * @param time - When it happened. Game clock time, in nanoseconds; see timer.Clock.
+	 */
+	public void press(long time, InputAction action) {
+		queue.add(time, action, true);
+	}
+
+
+
+
+	public void release(long time, InputAction action) {
+		queue.add(time, action, false);
+	}
+
+
+
+
+	public boolean isHeld(InputAction action) {
+		return held[action.ordinal()];
+	}
+
+
+
+
+	/**
+	 * Applies every event up to a given time, in order, along with any auto-repeats that came due in
+	 * between. Events after the time stay queued.
+	 * @param simulation - The game to act on.
+	 * @param time - Apply everything up to this time, e.g. the end of the tick that's about to run. Game clock
+	 * time, in nanoseconds; see timer.Clock.
+	 */
+	public void update(GameSimulation simulation, long time) {
+		while (!queue.isEmpty() && queue.peekTime() <= time) {
+			long eventTime = queue.peekTime();
+			applyRepeats(simulation, eventTime);
+			applyEvent(simulation, eventTime, queue.peekAction(), queue.peekIsPress());
+			queue.remove();
+		}
+		applyRepeats(simulation, time);
+	}
+
+
+
+
+	/**
+	 * Forgets every queued event and held key.
+	 */
+	public void clear() {
+		queue.clear();
+		for (int i = 0; i < held.length; ++i)
+			held[i] = false;
+		shiftDirection = 0;
+		softDropping   = false;
+	}
+
+
+
+
+	private void applyEvent(GameSimulation simulation, long time, InputAction action, boolean isPress) {
+		int i = action.ordinal();
+		if (isPress == held[i])
+			return;
+		held[i] = isPress;
+
+		switch (action) {
+		case MOVE_LEFT:
+		case MOVE_RIGHT:
+			int direction = action == InputAction.MOVE_LEFT ? -1 : 1;
+			if (isPress) {
+				startShift(direction, time);
+				shift(simulation, direction);
+			}
+
+			//Hand over to the other direction if it's still held
+			else if (shiftDirection == direction) {
+				if (held[direction < 0 ? InputAction.MOVE_RIGHT.ordinal() : InputAction.MOVE_LEFT.ordinal()])
+					startShift(-direction, time);
+				else
+					shiftDirection = 0;
+			}
+			break;
+
+		case SOFT_DROP:
+			softDropping = isPress;
+			if (isPress) {
+				softDropStart = time;
+				softDropsDone = 0;
+				simulation.softDrop();
+			}
+			break;
+
+		case HARD_DROP:
+			if (isPress)
+				simulation.hardDrop();
+			break;
+
+		case ROTATE_LEFT:
+		case ROTATE_RIGHT:
+			if (isPress)
+				simulation.rotate(action == InputAction.ROTATE_LEFT);
+			break;
+		}
+	}
+
+
+
+
+	private void startShift(int direction, long time) {
+		shiftDirection = direction;
+		shiftStart     = time;
+		shiftsDone     = 0;
+	}
+
+
+
+
+	private boolean shift(GameSimulation simulation, int direction) {
+		return direction < 0 ? simulation.moveLeft() : simulation.moveRight();
+	}
+
+
+
+
+	/**
+	 * Applies the auto-repeats that came due by the given time.
+	 */
+	private void applyRepeats(GameSimulation simulation, long time) {
+		if (shiftDirection != 0 && time - shiftStart >= dasNanos) {
+
+			//ARR 0: slide each piece to the wall, once DAS is charged
+			if (arrNanos == 0) {
+				if (shiftsDone == 0 || slidPiece != simulation.getPiecesSpawned()) {
+					while (shift(simulation, shiftDirection))
+						;
+					shiftsDone = 1;
+					slidPiece  = simulation.getPiecesSpawned();
+				}
+			}
+			else {
+				long due = (time - shiftStart - dasNanos) / arrNanos + 1;
+				for (; shiftsDone < due; ++shiftsDone)
+					shift(simulation, shiftDirection);
+			}
+		}
+
+		if (softDropping) {
+			long due = (time - softDropStart) / softDropNanos;
+			for (; softDropsDone < due; ++softDropsDone)
+				simulation.softDrop();
+		}
+	}
+
+}
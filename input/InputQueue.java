@@ -0,0 +1,137 @@
+package input;
+
+/**
+ * A first-in first-out queue of timestamped presses and releases. Events are kept in parallel arrays
+ * used as a ring buffer, so queueing doesn't allocate; if the queue fills up (e.g. the game stalled for a
+ * long time), it grows instead of dropping input.
+ *
+ * The queue isn't thread safe. Slick delivers key events on the game thread, right before update(). The
+ * events are stamped with when they happened (see EventClock), not when they were delivered.
+ *
+ */
+public class InputQueue {
+
+	private long[] times;       //Game clock time of each event
+	private byte[] actions;     //InputAction ordinals
+	private boolean[] pressed;  //True for a press, false for a release
+	private int mask;           //Capacity is a power of two
+	private int head;           //Index of the oldest event
+	private int size;
+
+
+
+
+	public InputQueue() {
+		this(64);
+	}
+
+
+
+
+	public InputQueue(int capacity) {
+		capacity = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+		times    = new long[capacity];
+		actions  = new byte[capacity];
+		pressed  = new boolean[capacity];
+		mask     = capacity - 1;
+	}
+
+
+
+
+	/**
+	 * Adds an event to the back of the queue. Events should be added in time order.
+	 * @param time - When it happened. Game clock time, in nanoseconds; see timer.Clock.
+	 * @param action - What was pressed or released.
+	 * @param isPress - True for a press, false for a release.
+	 */
+	public void add(long time, InputAction action, boolean isPress) {
+		if (size == times.length)
+			grow();
+
+		int i = (head + size) & mask;
+		times[i]   = time;
+		actions[i] = (byte)action.ordinal();
+		pressed[i] = isPress;
+		++size;
+	}
+
+
+
+
+	private void grow() {
+		int capacity = times.length * 2;
+		long[] newTimes       = new long[capacity];
+		byte[] newActions     = new byte[capacity];
+		boolean[] newPressed  = new boolean[capacity];
+		for (int i = 0; i < size; ++i) {
+			int j = (head + i) & mask;
+			newTimes[i]   = times[j];
+			newActions[i] = actions[j];
+			newPressed[i] = pressed[j];
+		}
+		times   = newTimes;
+		actions = newActions;
+		pressed = newPressed;
+		mask    = capacity - 1;
+		head    = 0;
+	}
+
+
+
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+
+
+
+	public int size() {
+		return size;
+	}
+
+
+
+
+	/**
+	 * Gets the time of the oldest event. The queue mustn't be empty.
+	 */
+	public long peekTime() {
+		return times[head];
+	}
+
+
+
+
+	public InputAction peekAction() {
+		return InputAction.fromOrdinal(actions[head]);
+	}
+
+
+
+
+	public boolean peekIsPress() {
+		return pressed[head];
+	}
+
+
+
+
+	/**
+	 * Removes the oldest event.
+	 */
+	public void remove() {
+		head = (head + 1) & mask;
+		--size;
+	}
+
+
+
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+}
@@ -0,0 +1,398 @@
+package logic;
+
+import java.nio.ByteBuffer;
+
+/**
+ * BitBoard is the primitive storage behind the GameBoard. Occupancy is kept as one int bitmask per row
+ * (bit j of row i is set if the square at (i,j) is set), and colors are kept in a separate byte plane
+ * indexed by row * cols + col. A color index of 0 means "no color"; see PieceType.getColorIndex().
+ *
+ * The number of set squares in each row and the height of each column are kept up to date as squares are
+ * set and cleared, so they can be read in constant time.
+ *
+ * The board also keeps a Zobrist hash of its occupancy: every square has a fixed random key, and the hash
+ * is the XOR of the keys of all set squares. Setting or clearing a square XORs its key in or out, so the
+ * hash is always current and two boards with the same squares set have the same hash. Colors aren't part
+ * of the hash.
+ *
+ * This class does no bounds checking of its own. The GameBoard is responsible for that.
+ */
+public class BitBoard {
+
+	public static final int MAX_COLS = 32;    //One int per row
+	public static final int MAX_ROWS = 127;   //Row counts and column heights are bytes
+
+	private int rows;
+	private int cols;
+	private int fullRowMask;   //Mask with the lowest cols bits set, i.e., a completely filled row
+
+	private int[] rowMasks;
+	private byte[] colors;
+	private byte[] rowCounts;      //Number of set squares in each row
+	private byte[] columnHeights;  //Distance from the bottom of the board to the top set square of each column
+	private long hash;             //Zobrist hash of the occupancy
+
+
+
+
+	public BitBoard(int rows, int cols) {
+		if (cols > MAX_COLS)
+			throw new IllegalArgumentException("A BitBoard can't have more than " + MAX_COLS + " columns.");
+		if (rows > MAX_ROWS)
+			throw new IllegalArgumentException("A BitBoard can't have more than " + MAX_ROWS + " rows.");
+
+		this.rows   = rows;
+		this.cols   = cols;
+		fullRowMask = (cols == MAX_COLS) ? -1 : (1 << cols) - 1;
+		rowMasks    = new int[rows];
+		colors      = new byte[rows * cols];
+		rowCounts     = new byte[rows];
+		columnHeights = new byte[cols];
+	}
+
+
+
+
+	public int getRows() {
+		return rows;
+	}
+
+
+
+
+	public int getCols() {
+		return cols;
+	}
+
+
+
+
+	public int getFullRowMask() {
+		return fullRowMask;
+	}
+
+
+
+
+	public boolean isSet(int row, int col) {
+		return (rowMasks[row] & (1 << col)) != 0;
+	}
+
+
+
+
+	/**
+	 * Returns the occupancy of an entire row as a bitmask. Bit j is set if column j is set.
+	 */
+	public int getRowMask(int row) {
+		return rowMasks[row];
+	}
+
+
+
+
+	public boolean isRowFull(int row) {
+		return rowCounts[row] == cols;
+	}
+
+
+
+
+	public int getRowFillCount(int row) {
+		return rowCounts[row];
+	}
+
+
+
+
+	/**
+	 * Gets the height of a column, i.e., the number of rows from the bottom of the board up to and
+	 * including the column's top set square. Empty columns have a height of 0.
+	 */
+	public int getColumnHeight(int col) {
+		return columnHeights[col];
+	}
+
+
+
+
+	public boolean isRowEmpty(int row) {
+		return rowMasks[row] == 0;
+	}
+
+
+
+
+	/**
+	 * Checks a whole row against a mask of columns in one operation.
+	 * @param row - The row to test.
+	 * @param mask - A bitmask of the columns to test.
+	 * @return Returns true if any of the columns in the mask are set in the row.
+	 */
+	public boolean collides(int row, int mask) {
+		return (rowMasks[row] & mask) != 0;
+	}
+
+
+
+
+	/**
+	 * Gets the Zobrist hash of the board's occupancy.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+
+
+
+	/**
+	 * Gets the Zobrist key of a single square. The keys are the same for every board, so hashes can be
+	 * compared between boards (of the same size). The key is computed from the square's position with the
+	 * SplitMix64 finalizer rather than looked up, so there's no table to size.
+	 */
+	public static long getSquareKey(int row, int col) {
+		long z = (row * MAX_COLS + col + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+
+
+
+	/**
+	 * Gets the XOR of the keys of the squares set in a row mask, as if the mask were on the given row.
+	 */
+	private static long getRowKey(int row, int mask) {
+		long key = 0;
+		for (; mask != 0; mask &= mask - 1)
+			key ^= getSquareKey(row, Integer.numberOfTrailingZeros(mask));
+		return key;
+	}
+
+
+
+
+	public byte getColor(int row, int col) {
+		return colors[row * cols + col];
+	}
+
+
+
+
+	/**
+	 * Sets a square and its color.
+	 * @return Returns false if the square was already set (in which case nothing changes), and true
+	 * otherwise.
+	 */
+	public boolean setSquare(int row, int col, byte color) {
+		int bit = 1 << col;
+		if ((rowMasks[row] & bit) != 0)
+			return false;
+
+		rowMasks[row] |= bit;
+		colors[row * cols + col] = color;
+		++rowCounts[row];
+		hash ^= getSquareKey(row, col);
+		if (rows - row > columnHeights[col])
+			columnHeights[col] = (byte)(rows - row);
+		return true;
+	}
+
+
+
+
+	public void clearSquare(int row, int col) {
+		int bit = 1 << col;
+		if ((rowMasks[row] & bit) == 0)
+			return;
+
+		rowMasks[row] &= ~bit;
+		--rowCounts[row];
+		hash ^= getSquareKey(row, col);
+
+		//If we cleared the top of the column, look further down for the new top.
+		if (columnHeights[col] == rows - row) {
+			int i = row + 1;
+			while (i < rows && (rowMasks[i] & bit) == 0)
+				++i;
+			columnHeights[col] = (byte)(rows - i);
+		}
+	}
+
+
+
+
+	public void clearRow(int row) {
+		int mask = rowMasks[row];
+		for (int col = 0; mask != 0; ++col, mask >>>= 1) {
+			if ((mask & 1) != 0)
+				clearSquare(row, col);
+		}
+	}
+
+
+
+
+	/**
+	 * Recomputes every column height from the row masks, top row first. Each row is one word operation,
+	 * and we stop as soon as every column has found its top.
+	 */
+	private void recomputeColumnHeights() {
+		int remaining = fullRowMask;
+		for (int col = 0; col < cols; ++col)
+			columnHeights[col] = 0;
+
+		for (int row = 0; row < rows && remaining != 0; ++row) {
+			int tops = rowMasks[row] & remaining;
+			remaining &= ~tops;
+			for (int col = 0; tops != 0; ++col, tops >>>= 1) {
+				if ((tops & 1) != 0)
+					columnHeights[col] = (byte)(rows - row);
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Removes every full row and shifts the rows above them down to fill the gaps. The compaction is
+	 * done in place, one row mask (and one row of colors) at a time, from the bottom up.
+	 * @return Returns the number of rows that were removed.
+	 */
+	public int clearFullRows() {
+		return clearFullRows(0, rows - 1);
+	}
+
+
+
+
+	/**
+	 * Same as clearFullRows(), but only rows in [topRow, bottomRow] are checked for being full. Used
+	 * after a piece locks, since only the rows it touched can have been filled.
+	 */
+	public int clearFullRows(int topRow, int bottomRow) {
+		topRow    = Math.max(topRow, 0);
+		bottomRow = Math.min(bottomRow, rows - 1);
+
+		//Rows below the bottom-most full row don't move, so start compacting there.
+		while (bottomRow >= topRow && rowCounts[bottomRow] != cols)
+			--bottomRow;
+		if (bottomRow < topRow)
+			return 0;
+
+		int writeRow = bottomRow;
+		for (int readRow = bottomRow; readRow >= 0; --readRow) {
+			if (readRow >= topRow && rowCounts[readRow] == cols) {
+				hash ^= getRowKey(readRow, rowMasks[readRow]);
+				continue;
+			}
+			
+			//A row that moves takes its squares' keys with it
+			if (writeRow != readRow) {
+				hash ^= getRowKey(readRow, rowMasks[readRow]) ^ getRowKey(writeRow, rowMasks[readRow]);
+				rowMasks[writeRow]  = rowMasks[readRow];
+				rowCounts[writeRow] = rowCounts[readRow];
+				System.arraycopy(colors, readRow * cols, colors, writeRow * cols, cols);
+			}
+			--writeRow;
+		}
+		
+		//Everything above the last row written is now empty
+		for (int i = writeRow; i >= 0; --i) {
+			rowMasks[i]  = 0;
+			rowCounts[i] = 0;
+		}
+		
+		recomputeColumnHeights();
+		return writeRow + 1;
+	}
+
+
+
+
+	/**
+	 * Makes this board an exact copy of another board of the same size. Just a few array copies.
+	 */
+	public void copyFrom(BitBoard other) {
+		if (other.rows != rows || other.cols != cols)
+			throw new IllegalArgumentException("Can't copy a " + other.rows + "x" + other.cols + " BitBoard into a " +
+											   rows + "x" + cols + " one.");
+
+		System.arraycopy(other.rowMasks, 0, rowMasks, 0, rows);
+		System.arraycopy(other.rowCounts, 0, rowCounts, 0, rows);
+		System.arraycopy(other.columnHeights, 0, columnHeights, 0, cols);
+		System.arraycopy(other.colors, 0, colors, 0, colors.length);
+		hash = other.hash;
+	}
+
+
+
+
+	/**
+	 * Writes the squares to a buffer: one int mask per row, then the colors of the set squares (in row
+	 * order), packed two to a byte. Row counts, column heights and the hash aren't written, since they can
+	 * be rebuilt from the masks.
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		for (int row = 0; row < rows; ++row)
+			buffer.putInt(rowMasks[row]);
+
+		int packed = 0, numPacked = 0;
+		for (int row = 0; row < rows; ++row) {
+			for (int mask = rowMasks[row]; mask != 0; mask &= mask - 1) {
+				packed |= colors[row * cols + Integer.numberOfTrailingZeros(mask)] << (numPacked << 2);
+				if (++numPacked == 2) {
+					buffer.put((byte)packed);
+					packed = numPacked = 0;
+				}
+			}
+		}
+		if (numPacked != 0)
+			buffer.put((byte)packed);
+	}
+
+
+
+
+	/**
+	 * Reads squares written by writeTo() (by a board of the same size).
+	 */
+	public void readFrom(ByteBuffer buffer) {
+		for (int row = 0; row < rows; ++row) {
+			rowMasks[row]  = buffer.getInt() & fullRowMask;
+			rowCounts[row] = (byte)Integer.bitCount(rowMasks[row]);
+		}
+
+		int packed = 0, numPacked = 2;
+		hash = 0;
+		for (int row = 0; row < rows; ++row) {
+			for (int mask = rowMasks[row]; mask != 0; mask &= mask - 1) {
+				int col = Integer.numberOfTrailingZeros(mask);
+				if (numPacked == 2) {
+					packed    = buffer.get();
+					numPacked = 0;
+				}
+				colors[row * cols + col] = (byte)((packed >>> (numPacked++ << 2)) & 0xF);
+				hash ^= getSquareKey(row, col);
+			}
+		}
+		recomputeColumnHeights();
+	}
+
+
+
+
+	public void clear() {
+		for (int i = 0; i < rows; ++i) {
+			rowMasks[i]  = 0;
+			rowCounts[i] = 0;
+		}
+		for (int i = 0; i < cols; ++i)
+			columnHeights[i] = 0;
+		hash = 0;
+	}
+
+}
@@ -0,0 +1,52 @@
+package logic;
+
+import generator.PieceQueue;
+import pieces.ActivePiece;
+import rotation.RotationSystem;
+
+/**
+ * A saved copy of a GameBoard's whole game state: the squares, the active piece, the upcoming pieces and
+ * the generator's state (see GameBoard.snapshot() and GameBoard.restore()).
+ *
+ * Everything is stored in flat arrays and a handful of fields, so taking or restoring a snapshot is a few
+ * array copies. A snapshot can be reused with GameBoard.snapshot(BoardSnapshot), in which case nothing is
+ * allocated.
+ *
+ */
+public class BoardSnapshot {
+
+	BitBoard squares;
+	ActivePiece activePiece;
+	PieceQueue pieceQueue;
+	RotationSystem rotationSystem;
+	int[] clearedRows;
+	int numClearedRows;
+
+
+
+
+	/**
+	 * Creates an empty snapshot sized for the given board. Fill it with GameBoard.snapshot(BoardSnapshot).
+	 */
+	public BoardSnapshot(GameBoard theBoard) {
+		squares     = new BitBoard(theBoard.getRows(), theBoard.getCols());
+		activePiece = new ActivePiece(theBoard);
+		pieceQueue  = new PieceQueue(theBoard.getPieceGenerator().copy(), GameBoard.previewSize);
+		clearedRows = new int[theBoard.getRows()];
+	}
+
+
+
+
+	public int getRows() {
+		return squares.getRows();
+	}
+
+
+
+
+	public int getCols() {
+		return squares.getCols();
+	}
+
+}
@@ -1,18 +1,22 @@
 package logic;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
-import org.newdawn.slick.GameContainer;
-import org.newdawn.slick.Graphics;
-import org.newdawn.slick.Image;
-
-import animation.RowDeleteAnimation;
+import generator.GeneratorType;
+import generator.PieceGenerator;
+import generator.PieceQueue;
 import pieces.ActivePiece;
-import pieces.GameBoardSquare;
+import rotation.ClassicRotationSystem;
+import rotation.RotationSystem;
 import point.*;
 
 /**
  * GameBoard represents the playing area. Used for collision detection, moving pieces, deleting rows, etc.
+ * The GameBoard is pure game logic and doesn't depend on Slick; drawing it (and the row delete animation)
+ * is handled by render.BoardRenderer.
  *
  */
 public class GameBoard {
@@ -20,13 +24,15 @@ public class GameBoard {
 	private int rows;
 	private int cols;
 	
-	private boolean animateRowDeleteFlag = false;
 
-	private GameBoardSquare[][] gameBoard;  //Gameboard in "logic space," i.e., a matrix of booleans
-	private RowDeleteAnimation animateRowDelete;
+	private BitBoard gameBoard;  //Gameboard in "logic space," i.e., one bitmask of booleans per row
 	private ActivePiece activePiece;   
-	private Random RNG = null;
-	private long randomNum;
+	private RotationSystem rotationSystem;
+	private int[] clearedRows;   //Rows removed by the last line clear, top to bottom
+	private int numClearedRows;
+	private PieceQueue pieceQueue;   //Upcoming pieces
+	private int stackVersion;        //Bumped when the locked squares might have changed (see getStackVersion())
+	public static final int previewSize = 5;   //Number of upcoming pieces that can be previewed
 	public enum PieceType {
 
 		PIECE_L,
@@ -58,66 +64,87 @@ public class GameBoard {
 			}
 			return null;
 		}
+		
+		
+		/**
+		 * The compact color index stored on the board for this piece type. 0 is reserved for "no color."
+		 */
+		public byte getColorIndex() {
+			return (byte)(ordinal() + 1);
+		}
+		
+		
+		public static PieceType fromColorIndex(byte colorIndex) {
+			return fromInteger(colorIndex - 1);
+		}
 	}
 
 	
 	
 	public GameBoard(int rows, int cols) {
+		this(rows, cols, new Random().nextLong());
+	}
+	
+	
+	
+	
+	/**
+	 * Creates a board whose piece sequence is fully determined by the seed. Two boards created with the
+	 * same seed spawn the same pieces in the same order.
+	 */
+	public GameBoard(int rows, int cols, long seed) {
+		this(rows, cols, GeneratorType.XORSHIFT.create(seed));
+	}
+	
+	
+	
+	
+	/**
+	 * Creates a board that spawns the pieces the given generator produces.
+	 * @throws IllegalArgumentException - If the board is bigger than BitBoard.MAX_ROWS by BitBoard.MAX_COLS.
+	 */
+	public GameBoard(int rows, int cols, PieceGenerator generator) {
 		
 		this.rows      = Math.abs(rows);
 		this.cols      = Math.abs(cols);
-		gameBoard      = new GameBoardSquare[this.rows][this.cols];
-		
-		//Create each GameBoardSquare on the game board
-		for (int i = 0; i < this.rows; ++i) {
-			for (int j = 0; j < this.cols; ++j)
-				gameBoard[i][j] = new GameBoardSquare();
-		}
+		gameBoard      = new BitBoard(this.rows, this.cols);
+		clearedRows    = new int[this.rows];
+		numClearedRows = 0;
 		
 		activePiece           = new ActivePiece(this);
-		RNG 		          = new Random();
-		randomNum             = RNG.nextLong();
-		
-		//Animation stuff (todo: find a cleaner way to toggle the animation state)
-		animateRowDelete      = new RowDeleteAnimation(this);
-		animateRowDeleteFlag  = false;
+		rotationSystem        = new ClassicRotationSystem();
+		pieceQueue            = new PieceQueue(generator, previewSize);
 		
 	}
 	
 	
 	
+	
 	/**
-	 * Checks the board for full rows and sets the animateRowDelete flag to true if there are. This
-	 * method should be called each time a piece lands.
+	 * This method checks to see whether there are any full rows on the board that need to be
+	 * cleared. It checks from the bottom up for efficiency, and returns as soon as it finds a full
+	 * row (i.e., it does not check the entire board).
+	 * @return Returns true if there are rows to be deleted, and false otherwise.
 	 */
-	public void update() {
-		if (animateRowDeleteFlag == false)
-			animateRowDeleteFlag = checkFullRows();
+	public boolean checkFullRows() {
+		for (int i = this.rows - 1; i >= 0; --i) {
+			if (gameBoard.isRowFull(i))
+				return true;
+		}
+		return false;
 	}
 	
 	
 	
 	
 	/**
-	 * This method checks to see whether there are any full rows on the board that need to be
-	 * cleared. It checks from the bottom up for efficiency, and returns as soon as it finds a full
-	 * row (i.e., it does not check the entire board).
-	 * @return Returns true if there are rows to be deleted, and false otherwise.
+	 * Same as checkFullRows(), but only looks at the rows a piece touches. Since only those rows can have
+	 * been filled when the piece lands, this is all that needs checking after a piece locks.
+	 * @param piece - The four subsquares of the piece that just landed.
 	 */
-	public boolean checkFullRows() {
-		boolean fullRow;
-		int maxRowIndex = this.rows - 1;
-		int maxColIndex = this.cols - 1;
-		
-		for (int i = maxRowIndex; i >= 0; --i) {
-			fullRow = true;
-			for (int j = maxColIndex; j >= 0; --j) {
-				if (!isSet(i,j)) {
-					fullRow = false;
-					break;
-				}
-			}
-			if (fullRow)
+	public boolean checkFullRows(Point[] piece) {
+		for (int i = 0; i < 4; ++i) {
+			if (isRowFull(piece[i].x))
 				return true;
 		}
 		return false;
@@ -126,6 +153,52 @@ public class GameBoard {
 	
 	
 	
+	/**
+	 * Gets the number of set squares in a row. Maintained as squares are set and cleared, so it's O(1).
+	 * Note that this includes the active piece's squares while it's on the board.
+	 */
+	public int getRowFillCount(int row) {
+		return (row < 0 || row >= this.rows) ? 0 : gameBoard.getRowFillCount(row);
+	}
+	
+	
+	
+	
+	/**
+	 * Gets the height of a column (0 if it's empty, this.rows if its top row is set). Maintained as squares
+	 * are set and cleared, so it's O(1). Like getRowFillCount(), this includes the active piece.
+	 */
+	public int getColumnHeight(int col) {
+		return (col < 0 || col >= this.cols) ? 0 : gameBoard.getColumnHeight(col);
+	}
+	
+	
+	
+	
+	public boolean isRowFull(int row) {
+		return (row < 0 || row >= this.rows) ? false : gameBoard.isRowFull(row);
+	}
+	
+	
+	
+	
+	/**
+	 * Gets the occupancy of a whole row as a bitmask (bit j is set if column j is set).
+	 */
+	public int getRowMask(int row) {
+		return (row < 0 || row >= this.rows) ? 0 : gameBoard.getRowMask(row);
+	}
+	
+	
+	
+	
+	public boolean isRowEmpty(int row) {
+		return (row < 0 || row >= this.rows) ? true : gameBoard.isRowEmpty(row);
+	}
+	
+	
+	
+	
 	public int getRows() {
 		return this.rows;
 	}
@@ -136,7 +209,32 @@ public class GameBoard {
 	public int getCols() {
 		return this.cols;
 	}
-
+	
+	
+	
+	
+	/**
+	 * Gets the Zobrist hash of the squares that are set (including the active piece's, if it's on the
+	 * board). Boards with the same squares set have the same hash, no matter how they got there.
+	 */
+	public long getHash() {
+		return gameBoard.getHash();
+	}
+	
+	
+	
+	
+	/**
+	 * Gets a number that changes whenever the locked squares (everything but the active piece) might have
+	 * changed: when a piece locks, rows are cleared, a piece spawns, or the board is restored or read. Moving
+	 * or rotating the active piece doesn't change it. The renderer uses it to know when to redraw its cached
+	 * copy of the stack.
+	 */
+	public int getStackVersion() {
+		return stackVersion;
+	}
+	
+	
 	
 	
 	/**
@@ -147,9 +245,11 @@ public class GameBoard {
 	 * Does not count a subsquare being out of bounds as a collision.
 	 */
 	public boolean checkPieceCollision(Point[] piece) {
+		Point p;
 		for (int i = 0; i < 4; ++i) {
-				if (isSet(piece[i]))
-					return true;
+			p = piece[i];
+			if (inBounds(p.x, p.y) && gameBoard.isSet(p.x, p.y))
+				return true;
 		}
 		return false;
 	}
@@ -242,13 +342,6 @@ public class GameBoard {
 	
 	
 	
-	public boolean isAnimationPlaying() {
-		return animateRowDeleteFlag;
-	}
-	
-	
-	
-	
 	public boolean isPieceInBoundsLeftRightBottom(Point[] p) {
 		for (int i = 0; i < 4; ++i) {
 			if (!inBoundsLeftRightBottom(p[i].x, p[i].y))
@@ -261,14 +354,14 @@ public class GameBoard {
 	
 	
 	public boolean isSet(int row, int col) {
-		return !inBounds(row,col) ? false : gameBoard[row][col].isSet();
+		return !inBounds(row,col) ? false : gameBoard.isSet(row, col);
 	}
 	
 	
 	
 	
 	public boolean isSet(Point p) {
-		return !inBounds(p.x, p.y) ? false : gameBoard[p.x][p.y].isSet();
+		return !inBounds(p.x, p.y) ? false : gameBoard.isSet(p.x, p.y);
 	}
 	
 	
@@ -281,14 +374,35 @@ public class GameBoard {
 	
 	
 	
-	public GameBoardSquare getSquare(int row, int col) {
-		return inBounds(row,col) ? gameBoard[row][col] : null;
+	public RotationSystem getRotationSystem() {
+		return rotationSystem;
 	}
 	
 	
 	
-	public GameBoardSquare getSquare(Point p) {
-		return inBounds(p.x, p.y) ? gameBoard[p.x][p.y] : null; 
+	
+	/**
+	 * Changes how pieces rotate and where they spawn. Takes effect from the next spawned piece.
+	 */
+	public void setRotationSystem(RotationSystem rotationSystem) {
+		this.rotationSystem = rotationSystem;
+	}
+	
+	
+	
+	
+	/**
+	 * Gets the color index of a square (see PieceType.getColorIndex()).
+	 * @return Returns 0 if the square is out of bounds. The color of a cleared square is undefined.
+	 */
+	public byte getColor(int row, int col) {
+		return inBounds(row,col) ? gameBoard.getColor(row, col) : 0;
+	}
+	
+	
+	
+	public byte getColor(Point p) {
+		return getColor(p.x, p.y);
 	}
 	
 	
@@ -298,7 +412,7 @@ public class GameBoard {
 		int set;
 		for (int i=0; i<rows; ++i) {
 			for (int j=0; j<cols; ++j) {
-				set       = gameBoard[i][j].isSet() ? 1 : 0;
+				set       = gameBoard.isSet(i, j) ? 1 : 0;
 				System.out.print(set + "  ");
 			}
 			System.out.println();
@@ -310,30 +424,29 @@ public class GameBoard {
 	
 	
 	
-	public void startAnimation() {
-		this.animateRowDeleteFlag = true;
-	}
-	
-	
-	
-	
-	public boolean setSquare(int row, int col, Image color) {
-		return !inBounds(row,col) ? false : gameBoard[row][col].setSquare(color);
+	/**
+	 * Sets the square to the specified color index.
+	 * @return Returns false if the square is out of bounds or already set, and true otherwise. This is
+	 * primarily for the spawnPiece() function; if the GameBoard is full, and we try to spawn a piece
+	 * on top of squares that are already set, then the function returns false and the game is over.
+	 */
+	public boolean setSquare(int row, int col, byte color) {
+		return !inBounds(row,col) ? false : gameBoard.setSquare(row, col, color);
 	}
 	
 	
 	
-	public boolean setSquare(Point p, Image color) {
-		return !inBounds(p.x, p.y) ? false : gameBoard[p.x][p.y].setSquare(color);
+	public boolean setSquare(Point p, byte color) {
+		return setSquare(p.x, p.y, color);
 	}
 	
 	
 	
 	
 	public void clearRow(int row) {
-		for (int col = 0; col < this.cols; ++col) {
-			clearSquare(row, col);
-		}
+		if (row >= 0 && row < this.rows)
+			gameBoard.clearRow(row);
+		++stackVersion;
 	}
 	
 	
@@ -341,7 +454,7 @@ public class GameBoard {
 	
 	public void clearSquare(int row, int col) {
 		if (inBounds(row,col))
-			gameBoard[row][col].clearSquare();
+			gameBoard.clearSquare(row, col);
 	}
 	
 	
@@ -354,87 +467,237 @@ public class GameBoard {
 	
 	
 	
-	public boolean spawnPiece() {
-		int hw = cols/2;  //Half of the board's width.
-		
-		//PieceType type = PieceType.PIECE_LINE;
-		//PieceType type = PieceType.fromInteger(RNG.nextInt(PieceType.numPieces));
-		
-		//Playing around with random numbers. Default random class is spawning too many duplicate pieces.
-		randomNum ^= randomNum << 22;
-		randomNum ^= randomNum >>> 35;
-		randomNum ^= randomNum << 4;
-		if (randomNum < 0)
-			randomNum *= -1;
-		PieceType type = PieceType.fromInteger((int)(randomNum % PieceType.numPieces));
-		
-		//Pieces are specified in logic space. Example of a line:
-		//0 0 0 0 0 0 ....
-		//0 1 1 1 1 0 ....
-		//0 0 0 0 0 0 ....
-		//This logic space is treated as a matrix, such that (0, 0) is at the top left.
-		//The first point for each piece is the point that the piece rotates about.
-		
-		switch(type) {
-		
-		case PIECE_L:
-			Point[] LPiece =      {new Point(1, hw),  new Point(0,hw),
-							       new Point(2, hw),  new Point(2, hw+1)};
-			return activePiece.setPiece(LPiece, type);
-			
-		case PIECE_J:
-			Point[] JPiece =      {new Point(1,hw),   new Point(0,hw),
-							       new Point(2,hw),   new Point(2,hw-1)};
-			return activePiece.setPiece(JPiece, type);
-			
-		case PIECE_S:
-			Point[] SPiece =      {new Point(0,hw-1), new Point(0,hw),
-							       new Point(1,hw-1), new Point(1,hw-2)};
-			return activePiece.setPiece(SPiece, type);
-			
-		case PIECE_Z:
-			Point[] ZPiece =      {new Point(0,hw-1), new Point(0,hw-2),
-							       new Point(1,hw-1), new Point(1,hw)};
-			return activePiece.setPiece(ZPiece, type);
+	/**
+	 * Copies the squares (occupancy and colors) of another board of the same size onto this one. The
+	 * active piece, piece queue and rotation system aren't touched.
+	 */
+	public void copySquaresFrom(GameBoard other) {
+		gameBoard.copyFrom(other.gameBoard);
+		++stackVersion;
+	}
+	
+	
+	
+	
+	/**
+	 * Saves the whole game state (squares, active piece, upcoming pieces and the generator's state) into a
+	 * new snapshot.
+	 */
+	public BoardSnapshot snapshot() {
+		BoardSnapshot snapshot = new BoardSnapshot(this);
+		snapshot(snapshot);
+		return snapshot;
+	}
+	
+	
+	
+	
+	/**
+	 * Saves the whole game state into an existing snapshot of the same size. Nothing is allocated, so
+	 * searches can keep one snapshot per level and reuse them.
+	 */
+	public void snapshot(BoardSnapshot snapshot) {
+		snapshot.squares.copyFrom(gameBoard);
+		snapshot.activePiece.copyFrom(activePiece);
+		snapshot.pieceQueue.copyFrom(pieceQueue);
+		snapshot.rotationSystem = rotationSystem;
+		snapshot.numClearedRows = numClearedRows;
+		System.arraycopy(clearedRows, 0, snapshot.clearedRows, 0, numClearedRows);
+	}
+	
+	
+	
+	
+	/**
+	 * Puts the board back exactly the way it was when the snapshot was taken. The snapshot isn't changed,
+	 * so it can be restored any number of times.
+	 */
+	public void restore(BoardSnapshot snapshot) {
+		gameBoard.copyFrom(snapshot.squares);
+		activePiece.copyFrom(snapshot.activePiece);
+		pieceQueue.copyFrom(snapshot.pieceQueue);
+		rotationSystem = snapshot.rotationSystem;
+		numClearedRows = snapshot.numClearedRows;
+		System.arraycopy(snapshot.clearedRows, 0, clearedRows, 0, numClearedRows);
+		++stackVersion;
+	}
+	
+	
+	
+	
+	/**
+	 * Writes the whole game state (the same things a snapshot holds) to a buffer. The board's size comes
+	 * first, so a mismatched board can be caught when reading. Around 200 bytes for a typical game.
+	 */
+	public void writeState(ByteBuffer buffer) {
+		buffer.put((byte)rows);
+		buffer.put((byte)cols);
+		buffer.put((byte)RotationSystem.getId(rotationSystem));
+		activePiece.writeState(buffer);
+		pieceQueue.writeState(buffer);
+		buffer.put((byte)numClearedRows);
+		for (int i = 0; i < numClearedRows; ++i)
+			buffer.put((byte)clearedRows[i]);
+		gameBoard.writeTo(buffer);
+	}
+	
+	
+	
+	
+	/**
+	 * Reads a game state written by writeState(), replacing this board's. The whole state is read and
+	 * checked before any of it is used, so if it's rejected the board is left as it was.
+	 * @throws IOException - If the state was written by a board of a different size, or is corrupt.
+	 */
+	public void readState(ByteBuffer buffer) throws IOException {
+		BoardSnapshot saved = new BoardSnapshot(this);
+		try {
+			int savedRows = buffer.get() & 0xFF;
+			int savedCols = buffer.get() & 0xFF;
+			if (savedRows != rows || savedCols != cols)
+				throw new IOException("Can't read a " + savedRows + "x" + savedCols + " game into a " +
+									  rows + "x" + cols + " board.");
 			
-		case PIECE_T:
-			Point[] TPiece =      {new Point(1,hw),   new Point(0,hw),
-							       new Point(1,hw-1), new Point(1,hw+1)};
-			return activePiece.setPiece(TPiece, type);
+			int rotationSystemId = buffer.get();
+			if (RotationSystem.getId(rotationSystem) == rotationSystemId)
+				saved.rotationSystem = rotationSystem;
+			else
+				saved.rotationSystem = RotationSystem.fromId(rotationSystemId);
+			saved.activePiece.readState(buffer);
+			saved.pieceQueue.readState(buffer);
 			
-		case PIECE_SQUARE:
-			Point[] SquarePiece = {new Point(0,hw-1), new Point(0,hw),
-								   new Point(1,hw-1), new Point(1,hw)};
-			return activePiece.setPiece(SquarePiece, type);
+			saved.numClearedRows = buffer.get() & 0xFF;
+			if (saved.numClearedRows > rows)
+				throw new IOException("Bad number of cleared rows " + saved.numClearedRows + ".");
+			for (int i = 0; i < saved.numClearedRows; ++i) {
+				saved.clearedRows[i] = buffer.get() & 0xFF;
+				if (saved.clearedRows[i] >= rows)
+					throw new IOException("Bad cleared row " + saved.clearedRows[i] + ".");
+			}
 			
-		case PIECE_LINE:
-			Point[] LinePiece =   {new Point(1,hw),   new Point(0,hw),
-								   new Point(2,hw),   new Point(3,hw)};
-			return activePiece.setPiece(LinePiece, type);
+			saved.squares.readFrom(buffer);
+			for (int row = 0; row < rows; ++row) {
+				for (int col = 0; col < cols; ++col) {
+					int color = saved.squares.getColor(row, col);
+					if (saved.squares.isSet(row, col) && (color < 1 || color > PieceType.numPieces))
+						throw new IOException("Bad color " + color + " at " + row + ", " + col + ".");
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IOException("The game state is cut short.");
 		}
 		
-		return true;
+		restore(saved);
 	}
 	
 	
-
-	public void render(GameContainer container, Graphics g) {
-		
-		
-		
-		//Render board normally (using logic space to render into screen space)
-		
-		if (!isAnimationPlaying()) {
-			for (int i=0; i<rows; ++i) {
-				for (int j=0; j<cols; ++j)
-					gameBoard[i][j].render(g, i, j);
-			}
+	
+	
+	/**
+	 * Logic-only line clear. Removes all full rows and shifts the rows above them down, without any
+	 * animation. The rows that were removed are remembered (see getClearedRow()), so the row delete
+	 * animation can replay the clear afterwards.
+	 * @return Returns the number of rows cleared.
+	 */
+	public int clearFullRows() {
+		return clearFullRows(0, this.rows - 1);
+	}
+	
+	
+	
+	
+	/**
+	 * Same as clearFullRows(), but only the rows the landed piece touches are checked.
+	 * @param piece - The four subsquares of the piece that just landed.
+	 */
+	public int clearFullRows(Point[] piece) {
+		int topRow    = Integer.MAX_VALUE;
+		int bottomRow = Integer.MIN_VALUE;
+		for (int i = 0; i < 4; ++i) {
+			topRow    = Math.min(topRow, piece[i].x);
+			bottomRow = Math.max(bottomRow, piece[i].x);
 		}
+		return clearFullRows(topRow, bottomRow);
+	}
+	
+	
+	
+	
+	private int clearFullRows(int topRow, int bottomRow) {
+		++stackVersion;
+		numClearedRows = 0;
+		for (int row = Math.max(topRow, 0); row <= bottomRow && row < this.rows; ++row) {
+			if (gameBoard.isRowFull(row))
+				clearedRows[numClearedRows++] = row;
+		}
+		
+		if (numClearedRows == 0)
+			return 0;
+		return gameBoard.clearFullRows(topRow, bottomRow);
+	}
+	
+	
+	
+	
+	/**
+	 * Gets the number of rows removed by the last line clear.
+	 */
+	public int getClearedRowCount() {
+		return numClearedRows;
+	}
+	
+	
+	
+	
+	/**
+	 * Gets the index (before the clear) of one of the rows removed by the last line clear.
+	 * @param i - Which cleared row, from 0 (the top-most) to getClearedRowCount() - 1.
+	 */
+	public int getClearedRow(int i) {
+		return clearedRows[i];
+	}
+	
+	
+	
+	
+	public PieceGenerator getPieceGenerator() {
+		return pieceQueue.getGenerator();
+	}
+	
+	
+	
+	
+	/**
+	 * Changes where the pieces come from. The preview is refilled from the new generator.
+	 */
+	public void setPieceGenerator(PieceGenerator generator) {
+		pieceQueue.setGenerator(generator);
+	}
+	
+	
+	
+	
+	/**
+	 * Peeks at an upcoming piece without spawning it.
+	 * @param i - 0 for the piece the next call to spawnPiece() will spawn, 1 for the one after that, etc.,
+	 * up to previewSize - 1.
+	 */
+	public PieceType getPreviewPiece(int i) {
+		return pieceQueue.peek(i);
+	}
+	
+	
+	
+	
+	public boolean spawnPiece() {
 		
-		//If it's time to clear the rows, then render the board specially.
-		else 
-			animateRowDeleteFlag = animateRowDelete.play(g);
+		//PieceType type = PieceType.PIECE_LINE;
+		PieceType type = pieceQueue.next();
+		++stackVersion;
 		
+		//Pieces are specified in logic space, which is treated as a matrix, such that (0, 0) is at the
+		//top left. The shape and spawn position of each piece come from the rotation system.
+		return activePiece.spawn(type);
 	}
 	
 	
@@ -1,23 +1,281 @@
 package main;
 
-import org.newdawn.slick.SlickException;
 import tetrisgame.TetrisGame;
-import org.newdawn.slick.AppGameContainer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import ai.BeamSearchDriver;
+import benchmark.EngineBenchmarks;
+import generator.GeneratorType;
+import headless.Driver;
+import headless.HeadlessGame;
+import headless.RandomDriver;
+import logic.GameBoard;
+import metrics.Metrics;
+import replay.ReplayPlayer;
+import replay.ReplayReader;
+import replay.ReplayRecorder;
+import rotation.ClassicRotationSystem;
+import simulation.BatchSimulator;
+import simulation.DriverFactory;
+import tetrisgame.GameSimulation;
+import tetrisgame.VirtualTimeRunner;
 
 
 public class AppMain {
-	
+
 	public static void main(String[] args) {
-		TetrisGame game = new TetrisGame("Tetris");
 
-		
+		//--ai anywhere on the command line: let the beam search play instead of the random driver (or the keyboard)
+		int ai = indexOf(args, "--ai");
+		useAi  = ai >= 0;
+		if (useAi)
+			args = remove(args, ai, 1);
+
+		//--generator xorshift|bag|history anywhere on the command line: choose how pieces are picked
+		int gen = indexOf(args, "--generator");
+		if (gen >= 0 && gen + 1 < args.length) {
+			generatorType = GeneratorType.fromName(args[gen + 1]);
+			args = remove(args, gen, 2);
+		}
+
+		//--record <path> anywhere on the command line: record replays (to a file, or for --batch, a directory)
+		int rec = indexOf(args, "--record");
+		if (rec >= 0 && rec + 1 < args.length) {
+			recordPath = Paths.get(args[rec + 1]);
+			args = remove(args, rec, 2);
+		}
+
+		//--no-clear-pause anywhere on the command line: keep playing while the row delete animation plays
+		int ncp = indexOf(args, "--no-clear-pause");
+		pauseForRowDeletes = ncp < 0;
+		if (!pauseForRowDeletes)
+			args = remove(args, ncp, 1);
+
+		//--metrics anywhere on the command line: print the metrics after a --headless or --batch run
+		int met = indexOf(args, "--metrics");
+		boolean printMetrics = met >= 0;
+		if (printMetrics)
+			args = remove(args, met, 1);
+
+		//The metrics are always available over JMX
+		Metrics.registerMBeans();
+
+		//--headless [numPieces]: run the rules without a window (no Slick/LWJGL classes are loaded)
+		if (args.length > 0 && args[0].equals("--headless")) {
+			int numPieces = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+			runHeadless(numPieces);
+			if (printMetrics)
+				System.out.print(Metrics.dump());
+			return;
+		}
+
+		//--batch [numGames] [numPieces] [seed]: run many headless games on all cores
+		if (args.length > 0 && args[0].equals("--batch")) {
+			int numGames  = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+			int numPieces = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+			long seed     = args.length > 3 ? Long.parseLong(args[3])    : System.nanoTime();
+			runBatch(numGames, numPieces, seed);
+			if (printMetrics)
+				System.out.print(Metrics.dump());
+			return;
+		}
+
+		//--simulate [numTicks] [seed]: run the fixed-timestep simulation without a window, as fast as it goes
+		if (args.length > 0 && args[0].equals("--simulate")) {
+			long numTicks = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+			long seed     = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+			runSimulation(numTicks, seed);
+			if (printMetrics)
+				System.out.print(Metrics.dump());
+			return;
+		}
+
+		//--replay <file> [piece]: print the board from a recorded game, right after the given piece spawned
+		if (args.length > 1 && args[0].equals("--replay")) {
+			int piece = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+			showReplay(Paths.get(args[1]), piece);
+			return;
+		}
+
+		//--bench [filter]: run the engine microbenchmarks (optionally only those whose names contain filter)
+		if (args.length > 0 && args[0].equals("--bench")) {
+			EngineBenchmarks.createRunner().run(args.length > 1 ? args[1] : null);
+			return;
+		}
+
+		//Keep all Slick references out of this class, or the JVM will try to load them
+		//when it verifies main() (even for headless runs).
+		long seed = System.nanoTime();
+		TetrisGame.launch(useAi ? new BeamSearchDriver(BeamSearchDriver.liveTimeBudget) : null, generatorType.create(seed),
+						  createRecorder(TetrisGame.blockHeight + TetrisGame.numInvisRows, TetrisGame.blockWidth, seed),
+						  pauseForRowDeletes);
+	}
+
+
+
+
+	private static boolean useAi;
+	private static GeneratorType generatorType = GeneratorType.XORSHIFT;
+	private static Path recordPath;
+	private static boolean pauseForRowDeletes = true;
+
+
+
+
+	private static int indexOf(String[] args, String option) {
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals(option))
+				return i;
+		}
+		return -1;
+	}
+
+
+
+
+	private static String[] remove(String[] args, int index, int count) {
+		String[] rest = new String[args.length - count];
+		System.arraycopy(args, 0, rest, 0, index);
+		System.arraycopy(args, index + count, rest, index, args.length - index - count);
+		return rest;
+	}
+
+
+
+
+	/**
+	 * Creates the driver for headless runs. The AI gets no time budget there, so the same seed plays the
+	 * same game however busy the machine is.
+	 */
+	private static Driver createDriver(long seed) {
+		return useAi ? new BeamSearchDriver() : new RandomDriver(seed);
+	}
+
+
+
+
+	/**
+	 * Creates a recorder for --record, or returns null if we aren't recording.
+	 */
+	private static ReplayRecorder createRecorder(int rows, int cols, long seed) {
+		if (recordPath == null)
+			return null;
+
 		try {
-			AppGameContainer app = new AppGameContainer(game, TetrisGame.windowWidth, TetrisGame.windowHeight, false);
-			app.start();
-		} catch (SlickException e) {
+			return new ReplayRecorder(recordPath, rows, cols, generatorType, seed, new ClassicRotationSystem());
+		} catch (IOException e) {
 			e.printStackTrace();
+			return null;
+		}
+	}
+
+
+
+
+	private static void runHeadless(int numPieces) {
+		int rows           = TetrisGame.blockHeight + TetrisGame.numInvisRows;
+		int cols           = TetrisGame.blockWidth;
+		long seed          = System.nanoTime();
+		GameBoard theBoard = new GameBoard(rows, cols, generatorType.create(seed));
+		HeadlessGame game  = new HeadlessGame(theBoard, createDriver(seed));
+		ReplayRecorder recorder = createRecorder(rows, cols, seed);
+		game.setRecorder(recorder);
+
+		long start = System.nanoTime();
+		game.run(numPieces);
+		long end   = System.nanoTime();
+
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			ReplayRecorder.awaitWrites();
 		}
-		
+
+		System.out.println("Pieces placed: " + game.getPiecesPlaced());
+		System.out.println("Lines cleared: " + game.getLinesCleared());
+		System.out.println("Game over: "     + game.isGameOver());
+		System.out.println("Time (ms): "     + (end - start) / 1000000d);
 	}
 
+
+
+
+	/**
+	 * Runs the same tick-based simulation the window uses, with a driver playing, and reports how many
+	 * ticks it managed per second. The game runs on virtual time, one frame per tick, so the same seed
+	 * always plays the same game.
+	 */
+	private static void runSimulation(long numTicks, long seed) {
+		int rows    = TetrisGame.blockHeight + TetrisGame.numInvisRows;
+		int cols    = TetrisGame.blockWidth;
+		VirtualTimeRunner runner  = new VirtualTimeRunner(new GameBoard(rows, cols, generatorType.create(seed)), null,
+														  GameSimulation.tickNanos);
+		GameSimulation simulation = runner.getLoop().getSimulation();
+		ReplayRecorder recorder   = createRecorder(rows, cols, seed);
+		simulation.setAutoplayer(createDriver(seed));
+		simulation.setRecorder(recorder);
+
+		long start = System.nanoTime();
+		runner.run(numTicks);
+		long end   = System.nanoTime();
+
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			ReplayRecorder.awaitWrites();
+		}
+
+		double seconds        = (end - start) / 1000000000d;
+		double virtualSeconds = runner.getVirtualTime() / 1000000000d;
+		System.out.println("Ticks: "              + simulation.getTick());
+		System.out.println("Frames: "             + runner.getFrames());
+		System.out.println("Pieces spawned: "     + simulation.getPiecesSpawned());
+		System.out.println("Game over: "          + simulation.isGameOver());
+		System.out.println("Game time (s): "      + virtualSeconds);
+		System.out.println("Time (ms): "          + seconds * 1000);
+		System.out.println("Ticks per second: "   + (long)(simulation.getTick() / seconds));
+		System.out.println("Speedup: "            + (long)(virtualSeconds / seconds) + "x");
+	}
+
+
+
+
+	private static void showReplay(Path path, int piece) {
+		try {
+			ReplayPlayer player = new ReplayPlayer(new ReplayReader(path));
+			player.seekToPiece(piece);
+			System.out.println("Piece " + player.getPieceNumber() + " of " + player.getPieceCount() +
+							   ", tick " + player.getTick() + " of " + player.getTickCount());
+			player.getBoard().printBoard();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+
+
+	private static void runBatch(int numGames, int numPieces, long seed) {
+		DriverFactory drivers = new DriverFactory() {
+			public Driver createDriver(long driverSeed) {
+				return AppMain.createDriver(driverSeed);
+			}
+		};
+
+		BatchSimulator simulator = new BatchSimulator(TetrisGame.blockHeight + TetrisGame.numInvisRows,
+													  TetrisGame.blockWidth, numPieces, drivers);
+		simulator.setGeneratorType(generatorType);
+		simulator.setReplayDirectory(recordPath);
+		System.out.println("Seed: " + seed);
+		System.out.println(simulator.run(numGames, seed));
+	}
 }
@@ -8,8 +8,14 @@ import logic.GameBoard.PieceType;
 import java.util.Map;
 import java.util.HashMap;
 
+//All of the block sprites are packed side by side into one atlas (images/BlockAtlas.png), in color index
+//order (see PieceType.getColorIndex()), so the whole board can be drawn from a single texture. The
+//individual square images are the sources the atlas was packed from.
 public class ImageManager {
 
+	public static final int tileSize = 24;
+
+	private static Image atlas;
 	private static Map<PieceType, Image> images;
 
 	private ImageManager() {
@@ -18,13 +24,9 @@ public class ImageManager {
 	static {
 		images = new HashMap<PieceType, Image>();
 		try {
-			images.put(PieceType.PIECE_J,      new Image("images//GreenSquare.png"));
-			images.put(PieceType.PIECE_L,      new Image("images//CyanSquare.png"));
-			images.put(PieceType.PIECE_LINE,   new Image("images//YellowSquare.png"));
-			images.put(PieceType.PIECE_S,      new Image("images//BlueSquare.png"));
-			images.put(PieceType.PIECE_SQUARE, new Image("images//OrangeSquare.png"));
-			images.put(PieceType.PIECE_T,      new Image("images//PinkSquare.png"));
-			images.put(PieceType.PIECE_Z,      new Image("images//RedSquare.png"));
+			atlas = new Image("images//BlockAtlas.png", false, Image.FILTER_NEAREST);
+			for (PieceType type : PieceType.values())
+				images.put(type, atlas.getSubImage(getTileX(type.getColorIndex()), 0, tileSize, tileSize));
 		} catch (SlickException e) {
 			e.printStackTrace();
 		}
@@ -34,4 +36,25 @@ public class ImageManager {
 		return images.get(type);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Gets the image for a color index stored on the GameBoard (see PieceType.getColorIndex()).
+	 */
+	public static Image getImage(byte colorIndex) {
+		return images.get(PieceType.fromColorIndex(colorIndex));
+	}
+
+	/**
+	 * Gets the image holding every block sprite.
+	 */
+	public static Image getAtlas() {
+		return atlas;
+	}
+
+	/**
+	 * Gets the x coordinate (in pixels) of a color's tile in the atlas. Every tile is at y = 0.
+	 */
+	public static int getTileX(byte colorIndex) {
+		return (colorIndex - 1) * tileSize;
+	}
+
+}
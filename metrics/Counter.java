@@ -0,0 +1,66 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of something. Backed by a LongAdder, so incrementing it from many threads at once never blocks
+ * and barely contends.
+ *
+ */
+public class Counter implements CounterMBean {
+
+	private String name;
+	private LongAdder count = new LongAdder();
+
+
+
+
+	public Counter(String name) {
+		this.name = name;
+	}
+
+
+
+
+	public String getName() {
+		return name;
+	}
+
+
+
+
+	public void increment() {
+		count.increment();
+	}
+
+
+
+
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+
+
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+
+
+
+	public void reset() {
+		count.reset();
+	}
+
+
+
+
+	@Override
+	public String toString() {
+		return name + " " + getCount();
+	}
+
+}
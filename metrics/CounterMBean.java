@@ -0,0 +1,9 @@
+package metrics;
+
+/**
+ * JMX view of a Counter.
+ *
+ */
+public interface CounterMBean {
+	public long getCount();
+}
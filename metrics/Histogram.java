@@ -0,0 +1,244 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations, in nanoseconds.
+ *
+ * Values go into log-linear buckets: one group per power of two, each split into SUB_BUCKETS equal
+ * buckets, so any percentile is within 1/SUB_BUCKETS (12.5%) of the true value. Recording a value is a
+ * couple of bit operations and three lock-free adds, so it's cheap enough to leave on everywhere.
+ *
+ * The buckets are striped like the LongAdders: each thread counts into one of STRIPES copies (picked by its
+ * thread id), and the copies are summed when a percentile is read. With a single shared array, the search
+ * threads all recording into the same few buckets would fight over the same cache lines.
+ *
+ */
+public class Histogram implements HistogramMBean {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+	private static final int NUM_BUCKETS     = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	//A power of two, at least the number of cores (up to 64). Each stripe is NUM_BUCKETS longs (about 4KB),
+	//so threads on different stripes only ever share a line at the edges, which are rarely used buckets.
+	private static final int STRIPES =
+			Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 64) * 2 - 1);
+
+	private String name;
+	private AtomicLongArray buckets = new AtomicLongArray(STRIPES * NUM_BUCKETS);
+	private LongAdder count         = new LongAdder();
+	private LongAdder sum           = new LongAdder();
+	private LongAccumulator max     = new LongAccumulator(Math::max, 0);
+
+
+
+
+	public Histogram(String name) {
+		this.name = name;
+	}
+
+
+
+
+	public String getName() {
+		return name;
+	}
+
+
+
+
+	/**
+	 * Gets the bucket a value goes in. Values below SUB_BUCKETS get a bucket each; above that, the bucket
+	 * is picked by the value's highest set bit and the SUB_BUCKET_BITS bits below it.
+	 */
+	private static int getBucket(long value) {
+		if (value < SUB_BUCKETS)
+			return (int)Math.max(value, 0);
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int mantissa = (int)(value >>> exponent) & (SUB_BUCKETS - 1);
+		return (exponent + 1) * SUB_BUCKETS + mantissa;
+	}
+
+
+
+
+	/**
+	 * Gets the highest value that goes in a bucket.
+	 */
+	private static long getBucketMax(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		int exponent = bucket / SUB_BUCKETS - 1;
+		int mantissa = bucket % SUB_BUCKETS;
+		return ((long)(SUB_BUCKETS + mantissa + 1) << exponent) - 1;
+	}
+
+
+
+
+	/**
+	 * Gets where this thread's stripe of buckets starts. Thread ids are handed out in order, so the threads
+	 * of a pool end up on different stripes.
+	 */
+	private static int getStripeOffset() {
+		return (int)(Thread.currentThread().getId() & (STRIPES - 1)) * NUM_BUCKETS;
+	}
+
+
+
+
+	/**
+	 * Gets the number of values in a bucket, across all the stripes.
+	 */
+	private long getBucketCount(int bucket) {
+		long total = 0;
+		for (int offset = bucket; offset < STRIPES * NUM_BUCKETS; offset += NUM_BUCKETS)
+			total += buckets.get(offset);
+		return total;
+	}
+
+
+
+
+	public void record(long nanos) {
+		buckets.incrementAndGet(getStripeOffset() + getBucket(nanos));
+		count.increment();
+		sum.add(nanos);
+		max.accumulate(nanos);
+	}
+
+
+
+
+	/**
+	 * Records the time since a System.nanoTime() reading.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+
+
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+
+
+
+	public long getMax() {
+		return max.get();
+	}
+
+
+
+
+	public double getMean() {
+		long n = getCount();
+		return n == 0 ? 0 : (double)sum.sum() / n;
+	}
+
+
+
+
+	/**
+	 * Estimates a percentile (as the top of the bucket it falls in, capped at the max).
+	 * @param percentile - Between 0 and 100.
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[NUM_BUCKETS];
+		long total    = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			counts[i] = getBucketCount(i);
+			total    += counts[i];
+		}
+		if (total == 0)
+			return 0;
+
+		long rank = (long)Math.ceil(total * percentile / 100d);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0)
+				return Math.min(getBucketMax(i), getMax());
+		}
+		return getMax();
+	}
+
+
+
+
+	@Override
+	public double getMeanMicros() {
+		return getMean() / 1000d;
+	}
+
+
+
+
+	@Override
+	public double getMaxMicros() {
+		return getMax() / 1000d;
+	}
+
+
+
+
+	@Override
+	public double getP50Micros() {
+		return getPercentile(50) / 1000d;
+	}
+
+
+
+
+	@Override
+	public double getP90Micros() {
+		return getPercentile(90) / 1000d;
+	}
+
+
+
+
+	@Override
+	public double getP99Micros() {
+		return getPercentile(99) / 1000d;
+	}
+
+
+
+
+	@Override
+	public double getP999Micros() {
+		return getPercentile(99.9) / 1000d;
+	}
+
+
+
+
+	public void reset() {
+		for (int i = 0; i < buckets.length(); ++i)
+			buckets.set(i, 0);
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+
+
+
+	@Override
+	public String toString() {
+		return String.format("%s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", name,
+							 getCount(), getMeanMicros(), getP50Micros(), getP90Micros(), getP99Micros(),
+							 getP999Micros(), getMaxMicros());
+	}
+
+}
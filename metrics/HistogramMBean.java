@@ -0,0 +1,15 @@
+package metrics;
+
+/**
+ * JMX view of a Histogram. Times are in microseconds.
+ *
+ */
+public interface HistogramMBean {
+	public long getCount();
+	public double getMeanMicros();
+	public double getMaxMicros();
+	public double getP50Micros();
+	public double getP90Micros();
+	public double getP99Micros();
+	public double getP999Micros();
+}
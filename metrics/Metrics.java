@@ -0,0 +1,105 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The game's metrics. Every metric is a static field, so recording one is just a field read and a
+ * lock-free add; there's no lookup by name on the hot path.
+ *
+ * The metrics can be published as JMX MBeans (under "tetris:type=...,name=...") with registerMBeans(), or
+ * printed with dump().
+ *
+ */
+public class Metrics {
+
+	private static final List<Counter> counters     = new ArrayList<Counter>();
+	private static final List<Histogram> histograms = new ArrayList<Histogram>();
+	private static boolean registered = false;
+
+	public static final Histogram updateTime        = histogram("updateTime");
+	public static final Histogram renderTime        = histogram("renderTime");
+	public static final Histogram animationDuration = histogram("animationDuration");
+	public static final Counter piecesLocked        = counter("piecesLocked");
+	public static final Counter linesCleared        = counter("linesCleared");
+	public static final Counter rotationAttempts    = counter("rotationAttempts");
+	public static final Counter rotationKicks       = counter("rotationKicks");      //Rotations that needed a kick
+	public static final Counter rotationFailures    = counter("rotationFailures");   //Rotations that didn't fit at all
+
+
+
+
+	private Metrics() {
+	}
+
+
+
+
+	private static Counter counter(String name) {
+		Counter counter = new Counter(name);
+		counters.add(counter);
+		return counter;
+	}
+
+
+
+
+	private static Histogram histogram(String name) {
+		Histogram histogram = new Histogram(name);
+		histograms.add(histogram);
+		return histogram;
+	}
+
+
+
+
+	/**
+	 * Publishes every metric to the platform MBean server. Does nothing if they're already published.
+	 */
+	public static synchronized void registerMBeans() {
+		if (registered)
+			return;
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for (Counter c : counters)
+				server.registerMBean(c, new ObjectName("tetris:type=Counter,name=" + c.getName()));
+			for (Histogram h : histograms)
+				server.registerMBean(h, new ObjectName("tetris:type=Histogram,name=" + h.getName()));
+			registered = true;
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+
+
+	/**
+	 * Gets every metric as plain text, one per line.
+	 */
+	public static String dump() {
+		StringBuilder text = new StringBuilder();
+		for (Counter c : counters)
+			text.append(c).append('\n');
+		for (Histogram h : histograms)
+			text.append(h).append('\n');
+		return text.toString();
+	}
+
+
+
+
+	public static void reset() {
+		for (Counter c : counters)
+			c.reset();
+		for (Histogram h : histograms)
+			h.reset();
+	}
+
+}
@@ -1,25 +1,25 @@
 package pieces;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
-import org.newdawn.slick.Image;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import point.*;
 import pieces.GameBoardSquare.MoveType;
+import rotation.RotationSystem;
 import logic.GameBoard;
 import logic.GameBoard.PieceType;
-import logic.SubsquareCollision;
-import logic.SubsquareCollisionList;
-import manager.ImageManager;
+import metrics.Metrics;
 
 public class ActivePiece {
 	
 	private Point[] piece;
 	private GameBoard theBoard;
-	private Image color;
+	private byte color;
 	private PieceType type;
+	private int rotation;    //Rotation state, see RotationSystem
+	private int originRow;   //The point the rotation states are measured from
+	private int originCol;
+	private Point kick;      //Scratch point for RotationSystem.findKick()
 	public enum CollisionType {
 		COL_NONE,
 		COL_LEFT,
@@ -39,217 +39,242 @@ public class ActivePiece {
 	}
 	
 	
-	private boolean isLeftOfPiece(Point subsquare, Point[] piece) {
-		for (int i = 0; i < 4; ++i) {
-			if (!(subsquare.y < piece[i].y))
-				return false;
-		}
-		return true;
+	public ActivePiece(GameBoard theBoard) {
+		this.theBoard = theBoard;
+		piece         = new Point[4];
+		for (int i=0; i<4; ++i)
+			piece[i] = new Point();
+		this.color   = 0;
+		kick         = new Point();
 	}
 	
 	
 	
-	private boolean isRightOfPiece(Point subsquare, Point[] piece) {
-		for (int i = 0; i < 4; ++i) {
-			if (!(subsquare.y > piece[i].y))
-				return false;
-		}
-		return true;
+	
+	public PieceType getType() {
+		return type;
+	}
+	
+	
+	
+	
+	public int getRotation() {
+		return rotation;
+	}
+	
+	
+	
+	
+	public int getOriginRow() {
+		return originRow;
+	}
+	
+	
+	
+	
+	public int getOriginCol() {
+		return originCol;
+	}
+	
+	
+	
+	
+	/**
+	 * The four subsquares of the piece, in (row, col) form. Don't modify them.
+	 */
+	public Point[] getPoints() {
+		return piece;
+	}
+	
+	
+	
+	
+	/**
+	 * Copies another piece's type, rotation and position. Only the piece's state is copied; nothing on
+	 * the board changes (see GameBoard.snapshot()).
+	 */
+	public void copyFrom(ActivePiece other) {
+		type      = other.type;
+		color     = other.color;
+		rotation  = other.rotation;
+		originRow = other.originRow;
+		originCol = other.originCol;
+		for (int i = 0; i < 4; ++i)
+			piece[i].set(other.piece[i].x, other.piece[i].y);
 	}
 	
 	
 	
 	
-	private boolean isUnderPiece(Point subsquare, Point[] piece) {
+	/**
+	 * Writes the piece's type, rotation, origin and squares to a buffer (12 bytes).
+	 */
+	public void writeState(ByteBuffer buffer) {
+		buffer.put((byte)(type == null ? -1 : type.ordinal()));
+		buffer.put((byte)rotation);
+		buffer.put((byte)originRow);
+		buffer.put((byte)originCol);
 		for (int i = 0; i < 4; ++i) {
-			if (!(subsquare.x > piece[i].x))
-				return false;
+			buffer.put((byte)piece[i].x);
+			buffer.put((byte)piece[i].y);
 		}
-		return true;
 	}
 	
 	
 	
 	
-	@SuppressWarnings("unused") private boolean isAbovePiece(Point subsquare, Point[] piece) {
+	/**
+	 * Reads a piece written by writeState(). Like copyFrom(), nothing on the board changes.
+	 * @throws IOException - If the piece's type or rotation isn't a real one, or its squares are off the
+	 * board.
+	 */
+	public void readState(ByteBuffer buffer) throws IOException {
+		int ordinal = buffer.get();
+		if (ordinal < -1 || ordinal >= PieceType.numPieces)
+			throw new IOException("Bad piece type " + ordinal + ".");
+		int savedRotation = buffer.get();
+		if (savedRotation < 0 || savedRotation > 3)
+			throw new IOException("Bad rotation " + savedRotation + ".");
+
+		type      = (ordinal < 0) ? null : PieceType.fromInteger(ordinal);
+		color     = (type == null) ? 0 : type.getColorIndex();
+		rotation  = savedRotation;
+		originRow = buffer.get();
+		originCol = buffer.get();
 		for (int i = 0; i < 4; ++i) {
-			if (!(subsquare.x < piece[i].x))
-				return false;
+			piece[i].set(buffer.get(), buffer.get());
+			if (!theBoard.inBounds(piece[i]))
+				throw new IOException("Piece square " + piece[i].x + ", " + piece[i].y + " is off the board.");
 		}
-		return true;
 	}
 	
 	
 	
 	
-	private Vec2D getOOBKickVector(SubsquareCollisionList subsquareOOBList) {
-		
-		try {
-			if (!subsquareOOBList.hasSameCollisionType())
-				throw new Exception("A piece cannot be out of bounds on more than one side.");
-		}
-		catch(Exception e) {
-			e.printStackTrace();
-			return new Vec2D(0,0);
-		}
-		
-		
-		Comparator<SubsquareCollision> outstandingSubsquareOrdering;
-		
-		Point outstandingSubsquare;
-		Vec2D kickVector = new Vec2D(0,0);
-		int kickAmount = 0;
-		
-		switch (subsquareOOBList.getCollisionType()) {
-		
-		case COL_LEFT:
-			
-			//Ascending sort-by-col comparator (use min() to find left-most OOB subsquare)
-			outstandingSubsquareOrdering = new Comparator<SubsquareCollision>() {
-				public int compare(SubsquareCollision s1, SubsquareCollision s2) {
-					return s1.getSubsquare().y - s2.getSubsquare().y;
-				}
-			};
-			outstandingSubsquare = Collections.min(subsquareOOBList.getList(), outstandingSubsquareOrdering).getSubsquare();
-			kickAmount = -outstandingSubsquare.y;
-			kickVector.set(0, kickAmount);
-			return kickVector;
-		
-		case COL_RIGHT:
-			
-			//Ascending sort-by-col comparator (use max() to find right-most OOB subsquare)
-			outstandingSubsquareOrdering = new Comparator<SubsquareCollision>() {
-				public int compare(SubsquareCollision s1, SubsquareCollision s2) {
-					return s1.getSubsquare().y - s2.getSubsquare().y;
-				}
-			};
-			outstandingSubsquare = Collections.max(subsquareOOBList.getList(), outstandingSubsquareOrdering).getSubsquare();
-			kickAmount = (theBoard.getCols() - 1) - outstandingSubsquare.y;
-			kickVector.set(0, kickAmount);
-			return kickVector;
-			
-		case COL_BOTTOM:
-			
-			//Ascending sort-by-row comparator (use max() to find bottom-most OOB subsquare)
-			outstandingSubsquareOrdering = new Comparator<SubsquareCollision>() {
-				public int compare(SubsquareCollision s1, SubsquareCollision s2) {
-					return s1.getSubsquare().x - s2.getSubsquare().x;
-				}
-			};
-			outstandingSubsquare = Collections.max(subsquareOOBList.getList(), outstandingSubsquareOrdering).getSubsquare();
-			kickAmount = (theBoard.getRows() - 1) - outstandingSubsquare.x;
-			kickVector.set(kickAmount, 0);
-			return kickVector;
-		
-		default:    //Should never happen
-			break;
+	/**
+	 * Spawns a new piece of the given type in its spawn state, at the position given by the board's
+	 * RotationSystem.
+	 * @return Returns false if the piece overlaps anything (i.e., the game is over), and true otherwise.
+	 */
+	public boolean spawn(PieceType type) {
+		RotationSystem rotationSystem = theBoard.getRotationSystem();
+		
+		this.type  = type;
+		this.color = type.getColorIndex();
+		rotation   = 0;
+		originRow  = rotationSystem.getSpawnRow(type);
+		originCol  = rotationSystem.getSpawnCol(type, theBoard.getCols());
+		for (int i = 0; i < 4; ++i) {
+			piece[i].set(originRow + rotationSystem.getRowOffset(type, 0, i),
+						 originCol + rotationSystem.getColOffset(type, 0, i));
 		}
 		
-		return kickVector; //Should never happen
+		return placePiece();
 	}
 	
 	
 	
 	
-	private Vec2D getCollisionKickVector(SubsquareCollisionList subsquareCollisionList) {
-		Vec2D kickVector = new Vec2D(0,0);
-		
-		//Scan the collision list for number of "unique" subsquares in the 
-		//direction of the collision. For example, if the subsquare collision list
-		//consists of the subsquares {(1,5), (2,5), (2,4)}, which are ordered pairs of
-		//rows and columns, respectively, and the collision happened on the left side
-		//of the piece, then we take "unique" to mean collisions with a unique column
-		//index. In this case, unique entries would be either {(1,5), (2,4)} or 
-		//{(2,5), (2,4)}, and the number of unique entries would be 2. This is 
-		//the magnitude of the kick amount.
-		List<SubsquareCollision> collisionList = subsquareCollisionList.getList();
-		int listSize = collisionList.size();
-		if (listSize == 0) {
-			System.out.println("Error in getCollisionKickVector(): collision list is empty");
-			return kickVector;
-		}
-		
-		
-		int previous = 0;
-		int numUniqueSubsquares = 1; //List is nonempty; at least one unique entry.
-		
-		switch(subsquareCollisionList.getCollisionType()) {
-		
-		case COL_LEFT:
-			previous = collisionList.get(0).getSubsquare().y;
-			for (int i = 1; i < listSize; ++i) {
-				if (collisionList.get(i).getSubsquare().y != previous)
-					++numUniqueSubsquares;
-			}
-			kickVector.set(0, numUniqueSubsquares);
-			return kickVector;
-			
-			
-		case COL_RIGHT:
-			previous = collisionList.get(0).getSubsquare().y;
-			for (int i = 1; i < listSize; ++i) {
-				if (collisionList.get(i).getSubsquare().y != previous)
-					++numUniqueSubsquares;
-			}
-			kickVector.set(0, -numUniqueSubsquares);
-			return kickVector;
-			
-			
-		case COL_BOTTOM:
-			previous = collisionList.get(0).getSubsquare().x;
-			for (int i = 1; i < listSize; ++i) {
-				if (collisionList.get(i).getSubsquare().x != previous)
-					++numUniqueSubsquares;
-			}
-			kickVector.set(-numUniqueSubsquares, 0);
-			return kickVector;
-			
-			
-		case COL_TOP:
-			previous = collisionList.get(0).getSubsquare().x;
-			for (int i = 1; i < listSize; ++i) {
-				if (collisionList.get(i).getSubsquare().x != previous)
-					++numUniqueSubsquares;
-			}
-			kickVector.set(numUniqueSubsquares, 0);
-			return kickVector;
-			
-		default:
-			break;
-			
-			
-		}
-		return kickVector;
+	/**
+	 * Drops the piece straight down as far as it will go. Same as moving down one row at a time until
+	 * the move fails, but the distance is found with a single scan and the piece is only moved once.
+	 */
+	public void dropPiece() {
+		int distance = getDropDistance();
+		liftPiece();
+		shiftPiece(distance, 0);
+		placePiece();
 	}
 	
 	
 	
 	
-	public ActivePiece(GameBoard theBoard) {
-		this.theBoard = theBoard;
-		piece         = new Point[4];
-		for (int i=0; i<4; ++i)
-			piece[i] = new Point();
-		this.color   = null;
+	/**
+	 * Gets how many rows the piece can fall before it lands on something.
+	 */
+	private int getDropDistance() {
+		int distance = 0;
+		while (canShift(distance + 1, 0))
+			++distance;
+		return distance;
 	}
 	
 	
 	
 	
-	public void dropPiece() {
-		while (move(MoveType.MOVE_DOWN, 1));
+	/**
+	 * Checks whether the piece, shifted by (rowOffset, colOffset), would be in bounds and not colliding
+	 * with anything other than itself.
+	 */
+	private boolean canShift(int rowOffset, int colOffset) {
+		int row, col;
+		for (int i = 0; i < 4; ++i) {
+			row = piece[i].x + rowOffset;
+			col = piece[i].y + colOffset;
+			if (!theBoard.inBounds(row, col))
+				return false;
+			if (theBoard.isSet(row, col) && !isPartOfPiece(row, col))
+				return false;
+		}
+		return true;
+	}
+	
+	
+	
+	
+	/**
+	 * Shifts the piece's points (and its origin). Doesn't touch the board.
+	 */
+	private void shiftPiece(int rowOffset, int colOffset) {
+		for (int i = 0; i < 4; ++i)
+			piece[i].set(piece[i].x + rowOffset, piece[i].y + colOffset);
+		originRow += rowOffset;
+		originCol += colOffset;
 	}
 
 
 
 
+	/**
+	 * Moves the piece straight to a rotation state and origin, without checking whether it could get
+	 * there. Meant for drivers that already know the position is reachable (see ai.PlacementEnumerator).
+	 * @return Returns false if the piece overlaps anything or is out of bounds at its new position.
+	 */
+	public boolean moveTo(int rotation, int originRow, int originCol) {
+		RotationSystem rotationSystem = theBoard.getRotationSystem();
+		
+		liftPiece();
+		this.rotation  = rotation;
+		this.originRow = originRow;
+		this.originCol = originCol;
+		for (int i = 0; i < 4; ++i) {
+			piece[i].set(originRow + rotationSystem.getRowOffset(type, rotation, i),
+						 originCol + rotationSystem.getColOffset(type, rotation, i));
+		}
+		return placePiece();
+	}
+	
+	
+	
+	
 	/**
 	 * Sets the active Tetris piece (the one being controlled by user input).
 	 * @param piece - A Point array of size 4. This array represents the top left corner of each
 	 * GameBoardSquare that comprises the TetrisPiece. The points refer to the row/column pair of the
-	 * particular square on the GameBoard.
+	 * particular square on the GameBoard. The piece is assumed to be in its spawn state, with the first
+	 * point as its origin.
 	 */
 	public boolean setPiece(Point[] piece, PieceType type) {
+		rotation  = 0;
+		originRow = piece[0].x;
+		originCol = piece[0].y;
+		return setPoints(piece, type);
+	}
+	
+	
+	
+	
+	private boolean setPoints(Point[] piece, PieceType type) {
 		
 //		switch (type) {
 //		case PIECE_L:
@@ -277,24 +302,45 @@ public class ActivePiece {
 //			this.color = Color.white;
 //			break;
 //		}
-		this.color = ImageManager.getImage(type);
+		this.color = type.getColorIndex();
 		this.type = type;
 		
+		for (int i=0; i<4; ++i)
+			this.piece[i].set(piece[i].x, piece[i].y);
+		
+		return placePiece();
+	}
+	
+	
+	
+	
+	/**
+	 * Sets the piece's subsquares on the board.
+	 * @return Returns false if any of them were out of bounds or already set.
+	 */
+	private boolean placePiece() {
 		boolean pieceInBounds = true;
 		for (int i=0; i<4; ++i) {
 			if (!theBoard.setSquare(piece[i].x, piece[i].y, this.color))
 				pieceInBounds = false;
 		}
-		
-		for (int i=0; i<4; ++i)
-			this.piece[i].set(piece[i].x, piece[i].y);
-		
 		return pieceInBounds;
 	}
 	
 	
 	
 	
+	/**
+	 * Clears the piece's subsquares from the board, but (unlike clearPiece()) remembers where they were.
+	 */
+	private void liftPiece() {
+		for (int i=0; i<4; ++i)
+			theBoard.clearSquare(piece[i].x, piece[i].y);
+	}
+	
+	
+	
+	
 	public void clearPiece() {
 		for (int i=0; i<4; ++i) {
 			theBoard.clearSquare(piece[i].x, piece[i].y);
@@ -313,280 +359,70 @@ public class ActivePiece {
 	 */
 	public boolean move(MoveType type, int numUnits) {
 		
-		
-		Vec2D moveVector = new Vec2D();
+		int rowOffset = 0;
+		int colOffset = 0;
 		switch (type) {
 		
 		case MOVE_LEFT:
-			moveVector.set(0, -numUnits);
+			colOffset = -numUnits;
 			break;
 			
 		case MOVE_RIGHT:
-			moveVector.set(0, numUnits);
+			colOffset = numUnits;
 			break;
 			
 		case MOVE_DOWN:
-			moveVector.set(numUnits, 0);
+			rowOffset = numUnits;
 			break;
 			
 		}
 		
-//		//Copy the piece
-//		Point[] originalPiece = new Point[4];
-//		Point[] movedPiece = new Point[4];
-//		for (int i = 0; i < 4; ++i) {
-//			originalPiece[i] = new Point(this.piece[i]);
-//			movedPiece[i] = new Point(this.piece[i]);
-//		}
-//		
-//		//Clear the active piece from the board (to get it out of the way).
-//		clearPiece();
-//		
-//		//Try moving.
-//		for (int i = 0; i < 4; ++i)
-//			movedPiece[i].add(moveVector);
-//		
-//		//Check whether the moved piece is colliding with anything or out of bounds.
-//		//We don't care if the piece is above the board; only left, right, or below.
-//		//(Otherwise, a line sticking above the top of the board wouldn't move.)
-//		boolean inBounds = theBoard.isPieceInBoundsLeftRightBottom(movedPiece);
-//		boolean pieceCollision = theBoard.checkPieceCollision(movedPiece);
-//		boolean moveSuccessful = inBounds && !pieceCollision;
-//		
-//		if (moveSuccessful) {
-//			setPiece(movedPiece, this.type);
-//			if (type == MoveType.MOVE_DOWN)
-//				hasLanded = false;
-//			return true;
-//		}
-//		
-//		else {
-//			setPiece(originalPiece, this.type);
-//			if (type == MoveType.MOVE_DOWN)
-//				hasLanded = true;
-//			return false;
-//		}
-//
-		
-		//Copy the piece and try moving it
-		Point[] copy = new Point[4];
-		for (int i = 0; i < 4; ++i)
-			copy[i] = new Point(piece[i].x + moveVector.x, piece[i].y + moveVector.y);
-		
-		//Make sure it's in bounds and not colliding with a piece (other than itself)
-		boolean inBounds = theBoard.isPieceInBounds(copy);
-		boolean collision = false;
-		for (int i = 0; i < 4; ++i) {
-			if (theBoard.isSet(copy[i]) && !isPartOfPiece(copy[i].x, copy[i].y)) {
-				collision = true;
-				break;
-			}
-		}
-		
-		boolean moveSuccessful = inBounds && !collision;
+		//Make sure the moved piece is in bounds and not colliding with a piece (other than itself).
+		//Nothing is copied; the board is only touched if the move succeeds.
+		if (!canShift(rowOffset, colOffset))
+			return false;
 		
-		if (moveSuccessful) {
-			clearPiece();
-			setPiece(copy, this.type);
-			return true;
-		}
-		else return false;
+		liftPiece();
+		shiftPiece(rowOffset, colOffset);
+		placePiece();
+		return true;
 	}
 	
-
-
-	/*General "wallkicking" algorithm:
-
-	1) Copy the active piece (twice) so we can set it back later if the rotation fails.
-	
-	2) Clear the active piece to get it out of the way.
-	
-	3) Rotate the copy.
 	
-	4) Add all out-of-bounds collisions to a list. An out-of-bounds collision consists
-		of the point at which the rotated copy is out of bounds, and a collision type, which
-		signifies which side of the board it happened on.
-		
-	5) Add all piece collisions to a list. Again, a piece collision consists of a
-		point where the collision happened, and a collision type. The collision type
-		specifies which side of the ORIGINAL piece the collision happened on.
-	
-	6) Now, handle four cases.
-		I) The piece rotated out of bounds and is NOT colliding with another piece.
-			In this case, try moving the piece back in bounds. If there's no collision,
-			then the rotation is successful, and we jump to 7.
-		II) The piece is out of bounds and colliding with another piece. In most cases,
-			this means the piece can't be rotated (imagine a piece wedged between another
-			piece and a wall), but not always.		
-		III) The rotated piece induces collisions on two sides of the ORIGINAL piece.
-			In this case, the rotation isn't possible because we can't kick the piece 
-			without causing another collision.
-		IV) The rotated piece is colliding with at least another subsquare. In this case,
-			we try to move the piece back out of the collision (i.e., "kick" it),
-			and make sure that doesn't cause another collision or an out-of-bounds.
-			
-	7) If the rotation was successful, set the rotated piece on the board and return
-		true.
-	
-	8) If the rotation was not successful, set the original piece back on the board
-		and return false.
-*/
 	
 	
+	/**
+	 * Rotates the active piece 90 degrees, if possible. The new rotation state is looked up in the board's
+	 * RotationSystem, which also decides how (and whether) the rotated piece gets kicked.
+	 * @param leftRotate - True to rotate counter-clockwise, false to rotate clockwise.
+	 * @return Returns true if the rotation was successful, and false otherwise.
+	 */
 	public boolean rotate(boolean leftRotate) {
 		
-		if (type == PieceType.PIECE_SQUARE)
-			return true;
-		 
-		
-		//1) Clear the active piece to get it out of the way, but save it for later.
-		Point[] originalPiece = new Point[4];
-		for (int i = 0; i < 4; ++i)
-			originalPiece[i] = new Point(piece[i]);
-		clearPiece();
-		
-		
-		
-		// Make a copy of the original piece.
-		//"Pivot" is subsquare that the tetris piece rotates about. The pivot is always the first point.
-		//In order to rotate, we translate the pivot's center to the origin.
-		//The origin is at the top-left of the game board.
-		
-		Point pivot          = new Point(originalPiece[0]);
-		Vec2D originVec      = new Vec2D(-pivot.x, -pivot.y);
-		Point[] rotatedPiece = new Point[4];
-		for (int i=0; i<4; ++i)
-			rotatedPiece[i] = new Point(originalPiece[i]);
-		
-		
-		//Rotate the piece.
-		//Add out of bounds points and piece collision points to lists.
-		SubsquareCollisionList subsquareCollisionList = new SubsquareCollisionList(); //Keep track of piece collisions
-		SubsquareCollisionList subsquareOOBList = new SubsquareCollisionList(); //Keep track of out of bounds collisions
-		
-		boolean outOfBounds = false;
-		boolean pieceCollision = false;
-		boolean rotationSuccessful = true;
-		
-		//Fit everything into one loop to decrease loop iterations
-		//and readability. =)
-		for (int i=0; i<4; ++i) {
-			
-			//Translate to origin before rotating.
-			rotatedPiece[i].add(originVec);
-			
-			if (leftRotate)
-				rotatedPiece[i].set(-rotatedPiece[i].y, rotatedPiece[i].x); //Rotate left 90 degrees.
-			
-			else 
-				rotatedPiece[i].set(rotatedPiece[i].y, -rotatedPiece[i].x); //Rotate right 90 degrees.
-			
-			//Translate piece back to its original position.
-			rotatedPiece[i].subtract(originVec);
-			
-			
-			
-			
-			//Check if the rotated subsquare is out of bounds so we can "kick" it back in later.
-			//We have to use our own custom out of bounds code, because we need to know which side the
-			//piece is out of bounds on.
-			//
-			//The whole piece can't be out of bounds on two sides at once.
-			//
-			//We keep track of the "most outstanding subsquare," because, for instance, if the subsquare
-			//is 2 units out of bounds on the right, then we want to "kick" the whole shape back to the 
-			//left by 2 units.
-			
-			
-			//If the subsquare is to the left of the board....
-			if (theBoard.outOfBoundsLeft(rotatedPiece[i])) {
-				System.out.println("Subsquare is to the left of the board");
-				subsquareOOBList.add(new SubsquareCollision(rotatedPiece[i], CollisionType.COL_LEFT));
-				
-			}
-			
-			//If the subsquare is to the right of the board...
-			else if (theBoard.outOfBoundsRight(rotatedPiece[i])) {
-				System.out.println("Subsquare is to the right of the board");
-				subsquareOOBList.add(new SubsquareCollision(rotatedPiece[i], CollisionType.COL_RIGHT));
-			}
-			
-			//If the subsquare is under the board
-			else if (theBoard.outOfBoundsBottom(rotatedPiece[i])) {
-				System.out.println("Subsquare is under the board!");
-				subsquareOOBList.add(new SubsquareCollision(rotatedPiece[i], CollisionType.COL_BOTTOM));
-			}
-			
-			//If the subsquare is colliding with another subsquare...
-			//determine on which side of the original piece the collision occurs
-			else if (theBoard.isSet(rotatedPiece[i])) { //Redundant out of bounds check; cleaner code.
-				
-				if (isLeftOfPiece(rotatedPiece[i], originalPiece))
-					subsquareCollisionList.add(new SubsquareCollision(rotatedPiece[i], CollisionType.COL_LEFT));
-				
-				else if (isRightOfPiece(rotatedPiece[i], originalPiece))
-					subsquareCollisionList.add(new SubsquareCollision(rotatedPiece[i], CollisionType.COL_RIGHT));
-				
-				else if (isUnderPiece(rotatedPiece[i], originalPiece))
-					subsquareCollisionList.add(new SubsquareCollision(rotatedPiece[i], CollisionType.COL_BOTTOM));
-				
-				else
-					subsquareCollisionList.add(new SubsquareCollision(rotatedPiece[i], CollisionType.COL_TOP));
-				
-			}
-		}
-		
-		
-		outOfBounds = !subsquareOOBList.isEmpty();
-		pieceCollision = !subsquareCollisionList.isEmpty();
-		
-		
-		//If the piece is only out of bounds, try kicking it back.
-		if (outOfBounds && !pieceCollision) {
-			
-			boolean kickable = false;
-			Vec2D offset = getOOBKickVector(subsquareOOBList);
-			for (int i = 0; i < 4; ++i)
-				rotatedPiece[i].add(offset);
-			kickable = !theBoard.checkPieceCollision(rotatedPiece);
-			rotationSuccessful = kickable;
-		}
-		
-		//This is a bug. A piece can be successfully kicked if it's out of
-		//bounds and colliding with another piece, although this can only happen
-		//with a line. Will fix later if less lazy.
-		else if (outOfBounds && pieceCollision)
-			rotationSuccessful = false;
-		
-		
-		//If there is only a piece collision, then we check to see whether the collision is entirely to one
-		//side of the original piece. If so, we try to kick it away from the collision, which succeeds if 
-		//the kicked piece isn't out of bounds or in another piece.
-		//If the collision isn't entirely to one side, then the rotation isn't possible.
-		else if (!outOfBounds && pieceCollision) {
-			
-			//If the collision happened only on one side of the active piece
-			if (!subsquareCollisionList.hasSameCollisionType())
-				rotationSuccessful = false;
-			
-			else {
-				boolean kickable = false;  //Worst case: piece doesn't rotate.
-				Vec2D offset = getCollisionKickVector(subsquareCollisionList);
-				for (int i = 0; i < 4; ++i)
-					rotatedPiece[i].add(offset);
-				
-				kickable = !theBoard.checkPieceCollision(rotatedPiece) && theBoard.isPieceInBounds(rotatedPiece);
-				rotationSuccessful = kickable;
+		RotationSystem rotationSystem = theBoard.getRotationSystem();
+		int toRotation = leftRotate ? RotationSystem.rotateLeft(rotation) : RotationSystem.rotateRight(rotation);
+		
+		//Get the active piece out of the way so it doesn't collide with itself.
+		liftPiece();
+		
+		boolean rotationSuccessful = rotationSystem.findKick(theBoard, type, rotation, originRow, originCol, toRotation, kick);
+		Metrics.rotationAttempts.increment();
+		if (!rotationSuccessful)
+			Metrics.rotationFailures.increment();
+		else if (kick.x != 0 || kick.y != 0)
+			Metrics.rotationKicks.increment();
+		
+		if (rotationSuccessful) {
+			rotation   = toRotation;
+			originRow += kick.x;
+			originCol += kick.y;
+			for (int i = 0; i < 4; ++i) {
+				piece[i].set(originRow + rotationSystem.getRowOffset(type, rotation, i),
+							 originCol + rotationSystem.getColOffset(type, rotation, i));
 			}
-			
 		}
 		
-		
-		if (rotationSuccessful)
-			setPiece(rotatedPiece, this.type);
-		else
-			setPiece(originalPiece, this.type);
-		
+		placePiece();
 		return rotationSuccessful;
 	}
 	
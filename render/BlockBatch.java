@@ -0,0 +1,69 @@
+package render;
+
+import org.newdawn.slick.Image;
+
+import manager.ImageManager;
+import tetrisgame.TetrisGame;
+
+/**
+ * Draws blocks in one batch. Every block sprite is in the same atlas (see ImageManager), so between
+ * begin() and end() the texture is bound once and each block is just four more vertices, instead of a
+ * separate drawImage() (with its own texture bind and state changes) per block.
+ *
+ * Nothing else may be drawn between begin() and end().
+ *
+ */
+public class BlockBatch {
+
+	private static Image atlas;
+
+
+
+
+	private BlockBatch() {
+	}
+
+
+
+
+	public static void begin() {
+		atlas = ImageManager.getAtlas();
+		atlas.startUse();
+	}
+
+
+
+
+	public static void end() {
+		atlas.endUse();
+	}
+
+
+
+
+	/**
+	 * Draws a block at a board position. The row and column can be fractional (e.g. for a piece sliding
+	 * between rows). Nothing is drawn in the invisible rows.
+	 * @param colorIndex - The block's color (see PieceType.getColorIndex()).
+	 */
+	public static void drawSquare(byte colorIndex, float row, float col) {
+		if (row < TetrisGame.numInvisRows)
+			return;
+
+		drawScreen(colorIndex, TetrisGame.boardToScreenOffsetVector.x + col * TetrisGame.pieceSize,
+							   TetrisGame.boardToScreenOffsetVector.y + row * TetrisGame.pieceSize);
+	}
+
+
+
+
+	/**
+	 * Draws a block with its top left corner at a screen position.
+	 */
+	public static void drawScreen(byte colorIndex, float x, float y) {
+		int tileX = ImageManager.getTileX(colorIndex);
+		atlas.drawEmbedded(x, y, x + TetrisGame.pieceSize, y + TetrisGame.pieceSize,
+						   tileX, 0, tileX + ImageManager.tileSize, ImageManager.tileSize);
+	}
+
+}
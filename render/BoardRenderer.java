@@ -0,0 +1,276 @@
+package render;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+import animation.AnimationPool;
+import animation.AnimationScheduler;
+import animation.LockFlashAnimation;
+import animation.RowDeleteAnimation;
+import logic.GameBoard;
+import manager.ImageManager;
+import pieces.GameBoardSquare;
+import point.Point;
+import tetrisgame.GameLoop;
+import tetrisgame.TetrisGame;
+
+/**
+ * BoardRenderer is the Slick side of the GameBoard. It draws the board's squares and owns the row delete
+ * animation, so the GameBoard itself can run without an OpenGL context.
+ *
+ * The locked squares (everything but the active piece) only change when a piece locks or spawns, so
+ * they're drawn once into an offscreen image, the stack layer, and redrawn only when the board's stack
+ * version changes (see GameBoard.getStackVersion()). Each frame is then one image plus the active piece's
+ * four squares. If offscreen images aren't supported, every square is drawn every frame instead.
+ *
+ */
+public class BoardRenderer implements GameLoop.Animations {
+
+	private GameBoard theBoard;
+	private AnimationScheduler animations;
+	private AnimationPool<RowDeleteAnimation> rowDeletePool;
+	private AnimationPool<LockFlashAnimation> lockFlashPool;
+	private RowDeleteAnimation rowDelete;           //The line clear that's playing, if any
+	private boolean animationOverlay     = false;   //If set, the active piece is drawn over the row delete animation
+	private Image stackLayer;                 //The visible rows' locked squares
+	private Graphics stackGraphics;
+	private int stackLayerVersion;            //The board's stack version when the layer was drawn
+	private boolean stackLayerValid      = false;
+	private boolean useStackLayer        = true;
+
+
+
+
+	public BoardRenderer(final GameBoard theBoard) {
+		this.theBoard = theBoard;
+
+		//Every animation is created up front, so none are allocated during play
+		animations    = new AnimationScheduler();
+		rowDeletePool = new AnimationPool<RowDeleteAnimation>(2) {
+			protected RowDeleteAnimation create() {
+				return new RowDeleteAnimation(theBoard);
+			}
+		};
+		lockFlashPool = new AnimationPool<LockFlashAnimation>(4) {
+			protected LockFlashAnimation create() {
+				return new LockFlashAnimation();
+			}
+		};
+	}
+
+
+
+
+	/**
+	 * Checks whether the row delete animation is playing.
+	 */
+	@Override
+	public boolean isAnimationPlaying() {
+		return rowDelete != null && rowDelete.isActive();
+	}
+
+
+
+
+	/**
+	 * Starts replaying the board's last line clear. Call this right after GameBoard.clearFullRows()
+	 * removes any rows. If the last clear is still playing, it's cut short.
+	 * @param now - The current time on the game clock, in nanoseconds.
+	 */
+	@Override
+	public void startAnimation(long now) {
+		stopAnimation();
+		rowDelete = rowDeletePool.obtain();
+		rowDelete.prepare();
+		animations.start(rowDelete, now);
+	}
+
+
+
+
+	@Override
+	public void stopAnimation() {
+		if (isAnimationPlaying())
+			animations.cancel(rowDelete);
+		rowDelete = null;
+	}
+
+
+
+
+	/**
+	 * Flashes the squares of a piece that just locked.
+	 * @param piece - The piece's four subsquares.
+	 * @param now - The current time on the game clock, in nanoseconds.
+	 */
+	@Override
+	public void flashLock(Point[] piece, long now) {
+		LockFlashAnimation flash = lockFlashPool.obtain();
+		flash.setPiece(piece);
+		animations.start(flash, now);
+	}
+
+
+
+
+	/**
+	 * Advances every animation to the given time. Call this once per frame, before rendering.
+	 * @param now - The current time on the game clock, in nanoseconds.
+	 */
+	@Override
+	public void updateAnimations(long now) {
+		animations.update(now);
+	}
+
+
+
+
+	/**
+	 * Chooses what's drawn while the row delete animation plays. By default it's just the animation, since
+	 * the game waits for it. If the game goes on instead (the next piece has already spawned), the active
+	 * piece is drawn over the animation.
+	 */
+	@Override
+	public void setAnimationOverlay(boolean animationOverlay) {
+		this.animationOverlay = animationOverlay;
+	}
+
+
+
+
+	public void render(GameContainer container, Graphics g) {
+		render(container, g, 0, 0);
+	}
+
+
+
+
+	/**
+	 * Same as render(container, g), but the active piece is drawn offset from where it is on the board, so
+	 * it can slide smoothly between fixed-timestep ticks (see GameSimulation.getInterpolatedRowOffset()).
+	 * @param rowOffset - How far to draw the active piece from its position, in rows.
+	 * @param colOffset - How far to draw the active piece from its position, in columns.
+	 */
+	public void render(GameContainer container, Graphics g, float rowOffset, float colOffset) {
+
+		//Render board normally (using logic space to render into screen space)
+		if (!isAnimationPlaying()) {
+			if (useStackLayer && updateStackLayer()) {
+				g.drawImage(stackLayer, GameBoardSquare.boardToScreenX(0), GameBoardSquare.boardToScreenY(TetrisGame.numInvisRows));
+				renderActivePiece(rowOffset, colOffset);
+			}
+			else
+				renderAllSquares(rowOffset, colOffset);
+		}
+
+		//If rows were just cleared, the row delete animation's chunks are the whole stack, so they take the
+		//stack layer's place. The other effects are drawn over the board.
+		animations.render(g);
+		if (isAnimationPlaying() && animationOverlay)
+			renderActivePiece(rowOffset, colOffset);
+
+	}
+
+
+
+
+	/**
+	 * Redraws the stack layer if the locked squares have changed since it was last drawn. The layer is
+	 * created the first time.
+	 * @return Returns false if the layer can't be used (offscreen images aren't supported).
+	 */
+	private boolean updateStackLayer() {
+		if (stackLayer == null) {
+			try {
+				stackLayer    = new Image(theBoard.getCols() * TetrisGame.pieceSize,
+										  (theBoard.getRows() - TetrisGame.numInvisRows) * TetrisGame.pieceSize);
+				stackGraphics = stackLayer.getGraphics();
+				stackGraphics.setBackground(Color.transparent);
+			} catch (SlickException e) {
+				e.printStackTrace();
+				useStackLayer = false;
+				return false;
+			}
+		}
+
+		if (stackLayerValid && stackLayerVersion == theBoard.getStackVersion())
+			return true;
+
+		//This only happens once per piece, so there's no need to batch it.
+		Point[] piece = theBoard.getActivePiece().getPoints();
+		stackGraphics.clear();
+		for (int i=TetrisGame.numInvisRows; i<theBoard.getRows(); ++i) {
+			if (theBoard.isRowEmpty(i))
+				continue;
+			for (int j=0; j<theBoard.getCols(); ++j) {
+				if (theBoard.isSet(i, j) && !isPieceSquare(piece, i, j))
+					stackGraphics.drawImage(ImageManager.getImage(theBoard.getColor(i, j)), j * TetrisGame.pieceSize,
+											(i - TetrisGame.numInvisRows) * TetrisGame.pieceSize);
+			}
+		}
+		stackGraphics.flush();
+
+		stackLayerVersion = theBoard.getStackVersion();
+		stackLayerValid   = true;
+		return true;
+	}
+
+
+
+
+	/**
+	 * Draws just the active piece, offset by the given number of rows and columns.
+	 */
+	private void renderActivePiece(float rowOffset, float colOffset) {
+		BlockBatch.begin();
+		for (Point p : theBoard.getActivePiece().getPoints()) {
+			if (theBoard.isSet(p.x, p.y))
+				BlockBatch.drawSquare(theBoard.getColor(p.x, p.y), p.x + rowOffset, p.y + colOffset);
+		}
+		BlockBatch.end();
+	}
+
+
+
+
+	/**
+	 * Draws every square, without the stack layer.
+	 */
+	private void renderAllSquares(float rowOffset, float colOffset) {
+		boolean offsetPiece = rowOffset != 0 || colOffset != 0;
+		Point[] piece       = theBoard.getActivePiece().getPoints();
+		int rows = theBoard.getRows();
+		int cols = theBoard.getCols();
+		BlockBatch.begin();
+		for (int i=0; i<rows; ++i) {
+			if (theBoard.isRowEmpty(i))
+				continue;
+			for (int j=0; j<cols; ++j) {
+				if (theBoard.isSet(i, j) && !(offsetPiece && isPieceSquare(piece, i, j)))
+					BlockBatch.drawSquare(theBoard.getColor(i, j), i, j);
+			}
+		}
+
+		//The active piece's squares are still on the board, just drawn somewhere else
+		if (offsetPiece) {
+			for (Point p : piece)
+				BlockBatch.drawSquare(theBoard.getColor(p.x, p.y), p.x + rowOffset, p.y + colOffset);
+		}
+		BlockBatch.end();
+	}
+
+
+
+
+	private static boolean isPieceSquare(Point[] piece, int row, int col) {
+		for (Point p : piece) {
+			if (p.x == row && p.y == col)
+				return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,100 @@
+package replay;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and encoding helpers for the replay format.
+ *
+ * A replay is a small header followed by a stream of events:
+ *
+ *   header: magic (int), version (byte), rows (varint), cols (varint), generator type (byte),
+ *           rotation system (byte), seed (long)
+ *   event:  varint (tickDelta << 4 | op), followed for PLACE by the rotation (varint), origin row and
+ *           origin col (zigzag varints)
+ *
+ * PLACE is where the driver moved the piece to, before it's dropped: it's always followed by a DROP, and
+ * by the LOCK once the piece lands. HeadlessGame and GameSimulation both record it that way.
+ *
+ * The last event is always END. Given the seed and generator the pieces are known, so only what the
+ * player (or driver) did is stored, usually one or two bytes per event.
+ *
+ */
+public class ReplayFormat {
+
+	public static final int MAGIC    = 0x5452504C;   //"TRPL"
+	public static final int VERSION  = 1;
+
+	//Event ops. Moves are always by one square.
+	public static final int OP_MOVE_LEFT    = 0;
+	public static final int OP_MOVE_RIGHT   = 1;
+	public static final int OP_MOVE_DOWN    = 2;
+	public static final int OP_ROTATE_LEFT  = 3;
+	public static final int OP_ROTATE_RIGHT = 4;
+	public static final int OP_DROP         = 5;   //ActivePiece.dropPiece()
+	public static final int OP_LOCK         = 6;   //The piece landed; full rows are cleared
+	public static final int OP_SPAWN        = 7;   //The next piece was spawned
+	public static final int OP_PLACE        = 8;   //The piece was moved straight to a placement (drivers), see below
+	public static final int OP_END          = 15;
+
+	public static final int OP_BITS = 4;
+
+
+
+
+	private ReplayFormat() {
+	}
+
+
+
+
+	/**
+	 * Gets the most bytes a single event can take.
+	 */
+	public static int getMaxEventSize() {
+		return 10 + 3 * 5;
+	}
+
+
+
+
+	public static void putVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+
+
+
+
+	public static long getVarLong(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long)(b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IllegalStateException("Malformed varint in replay.");
+	}
+
+
+
+
+	/**
+	 * Writes a signed int so small negative numbers stay small (zigzag encoding).
+	 */
+	public static void putZigZag(ByteBuffer buffer, int value) {
+		putVarLong(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+	}
+
+
+
+
+	public static int getZigZag(ByteBuffer buffer) {
+		int value = (int)getVarLong(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
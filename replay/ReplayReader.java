@@ -0,0 +1,221 @@
+package replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import generator.GeneratorType;
+import logic.BitBoard;
+import rotation.RotationSystem;
+
+/**
+ * Reads the events back out of a replay (see ReplayFormat). Replays are small, so the whole file is read
+ * into memory up front.
+ *
+ * Usage: while (reader.next()) { switch (reader.getOp()) ... }
+ *
+ */
+public class ReplayReader {
+
+	private ByteBuffer data;
+	private int eventsStart;   //Position of the first event
+
+	private int rows;
+	private int cols;
+	private GeneratorType generatorType;
+	private int rotationSystemId;
+	private long seed;
+
+	//Current event
+	private int op;
+	private long tick;
+	private int rotation;
+	private int originRow;
+	private int originCol;
+
+
+
+
+	public ReplayReader(Path path) throws IOException {
+		this(Files.readAllBytes(path));
+	}
+
+
+
+
+	public ReplayReader(byte[] bytes) throws IOException {
+		data = ByteBuffer.wrap(bytes);
+		if (data.remaining() < 5 || data.getInt() != ReplayFormat.MAGIC)
+			throw new IOException("Not a replay file.");
+		int version = data.get();
+		if (version != ReplayFormat.VERSION)
+			throw new IOException("Unsupported replay version " + version + ".");
+
+		try {
+			rows             = readSize(BitBoard.MAX_ROWS, "rows");
+			cols             = readSize(BitBoard.MAX_COLS, "columns");
+			int generatorId  = data.get() & 0xFF;
+			if (generatorId >= GeneratorType.values().length)
+				throw new IOException("Unknown generator type " + generatorId + ".");
+			generatorType    = GeneratorType.values()[generatorId];
+			rotationSystemId = data.get() & 0xFF;
+			if (rotationSystemId != RotationSystem.ID_CLASSIC && rotationSystemId != RotationSystem.ID_SRS)
+				throw new IOException("Unknown rotation system " + rotationSystemId + ".");
+			seed             = data.getLong();
+		} catch (BufferUnderflowException | IllegalStateException e) {
+			throw new IOException("The replay header is cut short or malformed.", e);
+		}
+		eventsStart      = data.position();
+		rewind();
+	}
+
+
+
+
+	/**
+	 * Reads the number of rows or columns from the header. It's checked before it's cast to an int, since a
+	 * damaged varint can hold anything.
+	 * @param max - The most a board can have.
+	 * @param what - "rows" or "columns", for the message.
+	 * @throws IOException - If the board would be empty or too big.
+	 */
+	private int readSize(int max, String what) throws IOException {
+		long size = ReplayFormat.getVarLong(data);
+		if (size < 1 || size > max)
+			throw new IOException("A replay can't have " + Long.toUnsignedString(size) + " " + what + ".");
+		return (int)size;
+	}
+
+
+
+
+	/**
+	 * Goes back to before the first event.
+	 */
+	public void rewind() {
+		seek(eventsStart, 0);
+	}
+
+
+
+
+	/**
+	 * Jumps to a position in the event stream.
+	 * @param position - Byte offset of an event, as returned by getPosition().
+	 * @param tick - The tick of the event before that position.
+	 */
+	public void seek(int position, long tick) {
+		data.position(position);
+		this.tick = tick;
+		this.op   = -1;
+	}
+
+
+
+
+	/**
+	 * Gets the byte offset of the next event.
+	 */
+	public int getPosition() {
+		return data.position();
+	}
+
+
+
+
+	/**
+	 * Reads the next event.
+	 * @return Returns false at the end of the replay.
+	 */
+	public boolean next() {
+		if (op == ReplayFormat.OP_END || !data.hasRemaining())
+			return false;
+
+		long event = ReplayFormat.getVarLong(data);
+		op    = (int)(event & ((1 << ReplayFormat.OP_BITS) - 1));
+		tick += event >>> ReplayFormat.OP_BITS;
+
+		if (op == ReplayFormat.OP_PLACE) {
+			rotation  = (int)ReplayFormat.getVarLong(data);
+			originRow = ReplayFormat.getZigZag(data);
+			originCol = ReplayFormat.getZigZag(data);
+		}
+		return op != ReplayFormat.OP_END;
+	}
+
+
+
+
+	public int getOp() {
+		return op;
+	}
+
+
+
+
+	public long getTick() {
+		return tick;
+	}
+
+
+
+
+	/**
+	 * The rotation of a PLACE event.
+	 */
+	public int getRotation() {
+		return rotation;
+	}
+
+
+
+
+	public int getOriginRow() {
+		return originRow;
+	}
+
+
+
+
+	public int getOriginCol() {
+		return originCol;
+	}
+
+
+
+
+	public int getRows() {
+		return rows;
+	}
+
+
+
+
+	public int getCols() {
+		return cols;
+	}
+
+
+
+
+	public GeneratorType getGeneratorType() {
+		return generatorType;
+	}
+
+
+
+
+	public int getRotationSystemId() {
+		return rotationSystemId;
+	}
+
+
+
+
+	public long getSeed() {
+		return seed;
+	}
+
+}
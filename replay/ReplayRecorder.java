@@ -0,0 +1,244 @@
+package replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import generator.GeneratorType;
+import pieces.GameBoardSquare.MoveType;
+import rotation.RotationSystem;
+
+/**
+ * Records a game to a replay file (see ReplayFormat for the layout).
+ *
+ * Events are encoded into an in-memory buffer on the game's thread. Full buffers are handed to a single
+ * background thread (shared by all recorders) that writes them to the file's channel, and the recorder
+ * carries on with a spare buffer, so the game loop never waits on the disk unless the writer falls several
+ * buffers behind.
+ *
+ * Call tick() once per game update; events are stamped with the number of ticks since the last event.
+ *
+ */
+public class ReplayRecorder {
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int NUM_BUFFERS = 3;
+
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Replay writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private FileChannel channel;
+	private ByteBuffer buffer;                   //Buffer being filled by the game thread
+	private BlockingQueue<ByteBuffer> spares;    //Buffers the writer is done with
+	private volatile IOException writeError;
+	private long tick;
+	private long lastEventTick;
+	private boolean closed;
+
+
+
+
+	/**
+	 * Creates (or overwrites) a replay file and writes its header.
+	 * @param seed - The seed the piece generator was created with.
+	 */
+	public ReplayRecorder(Path path, int rows, int cols, GeneratorType generatorType, long seed,
+						  RotationSystem rotationSystem) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+								   StandardOpenOption.TRUNCATE_EXISTING);
+		spares  = new ArrayBlockingQueue<ByteBuffer>(NUM_BUFFERS);
+		for (int i = 1; i < NUM_BUFFERS; ++i)
+			spares.add(ByteBuffer.allocate(BUFFER_SIZE));
+		buffer  = ByteBuffer.allocate(BUFFER_SIZE);
+
+		buffer.putInt(ReplayFormat.MAGIC);
+		buffer.put((byte)ReplayFormat.VERSION);
+		ReplayFormat.putVarLong(buffer, rows);
+		ReplayFormat.putVarLong(buffer, cols);
+		buffer.put((byte)generatorType.ordinal());
+		buffer.put((byte)RotationSystem.getId(rotationSystem));
+		buffer.putLong(seed);
+	}
+
+
+
+
+	/**
+	 * Advances the recorder's clock by one game update.
+	 */
+	public void tick() {
+		++tick;
+	}
+
+
+
+
+	public long getTick() {
+		return tick;
+	}
+
+
+
+
+	private void putEvent(int op) {
+		if (closed)
+			return;
+		if (buffer.remaining() < ReplayFormat.getMaxEventSize())
+			flush();
+
+		ReplayFormat.putVarLong(buffer, ((tick - lastEventTick) << ReplayFormat.OP_BITS) | op);
+		lastEventTick = tick;
+	}
+
+
+
+
+	public void recordMove(MoveType type) {
+		switch (type) {
+		case MOVE_LEFT:
+			putEvent(ReplayFormat.OP_MOVE_LEFT);
+			break;
+		case MOVE_RIGHT:
+			putEvent(ReplayFormat.OP_MOVE_RIGHT);
+			break;
+		case MOVE_DOWN:
+			putEvent(ReplayFormat.OP_MOVE_DOWN);
+			break;
+		}
+	}
+
+
+
+
+	public void recordRotate(boolean leftRotate) {
+		putEvent(leftRotate ? ReplayFormat.OP_ROTATE_LEFT : ReplayFormat.OP_ROTATE_RIGHT);
+	}
+
+
+
+
+	public void recordDrop() {
+		putEvent(ReplayFormat.OP_DROP);
+	}
+
+
+
+
+	public void recordLock() {
+		putEvent(ReplayFormat.OP_LOCK);
+	}
+
+
+
+
+	public void recordSpawn() {
+		putEvent(ReplayFormat.OP_SPAWN);
+	}
+
+
+
+
+	/**
+	 * Records the active piece being moved straight to a placement (see ActivePiece.moveTo()). This is where
+	 * the driver put it, before it's dropped, so record the drop after it (see ReplayFormat).
+	 */
+	public void recordPlacement(int rotation, int originRow, int originCol) {
+		putEvent(ReplayFormat.OP_PLACE);
+		if (closed)
+			return;
+		ReplayFormat.putVarLong(buffer, rotation);
+		ReplayFormat.putZigZag(buffer, originRow);
+		ReplayFormat.putZigZag(buffer, originCol);
+	}
+
+
+
+
+	/**
+	 * Hands the current buffer to the writer thread and switches to a spare one. Only blocks if all of the
+	 * spares are still waiting to be written.
+	 */
+	private void flush() {
+		final ByteBuffer full = buffer;
+		full.flip();
+		writer.execute(new Runnable() {
+			public void run() {
+				try {
+					while (full.hasRemaining())
+						channel.write(full);
+				} catch (IOException e) {
+					writeError = e;
+				}
+				full.clear();
+				spares.add(full);
+			}
+		});
+
+		try {
+			buffer = spares.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	}
+
+
+
+
+	/**
+	 * Blocks until everything handed to the writer thread so far (by any recorder) has been written. Call
+	 * this before exiting, since the writer is a daemon thread.
+	 */
+	public static void awaitWrites() {
+		try {
+			writer.submit(new Runnable() {
+				public void run() {
+				}
+			}).get();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+
+
+
+	/**
+	 * Writes the END event, and closes the file once everything has been written. Doesn't wait for the
+	 * writer thread.
+	 * @throws IOException - If an earlier write failed.
+	 */
+	public void close() throws IOException {
+		if (closed)
+			return;
+
+		putEvent(ReplayFormat.OP_END);
+		closed = true;
+		flush();
+		writer.execute(new Runnable() {
+			public void run() {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					writeError = e;
+				}
+			}
+		});
+
+		if (writeError != null)
+			throw writeError;
+	}
+
+}
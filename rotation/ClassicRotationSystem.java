@@ -0,0 +1,239 @@
+package rotation;
+
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import pieces.ActivePiece.CollisionType;
+import point.Point;
+
+/**
+ * The game's original rotation rules. Pieces rotate about their first subsquare (the pivot, which is
+ * also the origin), and the kick is worked out from what the rotated piece runs into:
+ *
+ *	I) If the piece rotated out of bounds (and isn't colliding with another piece), it's kicked back in
+ *		by the distance of its most outstanding subsquare.
+ *	II) If the piece is out of bounds and colliding with another piece, the rotation fails.
+ *	III) If the rotated piece collides with subsquares on more than one side of the ORIGINAL piece,
+ *		the rotation fails, since we can't kick the piece without causing another collision.
+ *	IV) If the rotated piece collides with subsquares on only one side of the original piece, it's
+ *		kicked away from that side, and the kicked piece must be in bounds and not colliding.
+ *
+ * Unlike the old implementation, nothing is allocated here; the collisions are tracked with a handful
+ * of ints.
+ */
+public class ClassicRotationSystem extends RotationSystem {
+
+	//Spawn states, relative to the pivot. Indexed by PieceType ordinal (L, J, S, Z, T, SQUARE, LINE).
+	private static final int[][] SPAWN_ROWS = {
+		{0, -1, 1, 1},
+		{0, -1, 1, 1},
+		{0,  0, 1, 1},
+		{0,  0, 1, 1},
+		{0, -1, 0, 0},
+		{0,  0, 1, 1},
+		{0, -1, 1, 2}
+	};
+	private static final int[][] SPAWN_COLS = {
+		{0,  0, 0,  1},
+		{0,  0, 0, -1},
+		{0,  1, 0, -1},
+		{0, -1, 0,  1},
+		{0,  0, -1, 1},
+		{0,  1, 0,  1},
+		{0,  0, 0,  0}
+	};
+	private static final int[] BOX_SIZES = {0, 0, 0, 0, 0, 1, 0};  //The square doesn't rotate
+
+
+
+
+	public ClassicRotationSystem() {
+		super(SPAWN_ROWS, SPAWN_COLS, BOX_SIZES);
+	}
+
+
+
+
+	@Override
+	public int getSpawnRow(PieceType type) {
+		switch (type) {
+		case PIECE_S:
+		case PIECE_Z:
+		case PIECE_SQUARE:
+			return 0;
+		default:
+			return 1;
+		}
+	}
+
+
+
+
+	@Override
+	public int getSpawnCol(PieceType type, int boardCols) {
+		int hw = boardCols/2;  //Half of the board's width.
+		switch (type) {
+		case PIECE_S:
+		case PIECE_Z:
+		case PIECE_SQUARE:
+			return hw - 1;
+		default:
+			return hw;
+		}
+	}
+
+
+
+
+	@Override
+	public boolean findKick(GameBoard theBoard, PieceType type, int fromRotation, int originRow, int originCol,
+							int toRotation, Point kick) {
+		kick.set(0, 0);
+
+		if (type == PieceType.PIECE_SQUARE)
+			return true;
+
+		//Bounds of the original piece, used to work out which side of it a collision is on.
+		int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE, maxRow = Integer.MIN_VALUE;
+		for (int i = 0; i < 4; ++i) {
+			minCol = Math.min(minCol, originCol + getColOffset(type, fromRotation, i));
+			maxCol = Math.max(maxCol, originCol + getColOffset(type, fromRotation, i));
+			maxRow = Math.max(maxRow, originRow + getRowOffset(type, fromRotation, i));
+		}
+
+		int rows      = theBoard.getRows();
+		int cols      = theBoard.getCols();
+
+		//Out of bounds collisions. We keep track of the "most outstanding subsquare," because, for
+		//instance, if the subsquare is 2 units out of bounds on the right, then we want to "kick" the
+		//whole shape back to the left by 2 units.
+		CollisionType oobType = CollisionType.COL_NONE;
+		boolean oobSameType   = true;
+		int oobMinCol = Integer.MAX_VALUE, oobMaxCol = Integer.MIN_VALUE, oobMaxRow = Integer.MIN_VALUE;
+
+		//Piece collisions, and which side of the original piece they're on.
+		CollisionType colType = CollisionType.COL_NONE;
+		boolean colSameType   = true;
+		int colFirst          = 0;   //Row or column of the first collision, depending on its side
+		int colUnique         = 0;
+
+		CollisionType current;
+		int row, col;
+		for (int i = 0; i < 4; ++i) {
+			row = originRow + getRowOffset(type, toRotation, i);
+			col = originCol + getColOffset(type, toRotation, i);
+
+			if (col < 0 || col >= cols || row >= rows) {
+				if (col < 0)
+					current = CollisionType.COL_LEFT;
+				else if (col >= cols)
+					current = CollisionType.COL_RIGHT;
+				else
+					current = CollisionType.COL_BOTTOM;
+
+				if (oobType == CollisionType.COL_NONE)
+					oobType = current;
+				else if (oobType != current)
+					oobSameType = false;
+
+				oobMinCol = Math.min(oobMinCol, col);
+				oobMaxCol = Math.max(oobMaxCol, col);
+				oobMaxRow = Math.max(oobMaxRow, row);
+			}
+
+			else if (theBoard.isSet(row, col)) {
+				if (col < minCol)
+					current = CollisionType.COL_LEFT;
+				else if (col > maxCol)
+					current = CollisionType.COL_RIGHT;
+				else if (row > maxRow)
+					current = CollisionType.COL_BOTTOM;
+				else
+					current = CollisionType.COL_TOP;
+
+				boolean horizontal = (current == CollisionType.COL_LEFT || current == CollisionType.COL_RIGHT);
+				if (colType == CollisionType.COL_NONE) {
+					colType   = current;
+					colFirst  = horizontal ? col : row;
+					colUnique = 1;
+				}
+				else {
+					if (colType != current)
+						colSameType = false;
+
+					//Count the subsquares that aren't in line with the first collision. This is the
+					//magnitude of the kick.
+					if ((horizontal ? col : row) != colFirst)
+						++colUnique;
+				}
+			}
+		}
+
+		boolean outOfBounds    = (oobType != CollisionType.COL_NONE);
+		boolean pieceCollision = (colType != CollisionType.COL_NONE);
+
+		if (!outOfBounds && !pieceCollision)
+			return true;
+
+		//I) Only out of bounds: kick it back in.
+		if (outOfBounds && !pieceCollision) {
+
+			//A piece can't be out of bounds on more than one side.
+			if (!oobSameType)
+				return false;
+
+			switch (oobType) {
+			case COL_LEFT:
+				kick.set(0, -oobMinCol);
+				break;
+			case COL_RIGHT:
+				kick.set(0, (cols - 1) - oobMaxCol);
+				break;
+			default:
+				kick.set((rows - 1) - oobMaxRow, 0);
+				break;
+			}
+			return !collides(theBoard, type, toRotation, originRow + kick.x, originCol + kick.y);
+		}
+
+		//II) This is a bug. A piece can be successfully kicked if it's out of bounds and colliding with
+		//another piece, although this can only happen with a line.
+		if (outOfBounds)
+			return false;
+
+		//III) Collisions on more than one side of the original piece.
+		if (!colSameType)
+			return false;
+
+		//IV) Collisions on one side only: kick the piece away from them.
+		switch (colType) {
+		case COL_LEFT:
+			kick.set(0, colUnique);
+			break;
+		case COL_RIGHT:
+			kick.set(0, -colUnique);
+			break;
+		case COL_BOTTOM:
+			kick.set(-colUnique, 0);
+			break;
+		default:
+			kick.set(colUnique, 0);
+			break;
+		}
+		return fits(theBoard, type, toRotation, originRow + kick.x, originCol + kick.y);
+	}
+
+
+
+
+	/**
+	 * Collision test that doesn't count being out of bounds as a collision.
+	 */
+	private boolean collides(GameBoard theBoard, PieceType type, int rotation, int originRow, int originCol) {
+		for (int i = 0; i < 4; ++i) {
+			if (theBoard.isSet(originRow + getRowOffset(type, rotation, i), originCol + getColOffset(type, rotation, i)))
+				return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,264 @@
+package rotation;
+
+import java.io.IOException;
+
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import point.Point;
+
+/**
+ * A RotationSystem describes how pieces rotate. Every piece type has four precomputed rotation states,
+ * each of which is a set of four (row, col) offsets from the piece's origin. Rotating a piece is then a
+ * table lookup, followed by a few collision probes to find a kick that makes the rotated piece fit.
+ *
+ * Rotation states are numbered clockwise: 0 is the spawn state, 1 is one clockwise turn from it, etc.
+ *
+ */
+public abstract class RotationSystem {
+
+	//Ids for saving which rotation system a game used (see getId())
+	public static final int ID_CLASSIC = 0;
+	public static final int ID_SRS     = 1;
+
+	//[piece type][rotation state][subsquare]
+	private byte[][][] rowOffsets;
+	private byte[][][] colOffsets;
+
+	//Symmetric pieces (the square, line, S and Z) cover the same squares in more than one rotation state.
+	//For each [piece type][rotation state], the lowest rotation state with the same shape, and the shift
+	//to apply to the origin to get the same squares in that state.
+	private byte[][] canonicalRotations;
+	private byte[][] canonicalRowShifts;
+	private byte[][] canonicalColShifts;
+
+
+
+
+	/**
+	 * @param spawnRows - Row offsets of the four subsquares of each piece type (indexed by ordinal) in its
+	 * spawn state.
+	 * @param spawnCols - Column offsets, as above.
+	 * @param boxSizes - If a piece type's box size is positive, the piece is rotated inside a box of that
+	 * size whose top left corner is the origin. Otherwise, it's rotated about the origin itself. A box
+	 * size of 1 means the piece doesn't rotate at all.
+	 */
+	protected RotationSystem(int[][] spawnRows, int[][] spawnCols, int[] boxSizes) {
+		rowOffsets = new byte[PieceType.numPieces][4][4];
+		colOffsets = new byte[PieceType.numPieces][4][4];
+
+		for (int type = 0; type < PieceType.numPieces; ++type) {
+			for (int i = 0; i < 4; ++i) {
+				int row = spawnRows[type][i];
+				int col = spawnCols[type][i];
+
+				for (int rotation = 0; rotation < 4; ++rotation) {
+					rowOffsets[type][rotation][i] = (byte)row;
+					colOffsets[type][rotation][i] = (byte)col;
+
+					//Rotate clockwise for the next state.
+					int n = boxSizes[type];
+					if (n == 1)
+						continue;
+					int rotatedRow = col;
+					int rotatedCol = (n > 0) ? n - 1 - row : -row;
+					row = rotatedRow;
+					col = rotatedCol;
+				}
+			}
+		}
+
+		findCanonicalRotations();
+	}
+
+
+
+
+	private void findCanonicalRotations() {
+		canonicalRotations = new byte[PieceType.numPieces][4];
+		canonicalRowShifts = new byte[PieceType.numPieces][4];
+		canonicalColShifts = new byte[PieceType.numPieces][4];
+
+		for (int type = 0; type < PieceType.numPieces; ++type) {
+			for (int rotation = 0; rotation < 4; ++rotation) {
+				for (int other = 0; other <= rotation; ++other) {
+					int rowShift = minOffset(rowOffsets[type][rotation]) - minOffset(rowOffsets[type][other]);
+					int colShift = minOffset(colOffsets[type][rotation]) - minOffset(colOffsets[type][other]);
+					if (sameSquares(type, rotation, other, rowShift, colShift)) {
+						canonicalRotations[type][rotation] = (byte)other;
+						canonicalRowShifts[type][rotation] = (byte)rowShift;
+						canonicalColShifts[type][rotation] = (byte)colShift;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+
+
+
+	private static int minOffset(byte[] offsets) {
+		int min = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; ++i)
+			min = Math.min(min, offsets[i]);
+		return min;
+	}
+
+
+
+
+	/**
+	 * Checks whether a piece in rotation state "rotation" covers the same squares as a piece in state
+	 * "other" whose origin is shifted by (rowShift, colShift).
+	 */
+	private boolean sameSquares(int type, int rotation, int other, int rowShift, int colShift) {
+		for (int i = 0; i < 4; ++i) {
+			boolean found = false;
+			for (int j = 0; j < 4 && !found; ++j) {
+				found = rowOffsets[type][rotation][i] == rowOffsets[type][other][j] + rowShift &&
+						colOffsets[type][rotation][i] == colOffsets[type][other][j] + colShift;
+			}
+			if (!found)
+				return false;
+		}
+		return true;
+	}
+
+
+
+
+	public static int rotateLeft(int rotation) {
+		return (rotation + 3) & 3;
+	}
+
+
+
+
+	public static int rotateRight(int rotation) {
+		return (rotation + 1) & 3;
+	}
+
+
+
+
+	public int getRowOffset(PieceType type, int rotation, int subsquare) {
+		return rowOffsets[type.ordinal()][rotation][subsquare];
+	}
+
+
+
+
+	public int getColOffset(PieceType type, int rotation, int subsquare) {
+		return colOffsets[type.ordinal()][rotation][subsquare];
+	}
+
+
+
+
+	/**
+	 * Gets the lowest rotation state that has the same shape as the given one. A piece in rotation state
+	 * r with origin (row, col) covers the same squares as a piece in state getCanonicalRotation(r) with
+	 * origin (row + getCanonicalRowShift(r), col + getCanonicalColShift(r)).
+	 */
+	public int getCanonicalRotation(PieceType type, int rotation) {
+		return canonicalRotations[type.ordinal()][rotation];
+	}
+
+
+
+
+	public int getCanonicalRowShift(PieceType type, int rotation) {
+		return canonicalRowShifts[type.ordinal()][rotation];
+	}
+
+
+
+
+	public int getCanonicalColShift(PieceType type, int rotation) {
+		return canonicalColShifts[type.ordinal()][rotation];
+	}
+
+
+
+
+	/**
+	 * Checks whether a piece in the given rotation state and at the given origin would be entirely in
+	 * bounds and not colliding with anything on the board.
+	 */
+	public boolean fits(GameBoard theBoard, PieceType type, int rotation, int originRow, int originCol) {
+		byte[] rows = rowOffsets[type.ordinal()][rotation];
+		byte[] cols = colOffsets[type.ordinal()][rotation];
+		int row, col;
+
+		for (int i = 0; i < 4; ++i) {
+			row = originRow + rows[i];
+			col = originCol + cols[i];
+			if (!theBoard.inBounds(row, col) || theBoard.isSet(row, col))
+				return false;
+		}
+		return true;
+	}
+
+
+
+
+	/**
+	 * Gets the id of a rotation system, for storing in replays and save states.
+	 */
+	public static int getId(RotationSystem rotationSystem) {
+		return (rotationSystem instanceof SRSRotationSystem) ? ID_SRS : ID_CLASSIC;
+	}
+
+
+
+
+	/**
+	 * Creates the rotation system with the given id (see getId()).
+	 * @throws IOException - If there's no rotation system with that id.
+	 */
+	public static RotationSystem fromId(int id) throws IOException {
+		switch (id) {
+		case ID_CLASSIC:
+			return new ClassicRotationSystem();
+		case ID_SRS:
+			return new SRSRotationSystem();
+		default:
+			throw new IOException("Unknown rotation system " + id + ".");
+		}
+	}
+
+
+
+
+	/**
+	 * The row of the origin of a freshly spawned piece.
+	 */
+	public abstract int getSpawnRow(PieceType type);
+
+
+
+
+	/**
+	 * The column of the origin of a freshly spawned piece.
+	 */
+	public abstract int getSpawnCol(PieceType type, int boardCols);
+
+
+
+
+	/**
+	 * Finds the kick that lets a piece rotate into a new state. The piece must not be on the board, so it
+	 * doesn't collide with itself. Nothing on the board is changed.
+	 * @param theBoard - The board.
+	 * @param type - The piece's type.
+	 * @param fromRotation - The piece's current rotation state.
+	 * @param originRow - The row of the piece's current origin.
+	 * @param originCol - The column of the piece's current origin.
+	 * @param toRotation - The rotation state we're trying to rotate into.
+	 * @param kick - Receives the (row, col) offset to add to the piece's origin after rotating.
+	 * @return Returns true if the rotation is possible, and false otherwise.
+	 */
+	public abstract boolean findKick(GameBoard theBoard, PieceType type, int fromRotation, int originRow, int originCol,
+									 int toRotation, Point kick);
+
+}
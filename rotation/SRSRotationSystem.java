@@ -0,0 +1,125 @@
+package rotation;
+
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import point.Point;
+
+/**
+ * The Super Rotation System (SRS). Pieces rotate inside a 3x3 box (4x4 for the line), whose top left
+ * corner is the origin, and each rotation tries up to five kicks from a fixed table, in order. The first
+ * kick that fits wins.
+ *
+ */
+public class SRSRotationSystem extends RotationSystem {
+
+	//Spawn states, relative to the top left of the box. Indexed by PieceType ordinal (L, J, S, Z, T,
+	//SQUARE, LINE).
+	private static final int[][] SPAWN_ROWS = {
+		{0, 1, 1, 1},
+		{0, 1, 1, 1},
+		{0, 0, 1, 1},
+		{0, 0, 1, 1},
+		{0, 1, 1, 1},
+		{0, 0, 1, 1},
+		{1, 1, 1, 1}
+	};
+	private static final int[][] SPAWN_COLS = {
+		{2, 0, 1, 2},
+		{0, 0, 1, 2},
+		{1, 2, 0, 1},
+		{0, 1, 1, 2},
+		{1, 0, 1, 2},
+		{0, 1, 0, 1},
+		{0, 1, 2, 3}
+	};
+	private static final int[] BOX_SIZES = {3, 3, 3, 3, 3, 1, 4};  //The square doesn't rotate
+
+	//Kick tables, as (row, col) offsets with rows increasing downwards, tried in order.
+	//Indexed by [from rotation][0 = clockwise, 1 = counter-clockwise][kick].
+	private static final int[][][] JLSTZ_KICK_ROWS = {
+		{{0,  0, -1, 2,  2}, {0,  0, -1, 2,  2}},    //0->R, 0->L
+		{{0,  0,  1, -2, -2}, {0,  0,  1, -2, -2}},  //R->2, R->0
+		{{0,  0, -1, 2,  2}, {0,  0, -1, 2,  2}},    //2->L, 2->R
+		{{0,  0,  1, -2, -2}, {0,  0,  1, -2, -2}}   //L->0, L->2
+	};
+	private static final int[][][] JLSTZ_KICK_COLS = {
+		{{0, -1, -1, 0, -1}, {0,  1,  1, 0,  1}},
+		{{0,  1,  1, 0,  1}, {0,  1,  1, 0,  1}},
+		{{0,  1,  1, 0,  1}, {0, -1, -1, 0, -1}},
+		{{0, -1, -1, 0, -1}, {0, -1, -1, 0, -1}}
+	};
+	private static final int[][][] LINE_KICK_ROWS = {
+		{{0, 0, 0,  1, -2}, {0, 0, 0, -2,  1}},
+		{{0, 0, 0, -2,  1}, {0, 0, 0, -1,  2}},
+		{{0, 0, 0, -1,  2}, {0, 0, 0,  2, -1}},
+		{{0, 0, 0,  2, -1}, {0, 0, 0,  1, -2}}
+	};
+	private static final int[][][] LINE_KICK_COLS = {
+		{{0, -2,  1, -2,  1}, {0, -1,  2, -1,  2}},
+		{{0, -1,  2, -1,  2}, {0,  2, -1,  2, -1}},
+		{{0,  2, -1,  2, -1}, {0,  1, -2,  1, -2}},
+		{{0,  1, -2,  1, -2}, {0, -2,  1, -2,  1}}
+	};
+
+
+
+
+	public SRSRotationSystem() {
+		super(SPAWN_ROWS, SPAWN_COLS, BOX_SIZES);
+	}
+
+
+
+
+	private static int getBoxSize(PieceType type) {
+		return BOX_SIZES[type.ordinal()] == 1 ? 2 : BOX_SIZES[type.ordinal()];
+	}
+
+
+
+
+	@Override
+	public int getSpawnRow(PieceType type) {
+		return type == PieceType.PIECE_LINE ? -1 : 0;  //Put the line's only row at the top of the board
+	}
+
+
+
+
+	@Override
+	public int getSpawnCol(PieceType type, int boardCols) {
+		return (boardCols - getBoxSize(type)) / 2;
+	}
+
+
+
+
+	@Override
+	public boolean findKick(GameBoard theBoard, PieceType type, int from, int originRow, int originCol,
+							int toRotation, Point kick) {
+		if (type == PieceType.PIECE_SQUARE) {
+			kick.set(0, 0);
+			return fits(theBoard, type, toRotation, originRow, originCol);
+		}
+
+		int direction = (toRotation == rotateRight(from)) ? 0 : 1;
+		int[] kickRows, kickCols;
+		if (type == PieceType.PIECE_LINE) {
+			kickRows = LINE_KICK_ROWS[from][direction];
+			kickCols = LINE_KICK_COLS[from][direction];
+		}
+		else {
+			kickRows = JLSTZ_KICK_ROWS[from][direction];
+			kickCols = JLSTZ_KICK_COLS[from][direction];
+		}
+
+		for (int i = 0; i < kickRows.length; ++i) {
+			if (fits(theBoard, type, toRotation, originRow + kickRows[i], originCol + kickCols[i])) {
+				kick.set(kickRows[i], kickCols[i]);
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
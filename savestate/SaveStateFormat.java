@@ -0,0 +1,53 @@
+package savestate;
+
+/**
+ * Layout of a save state: a fixed-size session header, followed by the game board's state (see
+ * GameBoard.writeState()).
+ *
+ *   offset  size  field
+ *   0       4     magic
+ *   4       1     version
+ *   5       1     flags (FLAG_*)
+ *   6       8     gravity timer's elapsed time, in nanoseconds
+ *   14      4     pieces placed
+ *   18      4     lines cleared
+ *   22      ...   board state
+ *
+ * All values are big-endian. The header is read in place by SaveStateReader, so its fields have fixed
+ * offsets; anything new goes after it, with a new version number.
+ *
+ */
+public class SaveStateFormat {
+
+	public static final int MAGIC   = 0x54534156;   //"TSAV"
+	public static final int VERSION = 1;
+
+	public static final int OFFSET_MAGIC          = 0;
+	public static final int OFFSET_VERSION        = 4;
+	public static final int OFFSET_FLAGS          = 5;
+	public static final int OFFSET_GRAVITY_TIME   = 6;
+	public static final int OFFSET_PIECES_PLACED  = 14;
+	public static final int OFFSET_LINES_CLEARED  = 18;
+	public static final int HEADER_SIZE           = 22;
+
+	public static final int FLAG_GAME_OVER          = 1;
+	public static final int FLAG_STARTED            = 2;   //The first piece has spawned
+	public static final int FLAG_LINE_CLEAR_PENDING = 4;   //Rows were just cleared; the next piece hasn't spawned
+
+
+
+	private SaveStateFormat() {
+	}
+
+
+
+
+	/**
+	 * Gets an upper bound on the size of a save state for a board of the given size, for sizing buffers.
+	 */
+	public static int getMaxSize(int rows, int cols) {
+		//Header, board header and active piece, preview and generator (generously), cleared rows, squares
+		return HEADER_SIZE + 3 + 12 + 64 + 1 + rows + rows * 4 + (rows * cols + 1) / 2;
+	}
+
+}
@@ -0,0 +1,107 @@
+package savestate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import logic.GameBoard;
+
+/**
+ * Reads a save state (see SaveStateFormat) straight out of a ByteBuffer. The header fields are read in
+ * place when asked for, and the board is decoded directly into a GameBoard, so nothing is copied along
+ * the way.
+ *
+ */
+public class SaveStateReader {
+
+	private ByteBuffer buffer;
+	private int start;   //Offset of the save state in the buffer
+
+
+
+
+	/**
+	 * Wraps a save state that starts at the buffer's position. The buffer's position isn't changed.
+	 * @throws IOException - If the buffer doesn't hold a save state this version can read.
+	 */
+	public SaveStateReader(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		this.start  = buffer.position();
+
+		if (buffer.remaining() < SaveStateFormat.HEADER_SIZE ||
+			buffer.getInt(start + SaveStateFormat.OFFSET_MAGIC) != SaveStateFormat.MAGIC)
+			throw new IOException("Not a save state.");
+
+		int version = buffer.get(start + SaveStateFormat.OFFSET_VERSION);
+		if (version != SaveStateFormat.VERSION)
+			throw new IOException("Unsupported save state version " + version + ".");
+	}
+
+
+
+
+	public int getFlags() {
+		return buffer.get(start + SaveStateFormat.OFFSET_FLAGS);
+	}
+
+
+
+
+	public boolean hasFlag(int flag) {
+		return (getFlags() & flag) != 0;
+	}
+
+
+
+
+	public long getGravityTime() {
+		return buffer.getLong(start + SaveStateFormat.OFFSET_GRAVITY_TIME);
+	}
+
+
+
+
+	public int getPiecesPlaced() {
+		return buffer.getInt(start + SaveStateFormat.OFFSET_PIECES_PLACED);
+	}
+
+
+
+
+	public int getLinesCleared() {
+		return buffer.getInt(start + SaveStateFormat.OFFSET_LINES_CLEARED);
+	}
+
+
+
+
+	/**
+	 * Gets the number of rows of the saved board.
+	 */
+	public int getRows() {
+		return buffer.get(start + SaveStateFormat.HEADER_SIZE) & 0xFF;
+	}
+
+
+
+
+	public int getCols() {
+		return buffer.get(start + SaveStateFormat.HEADER_SIZE + 1) & 0xFF;
+	}
+
+
+
+
+	/**
+	 * Replaces a board's game state with the saved one.
+	 * @param theBoard - A board of the saved size (see getRows() and getCols()).
+	 * @return Returns the total size of the save state, in bytes.
+	 * @throws IOException - If the saved board is a different size, or is corrupt.
+	 */
+	public int restoreBoard(GameBoard theBoard) throws IOException {
+		ByteBuffer view = buffer.duplicate();
+		view.position(start + SaveStateFormat.HEADER_SIZE);
+		theBoard.readState(view);
+		return view.position() - start;
+	}
+
+}
@@ -0,0 +1,38 @@
+package savestate;
+
+import java.nio.ByteBuffer;
+
+import logic.GameBoard;
+
+/**
+ * Writes save states (see SaveStateFormat).
+ *
+ */
+public class SaveStateWriter {
+
+	private SaveStateWriter() {
+	}
+
+
+
+
+	/**
+	 * Writes a session to a buffer, starting at the buffer's position.
+	 * @param flags - Any of the SaveStateFormat.FLAG_* values.
+	 * @param gravityTime - The gravity timer's elapsed time, in nanoseconds.
+	 * @return Returns the number of bytes written.
+	 */
+	public static int write(ByteBuffer buffer, GameBoard theBoard, int flags, long gravityTime, int piecesPlaced,
+							int linesCleared) {
+		int start = buffer.position();
+		buffer.putInt(SaveStateFormat.MAGIC);
+		buffer.put((byte)SaveStateFormat.VERSION);
+		buffer.put((byte)flags);
+		buffer.putLong(gravityTime);
+		buffer.putInt(piecesPlaced);
+		buffer.putInt(linesCleared);
+		theBoard.writeState(buffer);
+		return buffer.position() - start;
+	}
+
+}
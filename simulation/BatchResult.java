@@ -0,0 +1,115 @@
+package simulation;
+
+/**
+ * Aggregated results of a batch of simulated games. The individual results are kept in game order, so a
+ * batch run with the same master seed produces the same BatchResult no matter how many threads ran it.
+ *
+ */
+public class BatchResult {
+
+	private GameResult[] results;
+	private long totalPieces = 0;
+	private long totalLines  = 0;
+	private int gamesOver    = 0;
+	private int minLines     = Integer.MAX_VALUE;
+	private int maxLines     = 0;
+	private long elapsedTime;   //Nanoseconds
+
+
+
+
+	public BatchResult(GameResult[] results, long elapsedTime) {
+		this.results     = results;
+		this.elapsedTime = elapsedTime;
+
+		for (GameResult r : results) {
+			totalPieces += r.getPiecesPlaced();
+			totalLines  += r.getLinesCleared();
+			minLines     = Math.min(minLines, r.getLinesCleared());
+			maxLines     = Math.max(maxLines, r.getLinesCleared());
+			if (r.isGameOver())
+				++gamesOver;
+		}
+
+		if (results.length == 0)
+			minLines = 0;
+	}
+
+
+
+
+	public int getNumGames() {
+		return results.length;
+	}
+
+
+
+
+	public GameResult getResult(int game) {
+		return results[game];
+	}
+
+
+
+
+	public long getTotalPieces() {
+		return totalPieces;
+	}
+
+
+
+
+	public long getTotalLines() {
+		return totalLines;
+	}
+
+
+
+
+	public int getGamesOver() {
+		return gamesOver;
+	}
+
+
+
+
+	public int getMinLines() {
+		return minLines;
+	}
+
+
+
+
+	public int getMaxLines() {
+		return maxLines;
+	}
+
+
+
+
+	public double getAverageLines() {
+		return results.length == 0 ? 0d : (double)totalLines / results.length;
+	}
+
+
+
+
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+
+
+
+	@Override
+	public String toString() {
+		double seconds = elapsedTime / 1000000000d;
+		return "Games: "          + results.length + "\n" +
+			   "Games over: "     + gamesOver      + "\n" +
+			   "Pieces placed: "  + totalPieces    + "\n" +
+			   "Lines cleared: "  + totalLines     + " (min " + minLines + ", avg " + getAverageLines() + ", max " + maxLines + ")\n" +
+			   "Time (s): "       + seconds        + "\n" +
+			   "Pieces/second: "  + (seconds > 0 ? totalPieces / seconds : 0d);
+	}
+
+}
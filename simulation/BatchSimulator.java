@@ -0,0 +1,176 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import generator.GeneratorType;
+import headless.HeadlessGame;
+import logic.GameBoard;
+import replay.ReplayRecorder;
+
+/**
+ * Runs many independent headless games across all cores on a fork-join pool. Each game gets its own
+ * GameBoard, Driver and seed.
+ *
+ * Seeds are derived from the master seed and the game's index (not from the thread that happens to run
+ * it), so a batch is reproducible regardless of the pool's parallelism.
+ *
+ */
+public class BatchSimulator {
+
+	private static final int GAMES_PER_TASK = 4;   //Below this, stop splitting and just play the games
+
+	private int rows;
+	private int cols;
+	private int maxPieces;
+	private DriverFactory driverFactory;
+	private ForkJoinPool pool;
+	private GeneratorType generatorType = GeneratorType.XORSHIFT;
+	private Path replayDirectory        = null;   //If set, every game is recorded here
+
+
+
+
+	public BatchSimulator(int rows, int cols, int maxPieces, DriverFactory driverFactory) {
+		this(rows, cols, maxPieces, driverFactory, ForkJoinPool.commonPool());
+	}
+
+
+
+
+	public BatchSimulator(int rows, int cols, int maxPieces, DriverFactory driverFactory, ForkJoinPool pool) {
+		this.rows          = rows;
+		this.cols          = cols;
+		this.maxPieces     = maxPieces;
+		this.driverFactory = driverFactory;
+		this.pool          = pool;
+	}
+
+
+
+
+	/**
+	 * Sets which piece generator the games use. Each game's generator is seeded with the game's seed.
+	 */
+	public void setGeneratorType(GeneratorType generatorType) {
+		this.generatorType = generatorType;
+	}
+
+
+
+
+	/**
+	 * Records every game to a replay in the given directory, named after the game's seed.
+	 * @param replayDirectory - The directory (created if needed), or null to stop recording.
+	 */
+	public void setReplayDirectory(Path replayDirectory) {
+		this.replayDirectory = replayDirectory;
+	}
+
+
+
+
+	/**
+	 * SplitMix64. Used to derive well-spread, independent seeds from a master seed and an index.
+	 */
+	public static long deriveSeed(long masterSeed, long index) {
+		long z = masterSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+
+
+
+	/**
+	 * Plays a single game to completion (or until maxPieces pieces have been placed).
+	 */
+	public GameResult playGame(long seed) {
+		GameBoard theBoard = new GameBoard(rows, cols, generatorType.create(seed));
+		HeadlessGame game  = new HeadlessGame(theBoard, driverFactory.createDriver(deriveSeed(seed, 0)));
+		ReplayRecorder recorder = null;
+
+		if (replayDirectory != null) {
+			try {
+				Files.createDirectories(replayDirectory);
+				recorder = new ReplayRecorder(replayDirectory.resolve(Long.toHexString(seed) + ".replay"), rows, cols,
+											  generatorType, seed, theBoard.getRotationSystem());
+				game.setRecorder(recorder);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		game.run(maxPieces);
+
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return new GameResult(seed, game.getPiecesPlaced(), game.getLinesCleared(), game.isGameOver());
+	}
+
+
+
+
+	public BatchResult run(int numGames, long masterSeed) {
+		GameResult[] results = new GameResult[numGames];
+
+		long start = System.nanoTime();
+		pool.invoke(new SimulationTask(results, masterSeed, 0, numGames));
+		if (replayDirectory != null)
+			ReplayRecorder.awaitWrites();
+		long end   = System.nanoTime();
+
+		return new BatchResult(results, end - start);
+	}
+
+
+
+
+	/**
+	 * Plays the games in [begin, end), splitting the range in half until it's small enough. Results are
+	 * written straight into their slot of the shared array, so no merging is needed.
+	 */
+	private class SimulationTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private GameResult[] results;
+		private long masterSeed;
+		private int begin;
+		private int end;
+
+
+
+		public SimulationTask(GameResult[] results, long masterSeed, int begin, int end) {
+			this.results    = results;
+			this.masterSeed = masterSeed;
+			this.begin      = begin;
+			this.end        = end;
+		}
+
+
+
+		@Override
+		protected void compute() {
+			if (end - begin <= GAMES_PER_TASK) {
+				for (int i = begin; i < end; ++i)
+					results[i] = playGame(deriveSeed(masterSeed, i));
+				return;
+			}
+
+			int mid = (begin + end) >>> 1;
+			invokeAll(new SimulationTask(results, masterSeed, begin, mid),
+					  new SimulationTask(results, masterSeed, mid, end));
+		}
+	}
+
+}
@@ -0,0 +1,12 @@
+package simulation;
+
+import headless.Driver;
+
+/**
+ * Creates a fresh Driver for each simulated game. Drivers may keep state (an RNG, search buffers, etc.),
+ * so games never share one.
+ *
+ */
+public interface DriverFactory {
+	public Driver createDriver(long seed);
+}
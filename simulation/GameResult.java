@@ -0,0 +1,52 @@
+package simulation;
+
+/**
+ * The outcome of a single simulated game.
+ *
+ */
+public class GameResult {
+
+	private long seed;
+	private int piecesPlaced;
+	private int linesCleared;
+	private boolean gameOver;
+
+
+
+
+	public GameResult(long seed, int piecesPlaced, int linesCleared, boolean gameOver) {
+		this.seed         = seed;
+		this.piecesPlaced = piecesPlaced;
+		this.linesCleared = linesCleared;
+		this.gameOver     = gameOver;
+	}
+
+
+
+
+	public long getSeed() {
+		return seed;
+	}
+
+
+
+
+	public int getPiecesPlaced() {
+		return piecesPlaced;
+	}
+
+
+
+
+	public int getLinesCleared() {
+		return linesCleared;
+	}
+
+
+
+
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+}
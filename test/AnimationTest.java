@@ -0,0 +1,142 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.newdawn.slick.Graphics;
+
+import animation.Animation;
+import animation.AnimationPool;
+import animation.AnimationScheduler;
+
+/**
+ * Checks AnimationScheduler and AnimationPool with a stand-in animation that records what happens to it:
+ * the time each animation is handed, the order they're drawn in, and that every one goes back to its pool
+ * exactly once, whether it finishes, is cancelled or is cleared. Nothing here draws, so Slick's Graphics
+ * is only ever passed as null.
+ *
+ */
+public class AnimationTest extends TestCase {
+
+	private static final long ms = 1000000L;
+
+
+
+
+	/**
+	 * Plays for its duration, and records when it's updated, drawn and ended.
+	 */
+	private static class TestAnimation extends Animation {
+		private int id;
+		private long duration;
+		private long lastElapsed;
+		private int ends;
+		private List<Integer> drawn;
+
+
+
+		@Override
+		protected boolean update(long elapsed) {
+			lastElapsed = elapsed;
+			return elapsed < duration;
+		}
+
+
+
+		@Override
+		public void render(Graphics g) {
+			drawn.add(id);
+		}
+
+
+
+		@Override
+		protected void end() {
+			++ends;
+		}
+	}
+
+
+
+
+	private static class TestPool extends AnimationPool<TestAnimation> {
+		private int created;
+
+
+
+		public TestPool(int size) {
+			super(size);
+		}
+
+
+
+		@Override
+		protected TestAnimation create() {
+			++created;
+			return new TestAnimation();
+		}
+	}
+
+
+
+
+	@Override
+	public void run() {
+		TestPool pool                = new TestPool(3);
+		AnimationScheduler scheduler = new AnimationScheduler(2);
+		List<Integer> drawn          = new ArrayList<Integer>();
+		checkEquals(3, pool.created, "Animations created up front");
+		checkEquals(3, pool.getFreeCount(), "Free animations up front");
+
+		//Five at once: the pool and the scheduler both have to grow
+		TestAnimation[] animations = new TestAnimation[5];
+		for (int i = 0; i < animations.length; ++i) {
+			animations[i]          = pool.obtain();
+			animations[i].id       = i;
+			animations[i].duration = (i + 1) * 10 * ms;
+			animations[i].drawn    = drawn;
+			scheduler.start(animations[i], 100 * ms + i * ms);
+			check(animations[i].isActive(), "Animation " + i + " isn't active once started");
+		}
+		checkEquals(5, pool.created, "Animations created after taking 5");
+		checkEquals(0, pool.getFreeCount(), "Free animations after taking 5");
+		checkEquals(5, scheduler.getActiveCount(), "Playing animations");
+
+		//Each one is handed the time since it started
+		scheduler.update(115 * ms);
+		checkEquals(15 * ms, animations[0].lastElapsed, "Time handed to animation 0");
+		checkEquals(11 * ms, animations[4].lastElapsed, "Time handed to animation 4");
+
+		//Animation 0 (10ms) is done, 1 is cancelled, and the rest still draw in the order they started
+		checkEquals(4, scheduler.getActiveCount(), "Playing after the first finished");
+		scheduler.cancel(animations[1]);
+		scheduler.cancel(animations[1]);
+		checkEquals(3, scheduler.getActiveCount(), "Playing after a cancel");
+		check(!animations[0].isActive() && !animations[1].isActive(), "Finished animations still active");
+		checkEquals(1, animations[1].ends, "Ends of an animation cancelled twice");
+		checkEquals(2, pool.getFreeCount(), "Free animations after one finished and one was cancelled");
+
+		drawn.clear();
+		scheduler.render(null);
+		check(drawn.toString().equals("[2, 3, 4]"), "Drawn in the order " + drawn);
+
+		//Taking them again reuses the freed ones
+		TestAnimation reused = pool.obtain();
+		check(reused == animations[1], "The pool didn't hand back the last one freed");
+		checkEquals(5, pool.created, "Animations created after reuse");
+		reused.id = 5;
+		scheduler.start(reused, 120 * ms);
+		drawn.clear();
+		scheduler.render(null);
+		check(drawn.toString().equals("[2, 3, 4, 5]"), "Drawn in the order " + drawn);
+
+		scheduler.clear();
+		checkEquals(0, scheduler.getActiveCount(), "Playing after clear()");
+		checkEquals(5, pool.getFreeCount(), "Free animations after clear()");
+		for (int i = 0; i < animations.length; ++i)
+			check(!animations[i].isActive(), "Animation " + i + " still active after clear()");
+		checkEquals(2, reused.ends, "Ends of the reused animation");
+		checkEquals(5, pool.created, "Animations created in all");
+	}
+
+}
@@ -0,0 +1,78 @@
+package test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import generator.GeneratorType;
+import headless.Driver;
+import headless.RandomDriver;
+import simulation.BatchResult;
+import simulation.BatchSimulator;
+import simulation.DriverFactory;
+import simulation.GameResult;
+
+/**
+ * Runs the same seeded batch on pools of different sizes. Every game has to come out the same whatever
+ * the number of threads, and running the batch again has to give the same results.
+ *
+ */
+public class BatchReproducibilityTest extends TestCase {
+
+	private static final int rows      = 22;
+	private static final int cols      = 10;
+	private static final int numGames  = 24;
+	private static final int maxPieces = 300;
+	private static final long seed     = 12345;
+
+
+
+
+	@Override
+	public void run() {
+		DriverFactory driverFactory = new DriverFactory() {
+			@Override
+			public Driver createDriver(long driverSeed) {
+				return new RandomDriver(driverSeed);
+			}
+		};
+
+		for (GeneratorType generatorType : GeneratorType.values()) {
+			BatchResult expected = null;
+			for (int threads : new int[] { 1, 4, 1, 7 }) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				try {
+					BatchSimulator simulator = new BatchSimulator(rows, cols, maxPieces, driverFactory, pool);
+					simulator.setGeneratorType(generatorType);
+					BatchResult result = simulator.run(numGames, seed);
+					if (expected == null)
+						expected = result;
+					else
+						checkSame(expected, result, generatorType + " on " + threads + " threads");
+				} finally {
+					pool.shutdown();
+				}
+			}
+
+			//Different games should actually differ, or the comparison above proves nothing
+			boolean allSame = true;
+			for (int game = 1; game < numGames; ++game)
+				allSame &= expected.getResult(game).getPiecesPlaced() == expected.getResult(0).getPiecesPlaced();
+			check(!allSame, "Every " + generatorType + " game placed the same number of pieces");
+		}
+	}
+
+
+
+
+	private static void checkSame(BatchResult expected, BatchResult actual, String where) {
+		checkEquals(expected.getNumGames(), actual.getNumGames(), "Games in " + where);
+		for (int game = 0; game < expected.getNumGames(); ++game) {
+			GameResult a = expected.getResult(game);
+			GameResult b = actual.getResult(game);
+			checkEquals(a.getSeed(), b.getSeed(), "Seed of game " + game + " in " + where);
+			checkEquals(a.getPiecesPlaced(), b.getPiecesPlaced(), "Pieces of game " + game + " in " + where);
+			checkEquals(a.getLinesCleared(), b.getLinesCleared(), "Lines of game " + game + " in " + where);
+			check(a.isGameOver() == b.isGameOver(), "Game over of game " + game + " in " + where);
+		}
+	}
+
+}
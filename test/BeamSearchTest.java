@@ -0,0 +1,59 @@
+package test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import ai.BeamSearchDriver;
+import ai.BoardEvaluator;
+import generator.GeneratorType;
+import headless.HeadlessGame;
+import logic.GameBoard;
+
+/**
+ * Plays the same games with the beam search on pools of different sizes. Without a time budget the search
+ * has to pick the same placement for every piece, whatever the number of threads.
+ *
+ */
+public class BeamSearchTest extends TestCase {
+
+	private static final int rows      = 22;
+	private static final int cols      = 10;
+	private static final int numPieces = 150;
+
+
+
+
+	@Override
+	public void run() {
+		for (GeneratorType generatorType : GeneratorType.values()) {
+			long[] expected = null;
+			for (int threads : new int[] { 1, 2, 4, 8 }) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				try {
+					long[] hashes = play(generatorType, pool);
+					if (expected == null)
+						expected = hashes;
+					for (int i = 0; i < numPieces; ++i)
+						checkEquals(expected[i], hashes[i], "Board after piece " + i + " of " + generatorType + " on " + threads + " threads");
+				} finally {
+					pool.shutdown();
+				}
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * @return Returns the board's hash after each piece (0 once the game is over).
+	 */
+	private static long[] play(GeneratorType generatorType, ForkJoinPool pool) {
+		GameBoard board     = new GameBoard(rows, cols, generatorType.create(21));
+		HeadlessGame game   = new HeadlessGame(board, new BeamSearchDriver(8, 3, 0, new BoardEvaluator(), pool));
+		long[] hashes       = new long[numPieces];
+		for (int i = 0; i < numPieces && game.step(); ++i)
+			hashes[i] = board.getHash();
+		return hashes;
+	}
+
+}
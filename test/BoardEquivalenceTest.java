@@ -0,0 +1,155 @@
+package test;
+
+import java.util.Random;
+
+import logic.BitBoard;
+import logic.BoardSnapshot;
+import logic.GameBoard;
+
+/**
+ * Checks that GameBoard (backed by a BitBoard) behaves like the plain grid of squares it replaced. A
+ * reference grid of color indices and a GameBoard get the same random sets, clears and line clears, and
+ * after every one all of the board's queries (occupancy, colors, row masks and counts, column heights and
+ * the hash) have to agree with what the grid says.
+ *
+ */
+public class BoardEquivalenceTest extends TestCase {
+
+	private static final int rows   = 22;
+	private static final int cols   = 10;
+	private static final int trials = 200;
+	private static final int steps  = 500;
+
+
+
+
+	@Override
+	public void run() {
+		Random random = new Random(1);
+		for (int trial = 0; trial < trials; ++trial) {
+			GameBoard board = new GameBoard(rows, cols, 0);
+			byte[][] grid   = new byte[rows][cols];
+
+			for (int step = 0; step < steps; ++step) {
+				int op  = random.nextInt(20);
+				int row = rows - 1 - Math.min(random.nextInt(rows), random.nextInt(rows));   //Mostly low rows
+				int col = random.nextInt(cols);
+
+				if (op < 14) {
+					byte color  = (byte)(1 + random.nextInt(GameBoard.PieceType.numPieces));
+					boolean set = board.setSquare(row, col, color);
+					check(set == (grid[row][col] == 0), "setSquare(" + row + ", " + col + ") returned " + set);
+					if (set)
+						grid[row][col] = color;
+				}
+				else if (op < 17) {
+					board.clearSquare(row, col);
+					grid[row][col] = 0;
+				}
+				else if (op < 18) {
+					board.clearRow(row);
+					grid[row] = new byte[cols];
+				}
+				else {
+					checkEquals(clearFullRows(grid), board.clearFullRows(), "Rows cleared");
+				}
+
+				checkSame(grid, board, "trial " + trial + ", step " + step);
+			}
+
+			//Copies and snapshots have to carry everything over too
+			GameBoard copy = new GameBoard(rows, cols, 0);
+			copy.copySquaresFrom(board);
+			checkSame(grid, copy, "copy of trial " + trial);
+
+			BoardSnapshot snapshot = board.snapshot();
+			board.clearFullRows();
+			board.clearRow(rows - 1);
+			board.restore(snapshot);
+			checkSame(grid, board, "restore of trial " + trial);
+		}
+
+		checkTallestBoard();
+	}
+
+
+
+
+	/**
+	 * Heights are stored in bytes, so the tallest board allowed has to work all the way up, and anything
+	 * taller has to be turned away.
+	 */
+	private void checkTallestBoard() {
+		GameBoard board = new GameBoard(BitBoard.MAX_ROWS, cols, 0);
+		board.setSquare(0, 3, (byte)1);
+		checkEquals(BitBoard.MAX_ROWS, board.getColumnHeight(3), "Height of a full-height column");
+		board.clearSquare(0, 3);
+		checkEquals(0, board.getColumnHeight(3), "Height of an emptied column");
+
+		try {
+			new GameBoard(BitBoard.MAX_ROWS + 1, cols, 0);
+			throw new AssertionError("A board with " + (BitBoard.MAX_ROWS + 1) + " rows was allowed");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+
+
+
+	/**
+	 * Removes the full rows from a grid and shifts the rows above them down, the slow way.
+	 * @return Returns the number of rows removed.
+	 */
+	private static int clearFullRows(byte[][] grid) {
+		int cleared = 0;
+		for (int row = rows - 1; row >= 0; --row) {
+			boolean full = true;
+			for (int col = 0; col < cols; ++col)
+				full &= grid[row][col] != 0;
+			if (!full)
+				continue;
+
+			for (int i = row; i > 0; --i)
+				grid[i] = grid[i - 1];
+			grid[0] = new byte[cols];
+			++cleared;
+			++row;   //Check the row that moved into this one
+		}
+		return cleared;
+	}
+
+
+
+
+	private static void checkSame(byte[][] grid, GameBoard board, String where) {
+		long hash = 0;
+		for (int col = 0; col < cols; ++col) {
+			int height = 0;
+			for (int row = rows - 1; row >= 0; --row) {
+				if (grid[row][col] != 0)
+					height = rows - row;
+			}
+			checkEquals(height, board.getColumnHeight(col), "Height of column " + col + " at " + where);
+		}
+
+		for (int row = 0; row < rows; ++row) {
+			int mask = 0, count = 0;
+			for (int col = 0; col < cols; ++col) {
+				boolean set = grid[row][col] != 0;
+				check(board.isSet(row, col) == set, "Square " + row + ", " + col + " at " + where);
+				if (set) {
+					checkEquals(grid[row][col], board.getColor(row, col), "Color of " + row + ", " + col + " at " + where);
+					mask |= 1 << col;
+					++count;
+					hash ^= BitBoard.getSquareKey(row, col);
+				}
+			}
+			checkEquals(mask, board.getRowMask(row), "Mask of row " + row + " at " + where);
+			checkEquals(count, board.getRowFillCount(row), "Fill count of row " + row + " at " + where);
+			check(board.isRowFull(row) == (count == cols), "isRowFull(" + row + ") at " + where);
+			check(board.isRowEmpty(row) == (count == 0), "isRowEmpty(" + row + ") at " + where);
+		}
+		checkEquals(hash, board.getHash(), "Hash at " + where);
+	}
+
+}
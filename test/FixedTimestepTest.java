@@ -0,0 +1,78 @@
+package test;
+
+import java.util.Random;
+
+import timer.FixedTimestep;
+
+/**
+ * Checks that FixedTimestep hands out exactly one tick per tick's worth of time however uneven the frames
+ * are, and that it drops time (rather than catching up) once it's too far behind.
+ *
+ */
+public class FixedTimestepTest extends TestCase {
+
+	private static final long tickNanos = 16666667;
+
+
+
+
+	@Override
+	public void run() {
+		checkUnevenFrames();
+		checkFallingBehind();
+
+		FixedTimestep timestep = new FixedTimestep(tickNanos, 5);
+		checkEquals(0, timestep.advance(-tickNanos), "Ticks for negative time");
+		checkEquals(0, timestep.getLeftover(), "Leftover after negative time");
+		checkEquals(0, timestep.advance(tickNanos - 1), "Ticks just short of a tick");
+		checkEquals(1, timestep.advance(1), "Ticks on reaching a tick");
+		checkEquals(0, timestep.getLeftover(), "Leftover after an exact tick");
+
+		timestep.advance(tickNanos / 2);
+		timestep.reset();
+		checkEquals(0, timestep.getLeftover(), "Leftover after reset()");
+
+		timestep.setMaxTicksPerAdvance(0);
+		checkEquals(1, timestep.advance(3 * tickNanos), "Ticks with a limit of 0 (treated as 1)");
+	}
+
+
+
+
+	/**
+	 * Random frame times, from nothing up to three ticks. The ticks handed out plus what's left over always
+	 * add up to the time put in, and the leftover is always less than a tick.
+	 */
+	private void checkUnevenFrames() {
+		FixedTimestep timestep = new FixedTimestep(tickNanos, 5);
+		Random random          = new Random(3);
+		long total             = 0;
+		long ticks             = 0;
+		for (int frame = 0; frame < 100000; ++frame) {
+			long elapsed = (long)(random.nextDouble() * 3 * tickNanos);
+			total       += elapsed;
+			ticks       += timestep.advance(elapsed);
+
+			checkEquals(total, ticks * tickNanos + timestep.getLeftover(), "Time accounted for after frame " + frame);
+			check(timestep.getLeftover() < tickNanos, "More than a tick left over after frame " + frame);
+			float alpha = timestep.getAlpha();
+			check(alpha >= 0 && alpha < 1, "Alpha of " + alpha + " after frame " + frame);
+		}
+		checkEquals(total / tickNanos, ticks, "Ticks for " + total + "ns");
+	}
+
+
+
+
+	private void checkFallingBehind() {
+		FixedTimestep timestep = new FixedTimestep(tickNanos, 4);
+		timestep.advance(tickNanos / 4);
+		checkEquals(4, timestep.advance(10 * tickNanos + 5), "Ticks after a stall");
+		checkEquals((tickNanos / 4 + 5) % tickNanos, timestep.getLeftover(), "Leftover after a stall");
+
+		//Back to normal from there, without trying to make up the dropped ticks
+		checkEquals(1, timestep.advance(tickNanos), "Ticks after catching up");
+		checkEquals(4, timestep.advance(4 * tickNanos), "Ticks for exactly the limit");
+	}
+
+}
@@ -0,0 +1,113 @@
+package test;
+
+import metrics.Histogram;
+
+/**
+ * Checks Histogram's bucket math through its percentiles, and that values recorded from many threads at
+ * once (into different stripes) all get counted.
+ *
+ */
+public class HistogramTest extends TestCase {
+
+	private static final long huge = Long.MAX_VALUE;
+
+
+
+
+	@Override
+	public void run() throws Exception {
+		for (long value = 0; value < 5000; ++value)
+			checkBucket(value);
+		for (int bit = 3; bit < 63; ++bit) {
+			checkBucket((1L << bit) - 1);
+			checkBucket(1L << bit);
+			checkBucket((1L << bit) + 1);
+			checkBucket((1L << bit) | (1L << (bit - 1)));
+		}
+
+		checkPercentiles();
+		checkThreads();
+	}
+
+
+
+
+	/**
+	 * With a value and a much bigger one recorded, the median is the top of the value's bucket. That has to
+	 * be at least the value and within 12.5% of it, the top itself has to land in the same bucket, and the
+	 * next value up has to land in the next bucket.
+	 */
+	private void checkBucket(long value) {
+		long top = getBucketMax(value);
+		check(top >= value, "Bucket of " + value + " tops out at " + top);
+		check(top - value <= value / 8, "Bucket of " + value + " is too wide: it tops out at " + top);
+		checkEquals(top, getBucketMax(top), "Top of the bucket of " + value);
+		if (top < huge - 1)
+			check(getBucketMax(top + 1) > top, "The value after " + top + " is in the same bucket");
+	}
+
+
+
+
+	private static long getBucketMax(long value) {
+		Histogram histogram = new Histogram("bucket");
+		histogram.record(value);
+		histogram.record(huge);
+		return histogram.getPercentile(50);
+	}
+
+
+
+
+	private void checkPercentiles() {
+		Histogram histogram = new Histogram("percentiles");
+		checkEquals(0, histogram.getPercentile(50), "Median of an empty histogram");
+
+		for (long value = 1; value <= 100000; ++value)
+			histogram.record(value);
+		checkEquals(100000, histogram.getCount(), "Count");
+		checkEquals(100000, histogram.getMax(), "Max");
+		checkEquals(100000, histogram.getPercentile(100), "100th percentile");
+		check(Math.abs(histogram.getMean() - 50000.5) < 1e-6, "Mean is " + histogram.getMean());
+		for (double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+			long exact    = (long)Math.ceil(100000 * percentile / 100);
+			long estimate = histogram.getPercentile(percentile);
+			check(estimate >= exact && estimate <= exact + exact / 8, percentile + "th percentile is " + estimate);
+		}
+
+		//Negative durations (a clock going backwards) count as 0
+		histogram.reset();
+		histogram.record(-5);
+		checkEquals(0, histogram.getPercentile(50), "Median of a negative value");
+	}
+
+
+
+
+	private void checkThreads() throws InterruptedException {
+		final Histogram histogram = new Histogram("threads");
+		final int perThread       = 100000;
+		Thread[] threads          = new Thread[8];
+		for (int t = 0; t < threads.length; ++t) {
+			final long value = 1000 * (t + 1);
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < perThread; ++i)
+						histogram.record(value);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		checkEquals(threads.length * perThread, histogram.getCount(), "Values recorded from " + threads.length + " threads");
+		checkEquals(8000, histogram.getPercentile(100), "Max recorded from " + threads.length + " threads");
+
+		//Each thread's values are an eighth of the total, so the median is the fourth thread's 4000
+		long median = histogram.getPercentile(50);
+		check(median >= 4000 && median <= 4500, "Median of values from " + threads.length + " threads is " + median);
+	}
+
+}
@@ -0,0 +1,221 @@
+package test;
+
+import generator.GeneratorType;
+import input.InputAction;
+import input.InputController;
+import input.InputQueue;
+import logic.GameBoard;
+import tetrisgame.GameSimulation;
+
+/**
+ * Checks the input queue, and InputController's delayed auto-shift (DAS), auto-repeat (ARR) and soft drop
+ * timing against a real GameSimulation. The board is wide and the piece never falls on its own, so every
+ * move shows up in the piece's column and row.
+ *
+ */
+public class InputTest extends TestCase {
+
+	private static final int rows = 22;
+	private static final int cols = 30;
+
+	private static final long ms       = 1000000L;
+	private static final long das      = 100 * ms;
+	private static final long arr      = 20 * ms;
+	private static final long softDrop = 50 * ms;
+	private static final long start    = 1000 * ms;   //When the first key goes down
+
+
+
+
+	@Override
+	public void run() {
+		checkQueue();
+		checkRepeats();
+		checkFrameRate();
+		checkHandOver();
+		checkInstantArr();
+		checkSoftDrop();
+	}
+
+
+
+
+	/**
+	 * Events come out in the order they went in, including after the ring wraps around and grows.
+	 */
+	private void checkQueue() {
+		InputQueue queue = new InputQueue(4);
+		int added = 0, removed = 0;
+		for (int round = 0; round < 50; ++round) {
+			for (int i = 0; i < round % 7 + 1; ++i, ++added)
+				queue.add(added, InputAction.values()[added % InputAction.values().length], (added & 1) == 0);
+			for (int i = 0; i < round % 5 && !queue.isEmpty(); ++i, ++removed) {
+				checkEquals(removed, queue.peekTime(), "Time of event " + removed);
+				check(queue.peekAction() == InputAction.values()[removed % InputAction.values().length], "Action of event " + removed);
+				check(queue.peekIsPress() == ((removed & 1) == 0), "Press of event " + removed);
+				queue.remove();
+			}
+			checkEquals(added - removed, queue.size(), "Queue size after round " + round);
+		}
+		queue.clear();
+		check(queue.isEmpty(), "Queue after clear()");
+	}
+
+
+
+
+	/**
+	 * One move on the press, nothing more until DAS has passed, then one more every ARR, and nothing after
+	 * the release. A second press of a held key (the OS's key repeat) does nothing.
+	 */
+	private void checkRepeats() {
+		GameSimulation simulation  = createSimulation();
+		InputController controller = createController();
+		int col                    = getCol(simulation);
+
+		controller.press(start, InputAction.MOVE_RIGHT);
+		controller.update(simulation, start);
+		checkEquals(col + 1, getCol(simulation), "Column on the press");
+		controller.update(simulation, start + das - 1);
+		checkEquals(col + 1, getCol(simulation), "Column just before DAS");
+		controller.update(simulation, start + das);
+		checkEquals(col + 2, getCol(simulation), "Column at DAS");
+
+		controller.press(start + das + 5 * ms, InputAction.MOVE_RIGHT);
+		controller.update(simulation, start + das + arr - 1);
+		checkEquals(col + 2, getCol(simulation), "Column just before the first repeat");
+		controller.update(simulation, start + das + 3 * arr);
+		checkEquals(col + 5, getCol(simulation), "Column after three repeats");
+
+		controller.release(start + das + 3 * arr + 1, InputAction.MOVE_RIGHT);
+		controller.update(simulation, start + das + 10 * arr);
+		checkEquals(col + 5, getCol(simulation), "Column after the release");
+		check(!controller.isHeld(InputAction.MOVE_RIGHT), "Right held after the release");
+
+		//Events later than the update stay queued
+		controller.press(start + 2000 * ms, InputAction.MOVE_LEFT);
+		controller.update(simulation, start + 1999 * ms);
+		checkEquals(col + 5, getCol(simulation), "Column before a queued press");
+		controller.update(simulation, start + 2000 * ms);
+		checkEquals(col + 4, getCol(simulation), "Column after a queued press");
+	}
+
+
+
+
+	/**
+	 * The repeats are timed from the press, so where the frames fall doesn't matter: updating every
+	 * millisecond, every 17 or only once has to end up in the same place.
+	 */
+	private void checkFrameRate() {
+		long release = start + das + 7 * arr + arr / 2;   //The press, DAS and 7 repeats: 9 moves
+		for (long frame : new long[] { ms, 17 * ms, 33 * ms, release + arr }) {
+			GameSimulation simulation  = createSimulation();
+			InputController controller = createController();
+			int col                    = getCol(simulation);
+			controller.press(start, InputAction.MOVE_RIGHT);
+			controller.release(release, InputAction.MOVE_RIGHT);
+			for (long time = start; time < release + arr; time += frame)
+				controller.update(simulation, time);
+			controller.update(simulation, release + arr);
+
+			checkEquals(col + 9, getCol(simulation), "Column updating every " + frame / ms + "ms");
+		}
+	}
+
+
+
+
+	/**
+	 * With both directions held, the last one pressed wins. Releasing it hands back to the other one, which
+	 * starts its DAS over.
+	 */
+	private void checkHandOver() {
+		GameSimulation simulation  = createSimulation();
+		InputController controller = createController();
+		int col                    = getCol(simulation);
+
+		controller.press(start, InputAction.MOVE_RIGHT);
+		controller.press(start + 50 * ms, InputAction.MOVE_LEFT);
+		controller.update(simulation, start + 50 * ms + das);
+		checkEquals(col - 1, getCol(simulation), "Column with left pressed last");   //Right once, left twice
+
+		long handOver = start + 50 * ms + das + 5 * ms;
+		controller.release(handOver, InputAction.MOVE_LEFT);
+		controller.update(simulation, handOver + das - 1);
+		checkEquals(col - 1, getCol(simulation), "Column before right's DAS starts over");
+		controller.update(simulation, handOver + das + arr);
+		checkEquals(col + 1, getCol(simulation), "Column after right takes over");
+	}
+
+
+
+
+	/**
+	 * An ARR of 0 slides the piece to the wall as soon as DAS is charged.
+	 */
+	private void checkInstantArr() {
+		GameSimulation simulation  = createSimulation();
+		InputController controller = createController();
+		controller.setRepeatRates(das, 0, softDrop);
+		int col = getCol(simulation);
+
+		controller.press(start, InputAction.MOVE_LEFT);
+		controller.update(simulation, start + das - 1);
+		checkEquals(col - 1, getCol(simulation), "Column before DAS with an ARR of 0");
+		controller.update(simulation, start + das);
+		check(!simulation.moveLeft(), "Piece not at the wall after DAS with an ARR of 0");
+	}
+
+
+
+
+	private void checkSoftDrop() {
+		GameSimulation simulation  = createSimulation();
+		InputController controller = createController();
+		int row                    = getRow(simulation);
+
+		controller.press(start, InputAction.SOFT_DROP);
+		controller.update(simulation, start + softDrop - 1);
+		checkEquals(row + 1, getRow(simulation), "Row after pressing down");
+		controller.update(simulation, start + 3 * softDrop);
+		checkEquals(row + 4, getRow(simulation), "Row after holding down");
+		controller.release(start + 3 * softDrop + 1, InputAction.SOFT_DROP);
+		controller.update(simulation, start + 10 * softDrop);
+		checkEquals(row + 4, getRow(simulation), "Row after letting go of down");
+	}
+
+
+
+
+	private static GameSimulation createSimulation() {
+		GameSimulation simulation = new GameSimulation(new GameBoard(rows, cols, GeneratorType.BAG.create(1)));
+		simulation.setGravityTicks(Integer.MAX_VALUE);
+		simulation.start();
+		return simulation;
+	}
+
+
+
+
+	private static InputController createController() {
+		InputController controller = new InputController();
+		controller.setRepeatRates(das, arr, softDrop);
+		return controller;
+	}
+
+
+
+
+	private static int getCol(GameSimulation simulation) {
+		return simulation.getBoard().getActivePiece().getOriginCol();
+	}
+
+
+
+
+	private static int getRow(GameSimulation simulation) {
+		return simulation.getBoard().getActivePiece().getOriginRow();
+	}
+
+}
@@ -0,0 +1,175 @@
+package test;
+
+import java.util.Arrays;
+
+import generator.BagGenerator;
+import generator.GeneratorType;
+import generator.HistoryGenerator;
+import generator.PieceGenerator;
+import generator.PieceQueue;
+import generator.XorShift;
+import logic.GameBoard.PieceType;
+
+/**
+ * Checks the piece generators and the preview queue in front of them: that XorShift.nextInt() is uniform,
+ * that the bag deals every piece once per seven, and that the history generator avoids recent pieces.
+ *
+ */
+public class PieceGeneratorTest extends TestCase {
+
+	private static final int numPieces = 1000;
+
+
+
+
+	@Override
+	public void run() {
+		for (int bound : new int[] { 2, 7, 100, 3 << 28 })
+			checkUniform(bound);
+		checkBag();
+		checkHistory();
+		checkDeterministic();
+
+		for (GeneratorType generatorType : GeneratorType.values()) {
+			for (int previewSize : new int[] { 0, 1, 3, 5, 8 })
+				checkQueue(generatorType, previewSize);
+		}
+
+		try {
+			new PieceQueue(GeneratorType.BAG.create(1), -1);
+			throw new AssertionError("A queue with -1 previews was created");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+
+
+
+	/**
+	 * A queue has to deal the same pieces as its generator, however many it shows ahead, and peek() has to
+	 * show the ones next() deals next.
+	 */
+	private void checkQueue(GeneratorType generatorType, int previewSize) {
+		String where          = generatorType + " queue of " + previewSize;
+		PieceGenerator plain  = generatorType.create(42);
+		PieceQueue queue      = new PieceQueue(generatorType.create(42), previewSize);
+		PieceType[] expected  = new PieceType[numPieces + previewSize];
+		for (int i = 0; i < expected.length; ++i)
+			expected[i] = plain.next();
+
+		checkEquals(previewSize, queue.getPreviewSize(), "Previews in " + where);
+		for (int i = 0; i < numPieces; ++i) {
+			for (int j = 0; j < previewSize; ++j)
+				check(queue.peek(j) == expected[i + j], "Preview " + j + " before piece " + i + " of " + where);
+			check(queue.next() == expected[i], "Piece " + i + " of " + where);
+		}
+	}
+
+
+
+
+	/**
+	 * Draws from nextInt() and does a chi-squared test on the counts. Bounds over 100 are counted in 16
+	 * equal buckets (so they have to be multiples of 16). That's where a plain % (rather than rejecting the
+	 * top of the range) would show a bias: with a bound of 3 * 2^28, the lowest two thirds of the range would
+	 * come up half as often again as the rest.
+	 */
+	private void checkUniform(int bound) {
+		int buckets = bound <= 100 ? bound : 16;
+		int draws   = 200000;
+		long[] counts = new long[buckets];
+		XorShift random = new XorShift(7);
+		for (int i = 0; i < draws; ++i) {
+			int r = random.nextInt(bound);
+			check(r >= 0 && r < bound, "nextInt(" + bound + ") returned " + r);
+			++counts[(int)((long)r * buckets / bound)];
+		}
+
+		double expected = (double)draws / buckets;
+		double chiSquared = 0;
+		for (long count : counts)
+			chiSquared += (count - expected) * (count - expected) / expected;
+
+		//About 6 standard deviations out, well past the 99.9th percentile, so this doesn't fail by chance
+		int freedom = buckets - 1;
+		check(chiSquared < freedom + 6 * Math.sqrt(2 * freedom), "nextInt(" + bound + ") isn't uniform: chi-squared " + chiSquared);
+	}
+
+
+
+
+	/**
+	 * Every group of seven pieces (from the start) holds each piece once, so there are never more than 12
+	 * pieces between two of the same kind.
+	 */
+	private void checkBag() {
+		for (long seed = 0; seed < 20; ++seed) {
+			BagGenerator bag = new BagGenerator(seed);
+			int[] lastSeen   = new int[PieceType.numPieces];
+			Arrays.fill(lastSeen, -1);
+			for (int i = 0; i < numPieces * PieceType.numPieces; i += PieceType.numPieces) {
+				boolean[] seen = new boolean[PieceType.numPieces];
+				for (int j = 0; j < PieceType.numPieces; ++j) {
+					int piece = bag.next().ordinal();
+					check(!seen[piece], "Piece " + piece + " twice in bag " + i / PieceType.numPieces + " of seed " + seed);
+					seen[piece] = true;
+					check(i + j - lastSeen[piece] - 1 <= 12, "More than 12 pieces between two " + piece + "s, seed " + seed);
+					lastSeen[piece] = i + j;
+				}
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * With a roll limit that's never reached, the history generator never deals a piece that's in its
+	 * history. It starts with S and Z in its history, so neither comes first. With one roll it's just random.
+	 * (With the default 6 rolls a repeat is rare but allowed, so that's not checked.)
+	 */
+	private void checkHistory() {
+		for (long seed = 0; seed < 50; ++seed) {
+			HistoryGenerator strict = new HistoryGenerator(seed, 4, 1000);
+			int[] recent = { PieceType.PIECE_S.ordinal(), PieceType.PIECE_Z.ordinal(), -1, -1 };
+			for (int i = 0; i < numPieces; ++i) {
+				int piece = strict.next().ordinal();
+				for (int last : recent)
+					check(piece != last, "Piece " + i + " of seed " + seed + " was in the history");
+				recent[(i + 2) % recent.length] = piece;
+			}
+		}
+
+		//With a single roll there's no history to speak of, so back-to-back repeats come up about 1 in 7
+		HistoryGenerator oneRoll = new HistoryGenerator(3, 4, 1);
+		int previous = -1;
+		int repeats  = 0;
+		for (int i = 0; i < 70000; ++i) {
+			int piece = oneRoll.next().ordinal();
+			if (piece == previous)
+				++repeats;
+			previous = piece;
+		}
+		check(repeats > 8000 && repeats < 12000, repeats + " back-to-back repeats in 70000 pieces with one roll");
+	}
+
+
+
+
+	/**
+	 * The same seed gives the same pieces, and copies carry on the same as the original.
+	 */
+	private void checkDeterministic() {
+		for (GeneratorType generatorType : GeneratorType.values()) {
+			PieceGenerator a = generatorType.create(99);
+			PieceGenerator b = generatorType.create(99);
+			for (int i = 0; i < 37; ++i)
+				check(a.next() == b.next(), generatorType + " piece " + i + " differs with the same seed");
+
+			PieceGenerator copy = a.copy();
+			for (int i = 0; i < numPieces; ++i)
+				check(a.next() == copy.next(), generatorType + " copy differs at piece " + i);
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+package test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import ai.PlacementEnumerator;
+import ai.PlacementList;
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import pieces.ActivePiece;
+import pieces.GameBoardSquare.MoveType;
+import point.Point;
+import rotation.ClassicRotationSystem;
+import rotation.RotationSystem;
+import rotation.SRSRotationSystem;
+
+/**
+ * Checks the placements PlacementEnumerator finds. On an empty board every piece has a known number of
+ * distinct placements (so symmetric pieces aren't counted twice), a piece can be tucked under an
+ * overhang, and on random boards every placement is a resting spot that the moves from getMoves()
+ * actually get the piece to.
+ *
+ */
+public class PlacementEnumeratorTest extends TestCase {
+
+	private static final int rows = 22;
+	private static final int cols = 10;
+
+	//Distinct placements on an empty 10 wide board, by PieceType ordinal (L, J, S, Z, T, SQUARE, LINE)
+	private static final int[] EMPTY_BOARD_PLACEMENTS = { 34, 34, 17, 17, 34, 9, 17 };
+
+
+
+
+	@Override
+	public void run() {
+		for (RotationSystem rotationSystem : new RotationSystem[] { new ClassicRotationSystem(), new SRSRotationSystem() }) {
+			String name = rotationSystem.getClass().getSimpleName();
+			checkEmptyBoard(rotationSystem, name);
+			checkTuck(rotationSystem, name);
+			checkRandomBoards(rotationSystem, name);
+		}
+	}
+
+
+
+
+	private void checkEmptyBoard(RotationSystem rotationSystem, String name) {
+		PlacementEnumerator enumerator = new PlacementEnumerator(rows, cols);
+		PlacementList placements       = new PlacementList();
+		for (PieceType type : PieceType.values()) {
+			GameBoard board = createBoard(rotationSystem);
+			board.getActivePiece().spawn(type);
+			enumerator.enumerate(board, placements);
+			checkEquals(EMPTY_BOARD_PLACEMENTS[type.ordinal()], placements.size(), "Placements of " + type + " with " + name);
+			checkPlacements(board, enumerator, placements, type + " on an empty board with " + name);
+		}
+	}
+
+
+
+
+	/**
+	 * A ledge across the left of the board, one row above the floor. The T can only get under it by
+	 * dropping beside it and sliding in, so a placement there proves the search isn't just dropping pieces.
+	 */
+	private void checkTuck(RotationSystem rotationSystem, String name) {
+		GameBoard board = createBoard(rotationSystem);
+		for (int col = 0; col < 5; ++col)
+			board.setSquare(rows - 3, col, (byte)1);
+		board.getActivePiece().spawn(PieceType.PIECE_T);
+
+		PlacementEnumerator enumerator = new PlacementEnumerator(rows, cols);
+		PlacementList placements       = new PlacementList();
+		enumerator.enumerate(board, placements);
+
+		boolean tucked = false;
+		for (int i = 0; i < placements.size(); ++i) {
+			Point[] squares = getSquares(rotationSystem, PieceType.PIECE_T, placements.getRotation(i),
+										 placements.getOriginRow(i), placements.getOriginCol(i));
+			boolean under = true;
+			for (Point square : squares)
+				under &= square.x > rows - 3 && square.y < 5;
+			tucked |= under;
+		}
+		check(tucked, "No T tucked under the ledge with " + name);
+		checkPlacements(board, enumerator, placements, "T beside a ledge with " + name);
+	}
+
+
+
+
+	private void checkRandomBoards(RotationSystem rotationSystem, String name) {
+		Random random                  = new Random(11);
+		PlacementEnumerator enumerator = new PlacementEnumerator(rows, cols);
+		PlacementList placements       = new PlacementList();
+		for (int n = 0; n < 200; ++n) {
+			GameBoard board = createBoard(rotationSystem);
+			int height      = 2 + random.nextInt(12);
+			for (int row = rows - height; row < rows; ++row) {
+				for (int col = 0; col < cols; ++col) {
+					if (random.nextInt(3) != 0)
+						board.setSquare(row, col, (byte)1);
+				}
+			}
+			PieceType type = PieceType.fromInteger(random.nextInt(PieceType.numPieces));
+			if (!board.getActivePiece().spawn(type))
+				continue;
+
+			enumerator.enumerate(board, placements);
+			checkPlacements(board, enumerator, placements, type + " on random board " + n + " with " + name);
+		}
+	}
+
+
+
+
+	/**
+	 * Every placement has to be a different set of squares, has to fit and be resting on something, and
+	 * following its moves from the spawn (on a copy of the board, with the piece's own moves) has to end
+	 * up on exactly its squares.
+	 */
+	private void checkPlacements(GameBoard board, PlacementEnumerator enumerator, PlacementList placements,
+								 String where) {
+		RotationSystem rotationSystem = board.getRotationSystem();
+		ActivePiece start             = board.getActivePiece();
+		PieceType type                = start.getType();
+		Set<String> seen              = new HashSet<String>();
+		byte[] moves                  = new byte[1024];
+
+		for (int i = 0; i < placements.size(); ++i) {
+			int rotation  = placements.getRotation(i);
+			int originRow = placements.getOriginRow(i);
+			int originCol = placements.getOriginCol(i);
+			String what   = "Placement " + i + " of " + where;
+
+			String squares = toKey(getSquares(rotationSystem, type, rotation, originRow, originCol));
+			check(seen.add(squares), what + " covers the same squares as another one");
+
+			GameBoard copy = createBoard(rotationSystem);
+			copy.copySquaresFrom(board);
+			ActivePiece piece = copy.getActivePiece();
+			piece.copyFrom(start);
+
+			int numMoves = enumerator.getMoves(placements.getState(i), moves);
+			for (int m = 0; m < numMoves; ++m)
+				check(apply(piece, moves[m]), "Move " + m + " of " + what + " failed");
+			check(toKey(piece.getPoints()).equals(squares), what + " isn't where its moves go");
+			check(!piece.move(MoveType.MOVE_DOWN, 1), what + " isn't resting on anything");
+		}
+	}
+
+
+
+
+	private static boolean apply(ActivePiece piece, byte move) {
+		switch (move) {
+		case PlacementEnumerator.MOVE_LEFT:
+			return piece.move(MoveType.MOVE_LEFT, 1);
+		case PlacementEnumerator.MOVE_RIGHT:
+			return piece.move(MoveType.MOVE_RIGHT, 1);
+		case PlacementEnumerator.MOVE_DOWN:
+			return piece.move(MoveType.MOVE_DOWN, 1);
+		case PlacementEnumerator.ROTATE_LEFT:
+			return piece.rotate(true);
+		case PlacementEnumerator.ROTATE_RIGHT:
+			return piece.rotate(false);
+		default:
+			throw new AssertionError("Unknown move " + move);
+		}
+	}
+
+
+
+
+	private static GameBoard createBoard(RotationSystem rotationSystem) {
+		GameBoard board = new GameBoard(rows, cols, 1);
+		board.setRotationSystem(rotationSystem);
+		return board;
+	}
+
+
+
+
+	private static Point[] getSquares(RotationSystem rotationSystem, PieceType type, int rotation, int originRow,
+									  int originCol) {
+		Point[] squares = new Point[4];
+		for (int i = 0; i < 4; ++i) {
+			squares[i] = new Point(originRow + rotationSystem.getRowOffset(type, rotation, i),
+								   originCol + rotationSystem.getColOffset(type, rotation, i));
+		}
+		return squares;
+	}
+
+
+
+
+	/**
+	 * A key for a set of squares that doesn't depend on their order.
+	 */
+	private static String toKey(Point[] squares) {
+		int[] indices = new int[squares.length];
+		for (int i = 0; i < squares.length; ++i)
+			indices[i] = squares[i].x * cols + squares[i].y;
+		Arrays.sort(indices);
+		return Arrays.toString(indices);
+	}
+
+}
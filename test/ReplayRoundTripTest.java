@@ -0,0 +1,188 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import generator.GeneratorType;
+import headless.HeadlessGame;
+import headless.RandomDriver;
+import logic.BitBoard;
+import logic.GameBoard;
+import replay.ReplayFormat;
+import replay.ReplayPlayer;
+import replay.ReplayReader;
+import replay.ReplayRecorder;
+import tetrisgame.GameSimulation;
+
+/**
+ * Records games, then plays the replays back. The replay has to end on the same board the game did. Both
+ * recorders are covered: GameSimulation, played with random inputs (moves, rotations, drops and gravity),
+ * and HeadlessGame, played by a driver. Also checks that replays with a damaged header are turned away with
+ * an IOException.
+ *
+ */
+public class ReplayRoundTripTest extends TestCase {
+
+	private static final int rows     = 22;
+	private static final int cols     = 10;
+	private static final int numTicks = 20000;
+
+
+
+
+	@Override
+	public void run() throws Exception {
+		Path path = Files.createTempFile("tetris", ".replay");
+		try {
+			for (GeneratorType generatorType : GeneratorType.values()) {
+				for (long seed = 1; seed <= 3; ++seed) {
+					checkGame(path, generatorType, seed);
+					checkHeadlessGame(path, generatorType, seed);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+
+
+
+	private void checkGame(Path path, GeneratorType generatorType, long seed) throws Exception {
+		String game = generatorType + " seed " + seed;
+
+		//Play and record
+		GameBoard board           = new GameBoard(rows, cols, generatorType.create(seed));
+		GameSimulation simulation = new GameSimulation(board);
+		ReplayRecorder recorder   = new ReplayRecorder(path, rows, cols, generatorType, seed, board.getRotationSystem());
+		simulation.setRecorder(recorder);
+		simulation.setGravityTicks(4);
+
+		Random random = new Random(seed);
+		simulation.start();
+		for (int i = 0; i < numTicks && !simulation.isGameOver(); ++i) {
+			switch (random.nextInt(12)) {
+			case 0: case 1: case 2:
+				simulation.moveLeft();
+				break;
+			case 3: case 4: case 5:
+				simulation.moveRight();
+				break;
+			case 6:
+				simulation.rotate(true);
+				break;
+			case 7:
+				simulation.rotate(false);
+				break;
+			case 8:
+				simulation.softDrop();
+				break;
+			case 9:
+				simulation.hardDrop();
+				break;
+			}
+			simulation.tick();
+		}
+		recorder.close();
+		ReplayRecorder.awaitWrites();
+
+		//Play it back
+		ReplayPlayer player = new ReplayPlayer(new ReplayReader(path), Integer.MAX_VALUE);
+		checkEquals(simulation.getPiecesSpawned(), player.getPieceCount(), "Pieces in " + game);
+		while (player.step());
+		checkEquals(board.getHash(), player.getBoard().getHash(), "Final board of " + game);
+		checkEquals(board.getActivePiece().getOriginRow(), player.getBoard().getActivePiece().getOriginRow(),
+					"Final piece row of " + game);
+		checkEquals(board.getActivePiece().getOriginCol(), player.getBoard().getActivePiece().getOriginCol(),
+					"Final piece column of " + game);
+	}
+
+
+
+
+	private void checkHeadlessGame(Path path, GeneratorType generatorType, long seed) throws Exception {
+		String game = "headless " + generatorType + " seed " + seed;
+
+		GameBoard board         = new GameBoard(rows, cols, generatorType.create(seed));
+		HeadlessGame headless   = new HeadlessGame(board, new RandomDriver(seed));
+		ReplayRecorder recorder = new ReplayRecorder(path, rows, cols, generatorType, seed, board.getRotationSystem());
+		headless.setRecorder(recorder);
+		headless.run(500);
+		recorder.close();
+		ReplayRecorder.awaitWrites();
+
+		ReplayPlayer player = new ReplayPlayer(new ReplayReader(path), Integer.MAX_VALUE);
+		while (player.step());
+		checkEquals(board.getHash(), player.getBoard().getHash(), "Final board of " + game);
+		checkEquals(board.getActivePiece().getOriginRow(), player.getBoard().getActivePiece().getOriginRow(),
+					"Final piece row of " + game);
+
+		//PLACE is where the driver put the piece, so the drop has to come next (see ReplayFormat)
+		ReplayReader reader = new ReplayReader(path);
+		int places = 0;
+		while (reader.next()) {
+			if (reader.getOp() == ReplayFormat.OP_PLACE) {
+				++places;
+				check(reader.next() && reader.getOp() == ReplayFormat.OP_DROP, "A PLACE without a DROP in " + game);
+			}
+		}
+		checkEquals(headless.getPiecesPlaced(), places, "Placements in " + game);
+	}
+
+
+
+
+	/**
+	 * The header's rows and columns are varints, so a damaged one can hold any size. Rows and columns are
+	 * at bytes 5 and 6 of a 22x10 replay, then the generator type and the rotation system.
+	 */
+	private void checkDamagedHeaders(Path path) throws Exception {
+		byte[] bytes = Files.readAllBytes(path);
+		checkEquals(rows, bytes[5], "Rows in the header");
+		checkEquals(cols, bytes[6], "Columns in the header");
+
+		checkRejected(bytes, 5, 0);                            //No rows
+		checkRejected(bytes, 5, BitBoard.MAX_ROWS + 1);
+		checkRejected(bytes, 6, 0);
+		checkRejected(bytes, 6, BitBoard.MAX_COLS + 1);
+		checkRejected(bytes, 7, GeneratorType.values().length);
+		for (int value : new int[] { 2, 0x80, 0xFF })
+			checkRejected(bytes, 8, value);                    //Rotation system
+
+		//Rows that run on into the next bytes, making a huge varint
+		byte[] damaged = bytes.clone();
+		damaged[5] = (byte)0xFF;
+		damaged[6] = (byte)0xFF;
+		damaged[7] = 0x7F;
+		checkRejected(damaged, "with a huge number of rows");
+
+		byte[] truncated = new byte[12];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		checkRejected(truncated, "cut short in the header");
+	}
+
+
+
+
+	private void checkRejected(byte[] bytes, int offset, int value) {
+		byte[] damaged  = bytes.clone();
+		damaged[offset] = (byte)value;
+		checkRejected(damaged, "with byte " + offset + " set to " + value);
+	}
+
+
+
+
+	private void checkRejected(byte[] damaged, String what) {
+		try {
+			new ReplayReader(damaged);
+			throw new AssertionError("A replay " + what + " was read");
+		} catch (IOException e) {
+		} catch (RuntimeException e) {
+			throw new AssertionError("A replay " + what + " threw " + e);
+		}
+	}
+
+}
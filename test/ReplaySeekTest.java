@@ -0,0 +1,112 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import generator.GeneratorType;
+import logic.GameBoard;
+import replay.ReplayPlayer;
+import replay.ReplayReader;
+import replay.ReplayRecorder;
+import tetrisgame.GameSimulation;
+
+/**
+ * Records games played with random inputs, then seeks around in the replays. Seeking to any piece, from
+ * anywhere (including partway through the same piece), has to give the same board as playing the replay
+ * straight through to that piece.
+ *
+ */
+public class ReplaySeekTest extends TestCase {
+
+	private static final int rows     = 22;
+	private static final int cols     = 10;
+	private static final int numTicks = 20000;
+
+
+
+
+	@Override
+	public void run() throws Exception {
+		Path path = Files.createTempFile("tetris", ".replay");
+		try {
+			for (GeneratorType generatorType : GeneratorType.values()) {
+				for (long seed = 1; seed <= 3; ++seed)
+					checkSeeks(path, generatorType, seed);
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+
+
+
+	private void checkSeeks(Path path, GeneratorType generatorType, long seed) throws Exception {
+		String game = generatorType + " seed " + seed;
+
+		GameBoard board           = new GameBoard(rows, cols, generatorType.create(seed));
+		GameSimulation simulation = new GameSimulation(board);
+		ReplayRecorder recorder   = new ReplayRecorder(path, rows, cols, generatorType, seed, board.getRotationSystem());
+		simulation.setRecorder(recorder);
+		simulation.setGravityTicks(4);
+
+		Random random = new Random(seed);
+		simulation.start();
+		for (int i = 0; i < numTicks && !simulation.isGameOver(); ++i) {
+			switch (random.nextInt(12)) {
+			case 0: case 1: case 2:
+				simulation.moveLeft();
+				break;
+			case 3: case 4: case 5:
+				simulation.moveRight();
+				break;
+			case 6:
+				simulation.rotate(true);
+				break;
+			case 7:
+				simulation.rotate(false);
+				break;
+			case 8:
+				simulation.softDrop();
+				break;
+			case 9:
+				simulation.hardDrop();
+				break;
+			}
+			simulation.tick();
+		}
+		recorder.close();
+		ReplayRecorder.awaitWrites();
+
+		//The board right after each spawn, found by playing forward from the start with no checkpoints
+		ReplayPlayer expected = new ReplayPlayer(new ReplayReader(path), Integer.MAX_VALUE);
+		long[] hashes         = new long[expected.getPieceCount() + 1];
+		int[] origins         = new int[hashes.length];
+		for (int piece = 0; piece < hashes.length; ++piece) {
+			expected.seekToPiece(piece);
+			hashes[piece]  = expected.getBoard().getHash();
+			origins[piece] = expected.getBoard().getActivePiece().getOriginRow();
+		}
+
+		//Seeking anywhere, backwards or forwards, from checkpoints
+		ReplayPlayer seeker = new ReplayPlayer(new ReplayReader(path), 4);
+		for (int i = 0; i < 200; ++i) {
+			int piece = random.nextInt(seeker.getPieceCount() + 1);
+			seeker.seekToPiece(piece);
+
+			//Sometimes play a few events first, so the seek back to the same piece has to undo them
+			if (random.nextBoolean()) {
+				for (int step = random.nextInt(4); step > 0; --step)
+					seeker.step();
+				seeker.seekToPiece(piece);
+			}
+
+			checkEquals(piece, seeker.getPieceNumber(), "Piece number after seek in " + game);
+			checkEquals(hashes[piece], seeker.getBoard().getHash(), "Board after seek to piece " + piece + " in " + game);
+			checkEquals(origins[piece], seeker.getBoard().getActivePiece().getOriginRow(),
+						"Piece row after seek to piece " + piece + " in " + game);
+		}
+	}
+
+}
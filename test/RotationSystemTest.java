@@ -0,0 +1,216 @@
+package test;
+
+import java.util.Random;
+
+import logic.GameBoard;
+import logic.GameBoard.PieceType;
+import point.Point;
+import rotation.ClassicRotationSystem;
+import rotation.RotationSystem;
+import rotation.SRSRotationSystem;
+
+/**
+ * Checks the kicks of both rotation systems. SRS is checked against the kick tables from the guideline,
+ * written here the way the guideline writes them (x right, y up), by blocking every kick before the one
+ * that should win. The classic system is checked against its wall and collision rules. For both, a kick
+ * that's found has to fit.
+ *
+ */
+public class RotationSystemTest extends TestCase {
+
+	private static final int rows   = 22;
+	private static final int cols   = 10;
+	private static final int center = cols / 2 - 1;   //Column of the origin, with room for kicks both ways
+
+	//[from rotation][0 = clockwise, 1 = counter-clockwise][kick] as {x, y}
+	private static final int[][][][] JLSTZ_KICKS = {
+		{{{0, 0}, {-1, 0}, {-1,  1}, {0, -2}, {-1, -2}}, {{0, 0}, { 1, 0}, { 1,  1}, {0, -2}, { 1, -2}}},   //0->R, 0->L
+		{{{0, 0}, { 1, 0}, { 1, -1}, {0,  2}, { 1,  2}}, {{0, 0}, { 1, 0}, { 1, -1}, {0,  2}, { 1,  2}}},   //R->2, R->0
+		{{{0, 0}, { 1, 0}, { 1,  1}, {0, -2}, { 1, -2}}, {{0, 0}, {-1, 0}, {-1,  1}, {0, -2}, {-1, -2}}},   //2->L, 2->R
+		{{{0, 0}, {-1, 0}, {-1, -1}, {0,  2}, {-1,  2}}, {{0, 0}, {-1, 0}, {-1, -1}, {0,  2}, {-1,  2}}}    //L->0, L->2
+	};
+	private static final int[][][][] LINE_KICKS = {
+		{{{0, 0}, {-2, 0}, { 1, 0}, {-2, -1}, { 1,  2}}, {{0, 0}, {-1, 0}, { 2, 0}, {-1,  2}, { 2, -1}}},
+		{{{0, 0}, {-1, 0}, { 2, 0}, {-1,  2}, { 2, -1}}, {{0, 0}, { 2, 0}, {-1, 0}, { 2,  1}, {-1, -2}}},
+		{{{0, 0}, { 2, 0}, {-1, 0}, { 2,  1}, {-1, -2}}, {{0, 0}, { 1, 0}, {-2, 0}, { 1, -2}, {-2,  1}}},
+		{{{0, 0}, { 1, 0}, {-2, 0}, { 1, -2}, {-2,  1}}, {{0, 0}, {-2, 0}, { 1, 0}, {-2, -1}, { 1,  2}}}
+	};
+
+
+
+
+	@Override
+	public void run() {
+		checkSrsKicks();
+		checkClassicKicks();
+		checkKicksFit(new SRSRotationSystem());
+		checkKicksFit(new ClassicRotationSystem());
+	}
+
+
+
+
+	private void checkSrsKicks() {
+		RotationSystem srs = new SRSRotationSystem();
+		for (PieceType type : PieceType.values()) {
+			for (int from = 0; from < 4; ++from) {
+				for (int direction = 0; direction < 2; ++direction) {
+					int to = (direction == 0) ? RotationSystem.rotateRight(from) : RotationSystem.rotateLeft(from);
+					if (type == PieceType.PIECE_SQUARE) {
+						checkKick(srs, createBoard(srs), type, from, to, center, 0, 0, "SRS square " + from + "->" + to);
+						continue;
+					}
+
+					int[][] kicks = (type == PieceType.PIECE_LINE ? LINE_KICKS : JLSTZ_KICKS)[from][direction];
+					for (int k = 0; k <= kicks.length; ++k)
+						checkSrsKick(srs, type, from, to, kicks, k);
+				}
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Blocks kicks 0 to k - 1 (with a square that kick k doesn't cover), so kick k has to be the one picked.
+	 * With k past the end of the table every kick is blocked, and the rotation has to fail.
+	 */
+	private void checkSrsKick(RotationSystem srs, PieceType type, int from, int to, int[][] kicks, int k) {
+		String what      = "SRS " + type + " " + from + "->" + to + " kick " + k;
+		GameBoard board  = createBoard(srs);
+		int originRow    = rows / 2;
+		int originCol    = center;
+
+		for (int j = 0; j < k; ++j) {
+			int row = originRow - kicks[j][1];
+			int col = originCol + kicks[j][0];
+			boolean blocked = false;
+			for (int i = 0; i < 4 && !blocked; ++i) {
+				int r = row + srs.getRowOffset(type, to, i);
+				int c = col + srs.getColOffset(type, to, i);
+				if (k == kicks.length || !covers(srs, type, to, originRow - kicks[k][1], originCol + kicks[k][0], r, c)) {
+					board.setSquare(r, c, (byte)1);
+					blocked = true;
+				}
+			}
+			check(blocked, "Couldn't block kick " + j + " of " + what);
+		}
+
+		if (k == kicks.length) {
+			check(!srs.findKick(board, type, from, originRow, originCol, to, new Point()), what + " should fail");
+			return;
+		}
+		checkKick(srs, board, type, from, to, originCol, -kicks[k][1], kicks[k][0], what);
+	}
+
+
+
+
+	private void checkClassicKicks() {
+		RotationSystem classic = new ClassicRotationSystem();
+		int middle             = rows / 2;
+
+		//In the open nothing's kicked
+		for (PieceType type : PieceType.values()) {
+			for (int from = 0; from < 4; ++from) {
+				checkKick(classic, createBoard(classic), type, from, RotationSystem.rotateRight(from), center, 0, 0,
+						  "Classic " + type + " " + from + " in the open");
+			}
+		}
+
+		//I) The line turning flat against a wall is kicked back in by as far as it sticks out
+		PieceType line = PieceType.PIECE_LINE;
+		checkKick(classic, createBoard(classic), line, 0, 1, 0, 0, 2, "Classic line against the left wall");
+		checkKick(classic, createBoard(classic), line, 0, 3, 0, 0, 1, "Classic line against the left wall, rotating left");
+		checkKick(classic, createBoard(classic), line, 0, 1, cols - 1, 0, -1, "Classic line against the right wall");
+		checkKick(classic, createBoard(classic), line, 0, 3, cols - 1, 0, -2, "Classic line against the right wall, rotating left");
+
+		//II) Out of bounds and into a block at the same time fails
+		GameBoard board = createBoard(classic);
+		board.setSquare(middle, 1, (byte)1);
+		check(!classic.findKick(board, line, 0, middle, 0, 1, new Point()), "Classic line kicked off a wall into a block");
+
+		//IV) A block on one side kicks the piece away from it, if there's room
+		board = createBoard(classic);
+		board.setSquare(middle, 6, (byte)1);
+		checkKick(classic, board, line, 0, 1, 5, 0, -1, "Classic line next to a block on its right");
+		board.setSquare(middle, 3, (byte)1);
+		check(!classic.findKick(board, line, 0, middle, 5, 1, new Point()), "Classic line kicked into a second block");
+
+		//III) Blocks on both sides fail
+		board = createBoard(classic);
+		board.setSquare(middle, 6, (byte)1);
+		board.setSquare(middle, 4, (byte)1);
+		check(!classic.findKick(board, line, 0, middle, 5, 1, new Point()), "Classic line between two blocks");
+	}
+
+
+
+
+	/**
+	 * On random boards, any kick that's found has to leave the piece in bounds and clear of the stack.
+	 */
+	private void checkKicksFit(RotationSystem rotationSystem) {
+		Random random = new Random(4);
+		Point kick    = new Point();
+		int found     = 0;
+		for (int n = 0; n < 2000; ++n) {
+			GameBoard board = createBoard(rotationSystem);
+			for (int i = 0; i < 60; ++i)
+				board.setSquare(4 + random.nextInt(rows - 4), random.nextInt(cols), (byte)1);
+
+			PieceType type = PieceType.fromInteger(random.nextInt(PieceType.numPieces));
+			int from       = random.nextInt(4);
+			int to         = random.nextBoolean() ? RotationSystem.rotateRight(from) : RotationSystem.rotateLeft(from);
+			int originRow  = 2 + random.nextInt(rows - 4);
+			int originCol  = random.nextInt(cols);
+			if (!rotationSystem.fits(board, type, from, originRow, originCol))
+				continue;
+
+			if (rotationSystem.findKick(board, type, from, originRow, originCol, to, kick)) {
+				++found;
+				check(rotationSystem.fits(board, type, to, originRow + kick.x, originCol + kick.y),
+					  rotationSystem.getClass().getSimpleName() + " kicked a " + type + " somewhere it doesn't fit");
+			}
+		}
+		check(found > 100, "Only " + found + " kicks found on random boards");
+	}
+
+
+
+
+	private static GameBoard createBoard(RotationSystem rotationSystem) {
+		GameBoard board = new GameBoard(rows, cols, 1);
+		board.setRotationSystem(rotationSystem);
+		return board;
+	}
+
+
+
+
+	private static boolean covers(RotationSystem rotationSystem, PieceType type, int rotation, int originRow,
+								  int originCol, int row, int col) {
+		for (int i = 0; i < 4; ++i) {
+			if (originRow + rotationSystem.getRowOffset(type, rotation, i) == row &&
+				originCol + rotationSystem.getColOffset(type, rotation, i) == col)
+				return true;
+		}
+		return false;
+	}
+
+
+
+
+	/**
+	 * Rotates a piece halfway down the board, and checks the kick it gets.
+	 */
+	private void checkKick(RotationSystem rotationSystem, GameBoard board, PieceType type, int from, int to,
+						   int originCol, int kickRow, int kickCol, String what) {
+		Point kick = new Point();
+		check(rotationSystem.findKick(board, type, from, rows / 2, originCol, to, kick), what + " couldn't rotate");
+		checkEquals(kickRow, kick.x, "Kicked row of " + what);
+		checkEquals(kickCol, kick.y, "Kicked column of " + what);
+	}
+
+}
@@ -0,0 +1,283 @@
+package test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import ai.BeamSearchDriver;
+import ai.BoardEvaluator;
+import generator.GeneratorType;
+import headless.Driver;
+import headless.HeadlessGame;
+import logic.GameBoard;
+import savestate.SaveStateFormat;
+import tetrisgame.GameSimulation;
+
+/**
+ * Saves games partway through and loads them into fresh games (with a different seed, so nothing carries
+ * over by accident). The loaded game has to have the same board and counters, and has to carry on exactly
+ * like the original. Also checks that damaged save states are turned away with an IOException.
+ *
+ */
+public class SaveStateRoundTripTest extends TestCase {
+
+	private static final int rows = 22;
+	private static final int cols = 10;
+
+
+
+
+	@Override
+	public void run() throws Exception {
+		for (GeneratorType generatorType : GeneratorType.values()) {
+			for (int pieces : new int[] { 0, 1, 37, 150 })
+				checkHeadlessGame(generatorType, pieces);
+			for (int ticks : new int[] { 0, 1, 250, 2000 }) {
+				checkSimulation(generatorType, ticks, false);
+				checkSimulation(generatorType, ticks, true);
+			}
+			checkCorruptStates(generatorType);
+		}
+	}
+
+
+
+
+	private void checkHeadlessGame(GeneratorType generatorType, int pieces) throws IOException {
+		String where = generatorType + " after " + pieces + " pieces";
+
+		HeadlessGame original = new HeadlessGame(new GameBoard(rows, cols, generatorType.create(5)), createDriver());
+		original.run(pieces);
+		ByteBuffer buffer = save(original);
+
+		HeadlessGame loaded = new HeadlessGame(new GameBoard(rows, cols, generatorType.create(99)), createDriver());
+		loaded.loadState(buffer);
+		checkEquals(original.getBoard().getHash(), loaded.getBoard().getHash(), "Board of " + where);
+		checkEquals(original.getPiecesPlaced(), loaded.getPiecesPlaced(), "Pieces of " + where);
+		checkEquals(original.getLinesCleared(), loaded.getLinesCleared(), "Lines of " + where);
+
+		//The driver only looks at the board, so both games should play out the same from here
+		original.run(pieces + 200);
+		loaded.run(pieces + 200);
+		checkEquals(original.getBoard().getHash(), loaded.getBoard().getHash(), "Board after playing on from " + where);
+		checkEquals(original.getLinesCleared(), loaded.getLinesCleared(), "Lines after playing on from " + where);
+		check(original.isGameOver() == loaded.isGameOver(), "Game over after playing on from " + where);
+	}
+
+
+
+
+	/**
+	 * @param autoplay - Whether the AI plays (a piece every tick, so plenty of line clears and held spawns),
+	 * or random inputs and gravity do (so the save can land partway through a piece's fall).
+	 */
+	private void checkSimulation(GeneratorType generatorType, int ticks, boolean autoplay) throws IOException {
+		String where = generatorType + (autoplay ? " autoplayed" : "") + " after " + ticks + " ticks";
+
+		GameSimulation original = createSimulation(generatorType, 7, autoplay);
+		Random random = new Random(7);
+		play(original, random, ticks);
+
+		ByteBuffer buffer = ByteBuffer.allocate(SaveStateFormat.getMaxSize(rows, cols));
+		original.saveState(buffer);
+		buffer.flip();
+
+		GameSimulation loaded = createSimulation(generatorType, 99, autoplay);
+		loaded.loadState(buffer);
+		checkEquals(original.getBoard().getHash(), loaded.getBoard().getHash(), "Board of " + where);
+		checkEquals(original.getPiecesSpawned(), loaded.getPiecesSpawned(), "Pieces spawned of " + where);
+		checkEquals(original.getPiecesLocked(), loaded.getPiecesLocked(), "Pieces locked of " + where);
+		checkEquals(original.getLinesCleared(), loaded.getLinesCleared(), "Lines of " + where);
+		check(original.isGameOver() == loaded.isGameOver(), "Game over of " + where);
+
+		//Same inputs from here on, including gravity partway through a piece
+		Random copy = new Random(ticks);
+		random      = new Random(ticks);
+		play(original, random, 3000);
+		play(loaded, copy, 3000);
+		checkEquals(original.getBoard().getHash(), loaded.getBoard().getHash(), "Board after playing on from " + where);
+		checkEquals(original.getPiecesLocked(), loaded.getPiecesLocked(), "Pieces after playing on from " + where);
+		checkEquals(original.getLinesCleared(), loaded.getLinesCleared(), "Lines after playing on from " + where);
+		check(!autoplay || original.getLinesCleared() > 0, "No lines cleared in " + where);
+	}
+
+
+
+
+	/**
+	 * A greedy AI: quick, and its choices depend only on the board and the active piece.
+	 */
+	private static Driver createDriver() {
+		return new BeamSearchDriver(1, 1, 0, new BoardEvaluator(), ForkJoinPool.commonPool());
+	}
+
+
+
+
+	private static GameSimulation createSimulation(GeneratorType generatorType, long seed, boolean autoplay) {
+		GameSimulation simulation = new GameSimulation(new GameBoard(rows, cols, generatorType.create(seed)));
+		if (autoplay)
+			simulation.setAutoplayer(createDriver());
+		simulation.setGravityTicks(5);
+		simulation.setDeferSpawnOnClear(true);
+		return simulation;
+	}
+
+
+
+
+	private static void play(GameSimulation simulation, Random random, int ticks) {
+		for (int i = 0; i < ticks && !simulation.isGameOver(); ++i) {
+			switch (random.nextInt(6)) {
+			case 0:
+				simulation.moveLeft();
+				break;
+			case 1:
+				simulation.moveRight();
+				break;
+			case 2:
+				simulation.rotate(random.nextBoolean());
+				break;
+			}
+			simulation.tick();
+		}
+	}
+
+
+
+
+	/**
+	 * Damages the fields of a save state that get checked on load, and makes sure each damaged copy is
+	 * turned away with an IOException rather than anything else.
+	 */
+	private void checkCorruptStates(GeneratorType generatorType) throws IOException {
+		HeadlessGame original = new HeadlessGame(new GameBoard(rows, cols, generatorType.create(3)), createDriver());
+		original.run(20);
+		byte[] bytes = toArray(save(original));
+
+		//Find the fields that come after the variable-length parts: the active piece, the preview queue
+		//(its length, then its pieces) and the generator's state
+		GameBoard board     = original.getBoard();
+		ByteBuffer scratch  = ByteBuffer.allocate(SaveStateFormat.getMaxSize(rows, cols));
+		board.getActivePiece().writeState(scratch);
+		int queueOffset     = SaveStateFormat.HEADER_SIZE + 3 + scratch.position();
+		int generatorOffset = queueOffset + 1 + (bytes[queueOffset] & 0xFF);
+		scratch.clear();
+		board.getPieceGenerator().writeState(scratch);
+		int clearedOffset   = generatorOffset + 1 + scratch.position();
+		checkEquals(generatorType.ordinal(), bytes[generatorOffset], "Generator type in the save");
+		checkEquals(board.getClearedRowCount(), bytes[clearedOffset], "Cleared row count in the save");
+
+		int pieceOffset = SaveStateFormat.HEADER_SIZE + 3;
+		int stateOffset = generatorOffset + 1 + 8;   //Past the generator's random state
+
+		checkRejected(generatorType, bytes, SaveStateFormat.OFFSET_MAGIC, 0);
+		checkRejected(generatorType, bytes, SaveStateFormat.OFFSET_VERSION, SaveStateFormat.VERSION + 1);
+		checkRejected(generatorType, bytes, SaveStateFormat.HEADER_SIZE + 2, 5);            //Rotation system
+		for (int value : new int[] { 7, 127, 0x80 })
+			checkRejected(generatorType, bytes, pieceOffset, value);                        //Active piece type
+		for (int value : new int[] { 4, 0xFD })
+			checkRejected(generatorType, bytes, pieceOffset + 1, value);                    //Rotation
+		for (int value : new int[] { rows, 0xFF })
+			checkRejected(generatorType, bytes, pieceOffset + 4, value);                    //First square's row
+		checkRejected(generatorType, bytes, pieceOffset + 5, cols);                         //First square's column
+		checkRejected(generatorType, bytes, queueOffset + 1, 7);                            //First upcoming piece
+		for (int value : new int[] { GeneratorType.values().length, 0x80, 0xFF })
+			checkRejected(generatorType, bytes, generatorOffset, value);
+		for (int value : new int[] { rows + 1, 0x80, 0xFF })
+			checkRejected(generatorType, bytes, clearedOffset, value);
+
+		//A random state of 0, where xorshift gets stuck
+		byte[] damaged = bytes.clone();
+		for (int i = generatorOffset + 1; i < stateOffset; ++i)
+			damaged[i] = 0;
+		checkRejected(generatorType, damaged, "with a zero random state");
+
+		if (generatorType == GeneratorType.BAG) {
+			for (int value : new int[] { 8, 0x80, 0xFF })
+				checkRejected(generatorType, bytes, stateOffset + 7, value);                //Bag position
+			checkRejected(generatorType, bytes, stateOffset, bytes[stateOffset + 1]);       //Same piece twice
+		}
+		if (generatorType == GeneratorType.HISTORY) {
+			int historySize = bytes[stateOffset];
+			for (int value : new int[] { 0x80, 0xFF })
+				checkRejected(generatorType, bytes, stateOffset, value);                    //History size
+			checkRejected(generatorType, bytes, stateOffset + 1, 7);                        //Piece in the history
+			for (int value : new int[] { historySize, 0x80, 0xFF })
+				checkRejected(generatorType, bytes, stateOffset + 1 + historySize, value);  //Oldest
+		}
+
+		//Cut short anywhere
+		for (int length : new int[] { SaveStateFormat.HEADER_SIZE, pieceOffset + 5, generatorOffset + 3, bytes.length - 1 }) {
+			byte[] truncated = new byte[length];
+			System.arraycopy(bytes, 0, truncated, 0, length);
+			checkRejected(generatorType, truncated, "cut short to " + length + " bytes");
+		}
+
+		//A board of a different size is rejected too
+		HeadlessGame wrongSize = new HeadlessGame(new GameBoard(rows + 1, cols, generatorType.create(3)), createDriver());
+		try {
+			wrongSize.loadState(ByteBuffer.wrap(bytes));
+			throw new AssertionError("A " + rows + "x" + cols + " save loaded into a bigger board");
+		} catch (IOException e) {
+		}
+	}
+
+
+
+
+	private void checkRejected(GeneratorType generatorType, byte[] bytes, int offset, int value) {
+		byte[] damaged  = bytes.clone();
+		damaged[offset] = (byte)value;
+		checkRejected(generatorType, damaged, "with byte " + offset + " set to " + value);
+	}
+
+
+
+
+	/**
+	 * Loads a damaged save into a game in progress. The load has to fail with an IOException, and leave the
+	 * game exactly as it was.
+	 */
+	private void checkRejected(GeneratorType generatorType, byte[] damaged, String what) {
+		String where        = "A " + generatorType + " save " + what;
+		HeadlessGame loaded = new HeadlessGame(new GameBoard(rows, cols, generatorType.create(8)), createDriver());
+		loaded.run(5);
+		GameBoard board     = loaded.getBoard();
+		ByteBuffer before   = save(loaded);
+
+		try {
+			loaded.loadState(ByteBuffer.wrap(damaged));
+			throw new AssertionError(where + " loaded");
+		} catch (IOException e) {
+		} catch (RuntimeException e) {
+			throw new AssertionError(where + " threw " + e);
+		}
+
+		//Everything (board, active piece, previews, generator and counters) is still the same
+		check(save(loaded).equals(before), where + " changed the game it failed to load into");
+		checkEquals(5, loaded.getPiecesPlaced(), "Pieces after " + where);
+		check(board.getActivePiece().getType() != null, "Active piece after " + where);
+	}
+
+
+
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+
+
+
+	private static ByteBuffer save(HeadlessGame game) {
+		ByteBuffer buffer = ByteBuffer.allocate(SaveStateFormat.getMaxSize(rows, cols));
+		game.saveState(buffer);
+		buffer.flip();
+		return buffer;
+	}
+
+}
@@ -0,0 +1,35 @@
+package test;
+
+/**
+ * A test that TestRunner can run. There's no test framework on the classpath, so this is the whole of
+ * one: run() throws (an AssertionError from one of the checks below, or anything else) if the test fails.
+ *
+ */
+public abstract class TestCase {
+
+	public abstract void run() throws Exception;
+
+
+
+
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+
+
+
+
+	protected static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+
+
+
+
+	protected static void checkEquals(long expected, long actual, String message) {
+		if (expected != actual)
+			throw new AssertionError(message + ": expected " + expected + ", got " + actual);
+	}
+
+}
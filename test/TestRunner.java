@@ -0,0 +1,58 @@
+package test;
+
+/**
+ * Runs the tests. Build and run them the same way as the game, e.g. from the top of the repository:
+ *
+ *   javac -cp bin/Tetris/tetris.jar -d out $(find . -name "*.java")
+ *   java -cp out test.TestRunner
+ *
+ * The tests don't touch Slick or LWJGL, so tetris.jar is only needed to compile. Exits with status 1 if any
+ * test fails.
+ *
+ */
+public class TestRunner {
+
+	private static TestCase[] createTests() {
+		return new TestCase[] {
+			new BatchReproducibilityTest(),
+			new BoardEquivalenceTest(),
+			new ReplayRoundTripTest(),
+			new ReplaySeekTest(),
+			new SaveStateRoundTripTest(),
+			new PieceGeneratorTest(),
+			new HistogramTest(),
+			new RotationSystemTest(),
+			new PlacementEnumeratorTest(),
+			new BeamSearchTest(),
+			new TranspositionTableTest(),
+			new FixedTimestepTest(),
+			new InputTest(),
+			new AnimationTest()
+		};
+	}
+
+
+
+
+	public static void main(String[] args) {
+		int failed = 0;
+		TestCase[] tests = createTests();
+
+		for (TestCase test : tests) {
+			long start = System.nanoTime();
+			try {
+				test.run();
+				System.out.println("PASS " + test.getName() + " (" + (System.nanoTime() - start) / 1000000 + " ms)");
+			} catch (Throwable e) {
+				++failed;
+				System.out.println("FAIL " + test.getName() + ": " + e);
+				e.printStackTrace(System.out);
+			}
+		}
+
+		System.out.println((tests.length - failed) + " of " + tests.length + " tests passed.");
+		if (failed > 0)
+			System.exit(1);
+	}
+
+}
@@ -0,0 +1,101 @@
+package test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import ai.TranspositionTable;
+
+/**
+ * Checks TranspositionTable: lookups, replacement when two keys share a slot, the key 0 that's never
+ * stored, and that threads hammering a small table at once never read back another key's value.
+ *
+ */
+public class TranspositionTableTest extends TestCase {
+
+	private static final int sizeBits = 4;
+
+
+
+
+	@Override
+	public void run() throws Exception {
+		checkSingleThread();
+		checkThreads();
+	}
+
+
+
+
+	private void checkSingleThread() {
+		TranspositionTable table = new TranspositionTable(sizeBits);
+		checkEquals(-1, table.get(12345, -1), "Lookup in an empty table");
+		check(Double.isNaN(table.getScore(12345)), "Score in an empty table");
+
+		table.put(12345, 678);
+		checkEquals(678, table.get(12345, -1), "Lookup after a put");
+		table.put(12345, 9);
+		checkEquals(9, table.get(12345, -1), "Lookup after a second put");
+
+		//A key in the same slot replaces it, and the old key then misses rather than reading the new value
+		long other = 12345 + (1 << sizeBits);
+		table.put(other, 55);
+		checkEquals(55, table.get(other, -1), "Lookup of the newer key in a slot");
+		checkEquals(-1, table.get(12345, -1), "Lookup of the replaced key");
+
+		//Keys that only differ in their high bits land in different slots
+		table.put(1L << 40, 1);
+		checkEquals(55, table.get(other, -1), "Lookup after a put to another slot");
+
+		table.put(0, 77);
+		checkEquals(-1, table.get(0, -1), "Lookup of key 0");
+
+		table.putScore(99, -2.5);
+		check(table.getScore(99) == -2.5, "Score after a put");
+
+		table.clear();
+		checkEquals(-1, table.get(other, -1), "Lookup after clear()");
+		check(Double.isNaN(table.getScore(99)), "Score after clear()");
+	}
+
+
+
+
+	/**
+	 * Each thread writes and reads its own keys, all fighting over 16 slots. Every value is tied to its key,
+	 * so a torn slot (one thread's key with another's value) would show up as a wrong value. It's a race, so
+	 * a table that can tear isn't caught every run, but it is most runs.
+	 */
+	private void checkThreads() throws InterruptedException {
+		final TranspositionTable table        = new TranspositionTable(sizeBits);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		Thread[] threads                      = new Thread[4];
+		for (int t = 0; t < threads.length; ++t) {
+			final long first = 1 + t * 1000000L;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 5000000 && failure.get() == null; ++i) {
+						long key = first + (i & 1023);
+						table.put(key, valueOf(key));
+						long other = first + ((i * 7) & 1023);
+						long value = table.get(other, -1);
+						if (value != -1 && value != valueOf(other))
+							failure.compareAndSet(null, "Key " + other + " read back " + value);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		check(failure.get() == null, failure.get());
+	}
+
+
+
+
+	private static long valueOf(long key) {
+		return key * 0x9E3779B97F4A7C15L;
+	}
+
+}
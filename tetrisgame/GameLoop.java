@@ -0,0 +1,246 @@
+package tetrisgame;
+
+import input.InputController;
+import logic.GameBoard;
+import point.Point;
+import timer.Clock;
+import timer.FixedTimestep;
+
+/**
+ * Advances a game to the current time on its clock: the animations, the queued input, and however many
+ * simulation ticks have come due. TetrisGame runs one of these on real time, once per frame; with a
+ * ManualClock, the same loop (animations included) runs as fast as the clock is advanced (see
+ * VirtualTimeRunner).
+ *
+ * The loop only knows the animations through the Animations interface, so it doesn't touch Slick:
+ * BoardRenderer implements it for the window, and VirtualTimeRunner plugs in one that does nothing.
+ *
+ */
+public class GameLoop {
+
+	/**
+	 * The animations the loop starts and waits on.
+	 */
+	public interface Animations {
+		/**
+		 * Checks whether the row delete animation is playing.
+		 */
+		public boolean isAnimationPlaying();
+
+		/**
+		 * Starts replaying the board's last line clear.
+		 * @param now - The current time on the game clock, in nanoseconds.
+		 */
+		public void startAnimation(long now);
+
+		public void stopAnimation();
+
+		/**
+		 * Flashes the squares of a piece that just locked.
+		 * @param now - The current time on the game clock, in nanoseconds.
+		 */
+		public void flashLock(Point[] piece, long now);
+
+		/**
+		 * Advances every animation to the given time.
+		 */
+		public void updateAnimations(long now);
+
+		/**
+		 * Sets whether the active piece is drawn over the row delete animation (when the game goes on
+		 * while it plays).
+		 */
+		public void setAnimationOverlay(boolean animationOverlay);
+	}
+
+	public static final int defaultMaxTicksPerUpdate = 10;   //After a longer stall, the simulation skips ahead instead of catching up
+
+	private GameBoard theBoard;
+	private GameSimulation simulation;
+	private Animations renderer;
+	private InputController input;
+	private FixedTimestep timestep;
+	private Clock clock;
+	private long lastUpdateTime;               //Clock time at the last update
+	private boolean animateRowDeletes  = true;    //If false, rows are cleared instantly
+	private boolean pauseForRowDeletes = true;    //If false, the game goes on while the animation plays
+
+
+
+
+	public GameLoop(GameBoard theBoard, Animations renderer, Clock clock) {
+		this.theBoard = theBoard;
+		this.renderer = renderer;
+		this.clock    = clock;
+		simulation    = new GameSimulation(theBoard);
+		input         = new InputController();
+		timestep      = new FixedTimestep(GameSimulation.tickNanos, defaultMaxTicksPerUpdate);
+
+		//Start the row delete animation whenever rows are cleared. Unless we're pausing for it, the game
+		//goes on, and a lock ends the animation early (its chunks don't have the new piece in them).
+		simulation.setListener(new GameSimulation.Listener() {
+			public void pieceLocked(int linesCleared) {
+				if (linesCleared == 0)
+					GameLoop.this.renderer.flashLock(GameLoop.this.theBoard.getActivePiece().getPoints(), lastUpdateTime);
+				if (!animateRowDeletes)
+					return;
+				if (linesCleared > 0)
+					GameLoop.this.renderer.startAnimation(lastUpdateTime);
+				else if (!pauseForRowDeletes)
+					GameLoop.this.renderer.stopAnimation();
+			}
+		});
+		updateRowDeleteMode();
+	}
+
+
+
+
+	public GameSimulation getSimulation() {
+		return simulation;
+	}
+
+
+
+
+	public InputController getInput() {
+		return input;
+	}
+
+
+
+
+	public Clock getClock() {
+		return clock;
+	}
+
+
+
+
+	public long getLastUpdateTime() {
+		return lastUpdateTime;
+	}
+
+
+
+
+	/**
+	 * Gets how far into the next tick the game is, from 0 to 1, for drawing the active piece between ticks.
+	 */
+	public float getAlpha() {
+		return timestep.getAlpha();
+	}
+
+
+
+
+	/**
+	 * Sets the most ticks one update() runs. Live play keeps the default, so a long stall doesn't make the
+	 * following frames even slower catching up. A runner on virtual time can lift it (with
+	 * Integer.MAX_VALUE), since it can advance its clock by as much as it likes in one step.
+	 */
+	public void setMaxTicksPerUpdate(int maxTicksPerUpdate) {
+		timestep.setMaxTicksPerAdvance(maxTicksPerUpdate);
+	}
+
+
+
+
+	public void setAnimateRowDeletes(boolean animateRowDeletes) {
+		this.animateRowDeletes = animateRowDeletes;
+		updateRowDeleteMode();
+	}
+
+
+
+
+	/**
+	 * Chooses whether the game stops while the row delete animation plays (the default), or keeps going
+	 * with the next piece while the animation plays as an overlay.
+	 */
+	public void setPauseForRowDeletes(boolean pauseForRowDeletes) {
+		this.pauseForRowDeletes = pauseForRowDeletes;
+		updateRowDeleteMode();
+	}
+
+
+
+
+	private void updateRowDeleteMode() {
+		simulation.setDeferSpawnOnClear(animateRowDeletes && pauseForRowDeletes);
+		renderer.setAnimationOverlay(!pauseForRowDeletes);
+	}
+
+
+
+
+	/**
+	 * Starts the clock and spawns the first piece.
+	 * @return Returns false if it didn't fit.
+	 */
+	public boolean start() {
+		timestep.reset();
+		lastUpdateTime = clock.nanoTime();
+		return simulation.start();
+	}
+
+
+
+
+	/**
+	 * Catches the game up to the clock's current time.
+	 */
+	public void update() {
+		long now     = clock.nanoTime();
+		long elapsed = now - lastUpdateTime;
+		lastUpdateTime = now;
+
+		//Animations run on the same clock as the game
+		renderer.updateAnimations(now);
+
+		//If we're pausing for the row delete animation, that time doesn't count. Input that comes in
+		//meanwhile has nothing to act on.
+		if (isPaused()) {
+			input.update(simulation, now);
+			return;
+		}
+
+		//Each tick gets the input that happened before it ended, in order. The last tick ends however far
+		//short of now the timestep's leftover is.
+		int ticks    = timestep.advance(elapsed);
+		long tickEnd = now - timestep.getLeftover() - (ticks - 1) * GameSimulation.tickNanos;
+		for (int i = 0; i < ticks && !simulation.isGameOver(); ++i, tickEnd += GameSimulation.tickNanos) {
+			input.update(simulation, tickEnd);
+			if (!isPaused())
+				simulation.tick();
+			if (isPaused()) {
+				timestep.reset();
+				break;
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Checks whether the game is waiting on the row delete animation.
+	 */
+	public boolean isPaused() {
+		return pauseForRowDeletes && renderer.isAnimationPlaying();
+	}
+
+
+
+
+	/**
+	 * Call after the simulation loads a saved game. A line clear that was in progress is replayed from the
+	 * start, and the next piece spawns once it's done.
+	 */
+	public void stateLoaded() {
+		timestep.reset();
+		if (simulation.isSpawnPending() && animateRowDeletes && pauseForRowDeletes)
+			renderer.startAnimation(lastUpdateTime);
+	}
+
+}
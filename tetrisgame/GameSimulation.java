@@ -0,0 +1,437 @@
+package tetrisgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import headless.Driver;
+import logic.GameBoard;
+import metrics.Metrics;
+import pieces.ActivePiece;
+import pieces.GameBoardSquare.MoveType;
+import replay.ReplayRecorder;
+import savestate.SaveStateFormat;
+import savestate.SaveStateReader;
+import savestate.SaveStateWriter;
+
+/**
+ * The game's rules, advanced one fixed-length tick at a time: gravity, landing, clearing rows and spawning,
+ * plus the player's actions. Nothing here depends on Slick or on wall-clock time, so the same simulation
+ * runs in the window (see TetrisGame, which feeds it ticks with a FixedTimestep) or headless, as fast as
+ * the CPU allows.
+ *
+ * Gravity is counted in ticks, so a game plays out the same no matter the frame rate.
+ *
+ */
+public class GameSimulation {
+
+	public static final int ticksPerSecond = 60;
+	public static final long tickNanos     = 1000000000L / ticksPerSecond;
+
+	/**
+	 * Told whenever a piece locks (before the next piece spawns), e.g. to start the row delete animation.
+	 */
+	public interface Listener {
+		public void pieceLocked(int linesCleared);
+	}
+
+	private GameBoard theBoard;
+	private Listener listener;
+	private ReplayRecorder recorder;         //If set, every action, lock and spawn is recorded
+	private Driver autoplayer;               //If set, places every piece
+	private boolean autoplayerMoved;         //Whether the autoplayer has placed the active piece yet
+	private boolean deferSpawnOnClear;       //If set, a line clear holds the next piece until the next tick
+	private boolean spawnPending;
+	private boolean started;
+	private boolean gameOver;
+	private int gravityTicks = ticksPerSecond;   //Ticks between gravity moves
+	private int gravityCounter;                  //Ticks since the last gravity move
+	private long tick;
+	private int piecesSpawned;
+	private int piecesLocked;
+	private int linesCleared;
+
+	//The active piece's position at the start of the tick, for interpolation
+	private int previousPiece;
+	private int previousRotation;
+	private int previousOriginRow;
+	private int previousOriginCol;
+
+
+
+
+	public GameSimulation(GameBoard theBoard) {
+		this.theBoard = theBoard;
+	}
+
+
+
+
+	public GameBoard getBoard() {
+		return theBoard;
+	}
+
+
+
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+
+
+
+	public void setRecorder(ReplayRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+
+
+
+	public ReplayRecorder getRecorder() {
+		return recorder;
+	}
+
+
+
+
+	/**
+	 * Lets a Driver play. Each new piece is handed to the driver on the first tick after it spawns, then
+	 * dropped.
+	 * @param autoplayer - The driver, or null to go back to the player's actions.
+	 */
+	public void setAutoplayer(Driver autoplayer) {
+		this.autoplayer = autoplayer;
+	}
+
+
+
+
+	public Driver getAutoplayer() {
+		return autoplayer;
+	}
+
+
+
+
+	/**
+	 * If set, the piece after a line clear doesn't spawn until the next tick, so the caller can hold off on
+	 * ticking (e.g. while the row delete animation plays).
+	 */
+	public void setDeferSpawnOnClear(boolean deferSpawnOnClear) {
+		this.deferSpawnOnClear = deferSpawnOnClear;
+	}
+
+
+
+
+	/**
+	 * Sets how fast pieces fall.
+	 * @param gravityTicks - Ticks between each row the piece falls.
+	 */
+	public void setGravityTicks(int gravityTicks) {
+		this.gravityTicks = Math.max(gravityTicks, 1);
+	}
+
+
+
+
+	public long getTick() {
+		return tick;
+	}
+
+
+
+
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+
+
+
+	public void setGameOver() {
+		gameOver = true;
+	}
+
+
+
+
+	public int getPiecesSpawned() {
+		return piecesSpawned;
+	}
+
+
+
+
+	public int getPiecesLocked() {
+		return piecesLocked;
+	}
+
+
+
+
+	public int getLinesCleared() {
+		return linesCleared;
+	}
+
+
+
+
+	public boolean isSpawnPending() {
+		return spawnPending;
+	}
+
+
+
+
+	/**
+	 * Spawns the first piece.
+	 * @return Returns false if it didn't fit.
+	 */
+	public boolean start() {
+		started = true;
+		if (!spawnPiece())
+			gameOver = true;
+		return !gameOver;
+	}
+
+
+
+
+	/**
+	 * Advances the game by one tick: spawns a held piece, lets the autoplayer move, and applies gravity.
+	 */
+	public void tick() {
+		++tick;
+		if (recorder != null)
+			recorder.tick();
+
+		ActivePiece activePiece = theBoard.getActivePiece();
+		previousPiece     = piecesSpawned;
+		previousRotation  = activePiece.getRotation();
+		previousOriginRow = activePiece.getOriginRow();
+		previousOriginCol = activePiece.getOriginCol();
+
+		if (!started)
+			start();
+		if (gameOver)
+			return;
+
+		if (spawnPending) {
+			spawnPending = false;
+			if (!spawnPiece()) {
+				gameOver = true;
+				return;
+			}
+		}
+
+		//The autoplayer moves the piece straight to where it wants it, then drops it.
+		if (autoplayer != null && !autoplayerMoved) {
+			autoplayer.placePiece(theBoard);
+			if (recorder != null)
+				recorder.recordPlacement(activePiece.getRotation(), activePiece.getOriginRow(), activePiece.getOriginCol());
+			autoplayerMoved = true;
+			hardDrop();
+			return;
+		}
+
+		if (++gravityCounter >= gravityTicks)
+			applyGravity();
+	}
+
+
+
+
+	/**
+	 * Moves the piece down a row, and lands it if it can't move.
+	 */
+	private void applyGravity() {
+		gravityCounter = 0;
+		if (!move(MoveType.MOVE_DOWN))
+			landPiece();
+	}
+
+
+
+
+	/**
+	 * Called when the active piece lands on something. Full rows are cleared right away.
+	 */
+	private void landPiece() {
+		if (recorder != null)
+			recorder.recordLock();
+
+		int cleared = theBoard.clearFullRows(theBoard.getActivePiece().getPoints());
+		linesCleared += cleared;
+		++piecesLocked;
+		Metrics.piecesLocked.increment();
+		Metrics.linesCleared.add(cleared);
+
+		if (listener != null)
+			listener.pieceLocked(cleared);
+
+		if (cleared > 0 && deferSpawnOnClear) {
+			spawnPending = true;
+			return;
+		}
+
+		if (!spawnPiece())
+			gameOver = true;
+	}
+
+
+
+
+	private boolean spawnPiece() {
+		autoplayerMoved = false;
+		gravityCounter  = 0;
+		++piecesSpawned;
+		if (recorder != null)
+			recorder.recordSpawn();
+		return theBoard.spawnPiece();
+	}
+
+
+
+
+	/**
+	 * Moves the active piece, and records the move.
+	 */
+	private boolean move(MoveType type) {
+		if (recorder != null)
+			recorder.recordMove(type);
+		return theBoard.getActivePiece().move(type, 1);
+	}
+
+
+
+
+	private boolean canAct() {
+		return started && !gameOver && !spawnPending;
+	}
+
+
+
+
+	/**
+	 * @return Returns false if the piece couldn't move (or there's no piece to move right now).
+	 */
+	public boolean moveLeft() {
+		return canAct() && move(MoveType.MOVE_LEFT);
+	}
+
+
+
+
+	public boolean moveRight() {
+		return canAct() && move(MoveType.MOVE_RIGHT);
+	}
+
+
+
+
+	/**
+	 * Moves the piece down a row, or lands it if it can't move. Restarts the gravity count.
+	 */
+	public void softDrop() {
+		if (canAct())
+			applyGravity();
+	}
+
+
+
+
+	/**
+	 * Drops the piece as far as it goes and lands it.
+	 */
+	public void hardDrop() {
+		if (!canAct())
+			return;
+
+		if (recorder != null)
+			recorder.recordDrop();
+		theBoard.getActivePiece().dropPiece();
+		applyGravity();
+	}
+
+
+
+
+	public void rotate(boolean leftRotate) {
+		if (!canAct())
+			return;
+
+		if (recorder != null)
+			recorder.recordRotate(leftRotate);
+		theBoard.getActivePiece().rotate(leftRotate);
+	}
+
+
+
+
+	/**
+	 * Gets how far (in rows) the active piece should be drawn from where it is, to slide it smoothly from
+	 * where it was at the start of the tick.
+	 * @param alpha - How far into the next tick we are, from 0 to 1 (see FixedTimestep.getAlpha()).
+	 */
+	public float getInterpolatedRowOffset(float alpha) {
+		if (!isSamePieceAsLastTick())
+			return 0;
+		return (previousOriginRow - theBoard.getActivePiece().getOriginRow()) * (1 - alpha);
+	}
+
+
+
+
+	public float getInterpolatedColOffset(float alpha) {
+		if (!isSamePieceAsLastTick())
+			return 0;
+		return (previousOriginCol - theBoard.getActivePiece().getOriginCol()) * (1 - alpha);
+	}
+
+
+
+
+	private boolean isSamePieceAsLastTick() {
+		return !spawnPending && previousPiece == piecesSpawned && previousRotation == theBoard.getActivePiece().getRotation();
+	}
+
+
+
+
+	/**
+	 * Saves the session (board, pieces, gravity and any held spawn) to a buffer.
+	 * @return Returns the number of bytes written.
+	 */
+	public int saveState(ByteBuffer buffer) {
+		int flags = 0;
+		if (started)
+			flags |= SaveStateFormat.FLAG_STARTED;
+		if (gameOver)
+			flags |= SaveStateFormat.FLAG_GAME_OVER;
+		if (spawnPending)
+			flags |= SaveStateFormat.FLAG_LINE_CLEAR_PENDING;
+		return SaveStateWriter.write(buffer, theBoard, flags, gravityCounter * tickNanos, piecesLocked, linesCleared);
+	}
+
+
+
+
+	/**
+	 * Replaces the session with one saved by saveState().
+	 */
+	public void loadState(ByteBuffer buffer) throws IOException {
+		SaveStateReader reader = new SaveStateReader(buffer);
+		reader.restoreBoard(theBoard);
+		started         = reader.hasFlag(SaveStateFormat.FLAG_STARTED);
+		gameOver        = reader.hasFlag(SaveStateFormat.FLAG_GAME_OVER);
+		spawnPending    = reader.hasFlag(SaveStateFormat.FLAG_LINE_CLEAR_PENDING);
+		gravityCounter  = (int)(reader.getGravityTime() / tickNanos);
+		piecesLocked    = reader.getPiecesPlaced();
+		linesCleared    = reader.getLinesCleared();
+		piecesSpawned   = started ? piecesLocked + (spawnPending ? 0 : 1) : 0;   //Every piece locked, plus the active one
+		autoplayerMoved = false;
+		previousPiece   = -1;
+	}
+
+}
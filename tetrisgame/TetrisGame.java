@@ -1,7 +1,17 @@
 package tetrisgame;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import generator.PieceGenerator;
+import headless.Driver;
+import input.EventClock;
+import input.InputAction;
 import logic.GameBoard;
-import timer.Timer;
+import metrics.Metrics;
+import render.BoardRenderer;
+import timer.SystemClock;
+import org.newdawn.slick.AppGameContainer;
 import org.newdawn.slick.BasicGame;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
@@ -9,17 +19,18 @@ import org.newdawn.slick.SlickException;
 import org.newdawn.slick.Input;
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Music;
-import pieces.GameBoardSquare.MoveType;
+import org.lwjgl.input.Keyboard;
+import replay.ReplayRecorder;
 import point.Vec2D;
 
 public class TetrisGame extends BasicGame {
 
-	private Input input						= null;
 	private Music tetrisTheme               = null;
-	private boolean isKeyDown 				= false;
 	private GameBoard theBoard				= null;
-	private Timer timer                     = null;
-	private  boolean gameOver               = false;
+	private GameLoop loop                   = null;    //Runs the game on real time
+	private GameSimulation simulation       = null;
+	private BoardRenderer renderer			= null;
+	private EventClock eventClock           = null;    //Maps LWJGL's key event times onto the game clock
 	public static final int windowWidth     = 800;
 	public static final int windowHeight    = 600;
 	public static final int pieceSize       = 24;   //Size of a Tetris piece's "sub square"
@@ -47,10 +58,73 @@ public class TetrisGame extends BasicGame {
 	
 	
 	
+	/**
+	 * Creates the game window and runs the game until it's closed.
+	 */
+	public static void launch() {
+		launch(null, null);
+	}
+	
+	
+	
+	
+	/**
+	 * Same as launch(), but optionally played by a Driver instead of the keyboard, and with a given piece
+	 * generator.
+	 * @param autoplayer - The driver, or null to play with the keyboard.
+	 * @param generator - Where the pieces come from, or null for the default.
+	 */
+	public static void launch(Driver autoplayer, PieceGenerator generator) {
+		launch(autoplayer, generator, null);
+	}
+	
+	
+	
+	
+	/**
+	 * Same as launch(autoplayer, generator), and records the game. Recorded ticks are simulation ticks
+	 * (see GameSimulation.ticksPerSecond).
+	 * @param recorder - Records the game, or null. It's closed when the game ends.
+	 */
+	public static void launch(Driver autoplayer, PieceGenerator generator, ReplayRecorder recorder) {
+		launch(autoplayer, generator, recorder, true);
+	}
+	
+	
+	
+	
+	/**
+	 * Same as launch(autoplayer, generator, recorder).
+	 * @param pauseForRowDeletes - If false, the next piece spawns right after a line clear, while the row
+	 * delete animation plays over the game (see setPauseForRowDeletes()).
+	 */
+	public static void launch(Driver autoplayer, PieceGenerator generator, ReplayRecorder recorder, boolean pauseForRowDeletes) {
+		TetrisGame game = new TetrisGame("Tetris");
+		game.setAutoplayer(autoplayer);
+		game.setPauseForRowDeletes(pauseForRowDeletes);
+		game.setRecorder(recorder);
+		if (generator != null)
+			game.theBoard.setPieceGenerator(generator);
+		
+		try {
+			AppGameContainer app = new AppGameContainer(game, windowWidth, windowHeight, false);
+			app.start();
+		} catch (SlickException e) {
+			e.printStackTrace();
+		}
+		game.closeRecorder();
+	}
+	
+	
+	
+	
 	public TetrisGame(String title) {
 		super(title);
-		theBoard = new GameBoard(blockHeight + numInvisRows, blockWidth);
-		timer    = new Timer();
+		theBoard   = new GameBoard(blockHeight + numInvisRows, blockWidth);
+		renderer   = new BoardRenderer(theBoard);
+		loop       = new GameLoop(theBoard, renderer, SystemClock.instance);
+		simulation = loop.getSimulation();
+		eventClock = new EventClock();
 	}
 	
 	
@@ -60,6 +134,8 @@ public class TetrisGame extends BasicGame {
 	public void render(GameContainer container, Graphics g)
 			throws SlickException {
 		
+		long start = System.nanoTime();
+		
 		//Draw Tetris playing area
 		int centerX       = container.getWidth()/2;
 		int centerY       = container.getHeight()/2;
@@ -68,9 +144,11 @@ public class TetrisGame extends BasicGame {
 		g.setColor(Color.white);
 		g.drawRect(centerX - playingWidth/2, centerY - playingHeight/2, playingWidth, playingHeight);
 		
-		//Render all pieces on the board
-		theBoard.render(container, g);
+		//Render all pieces on the board, with the active piece part of the way to where it is now
+		float alpha = loop.getAlpha();
+		renderer.render(container, g, simulation.getInterpolatedRowOffset(alpha), simulation.getInterpolatedColOffset(alpha));
 		
+		Metrics.renderTime.recordSince(start);
 	}
 	
 	
@@ -79,9 +157,6 @@ public class TetrisGame extends BasicGame {
 	@Override
 	public void init(GameContainer container) throws SlickException {
 		
-		//Initialize input
-		input = new Input(container.getHeight());
-		
 		//Initialize sound
 		try {
 			tetrisTheme = new Music(new String("sounds//SMB-X.XM"));
@@ -96,132 +171,180 @@ public class TetrisGame extends BasicGame {
 		//Disable FPS counter
 		container.setShowFPS(true);
 		
-		//Initialize primitive timer
-		timer.start();
-		
-		//Spawn first piece
-		if (!theBoard.spawnPiece()) {
+		//Start the clock and spawn the first piece
+		if (!loop.start()) {
 			System.out.println("This should never happen");
 			container.exit();
 		}
 	}
-
 	
 	
 	
-	@Override
-	public void update(GameContainer container, int delta)
-			throws SlickException {
-		
-		if (theBoard.isAnimationPlaying())
+	
+	/**
+	 * Lets a Driver play the game. Each new piece is handed to the driver once, then dropped.
+	 * @param autoplayer - The driver, or null to go back to the keyboard.
+	 */
+	public void setAutoplayer(Driver autoplayer) {
+		simulation.setAutoplayer(autoplayer);
+	}
+	
+	
+	
+	
+	/**
+	 * Records the game to a replay. Set this before the game starts.
+	 */
+	public void setRecorder(ReplayRecorder recorder) {
+		simulation.setRecorder(recorder);
+	}
+	
+	
+	
+	
+	private void closeRecorder() {
+		ReplayRecorder recorder = simulation.getRecorder();
+		if (recorder == null)
 			return;
 		
-		boolean moveNow = false; //Override default piece timer
-		int moveAmount = 1;
-		
-		//Check input
-		if (!gameOver) {
-			
-			if (input.isKeyDown(Input.KEY_ESCAPE))
-				gameOver = true;
-			
-			if (input.isKeyDown(Input.KEY_LEFT)) {
-				if (!isKeyDown) {
-					theBoard.getActivePiece().move(MoveType.MOVE_LEFT, moveAmount);
-					isKeyDown = true;
-				}
-			}
-			
-			else if (input.isKeyDown(Input.KEY_RIGHT)){
-				if (!isKeyDown) {
-					theBoard.getActivePiece().move(MoveType.MOVE_RIGHT, moveAmount);
-					isKeyDown = true;
-				}
-			}
-			
-			else if (input.isKeyDown(Input.KEY_DOWN)) {
-				if (!isKeyDown) {
-					
-					//If the active piece has landed on something....
-					if (!theBoard.getActivePiece().move(MoveType.MOVE_DOWN, moveAmount)) {
-						theBoard.update();
-						
-						//Don't spawn pieces while the animation is playing (!!!!)
-						if (theBoard.isAnimationPlaying())
-							return;
-						
-						if (!theBoard.spawnPiece())
-							gameOver = true;
-					}
-					
-					timer.reset();
-					isKeyDown = true;
-				}
-			}
-			
-			else if (input.isKeyDown(Input.KEY_SPACE)) {
-				if (!isKeyDown) {
-					theBoard.getActivePiece().dropPiece();
-					isKeyDown = true;
-					moveNow = true;
-				}
-			}
-			
-			
-			//Dvorak configuration; for Qwerty, change to z and x respectively.  
-//			else if (input.isKeyDown(Input.KEY_SEMICOLON)) {
-//				if (!isKeyDown) {
-//					theBoard.getActivePiece().rotate(true);
-//					isKeyDown = true;
-//				}
-//			}
-//			
-//			else if (input.isKeyDown(Input.KEY_Q)) {
-//				if (!isKeyDown) {
-//					theBoard.getActivePiece().rotate(false);
-//					isKeyDown = true;
-//				}
-//			}
-			
-			//Qwerty configuration
-			else if (input.isKeyDown(Input.KEY_Z)) {
-				if (!isKeyDown) {
-					theBoard.getActivePiece().rotate(true);
-					isKeyDown = true;
-				}
-			}
-			
-			else if (input.isKeyDown(Input.KEY_X)) {
-				if (!isKeyDown) {
-					theBoard.getActivePiece().rotate(false);
-					isKeyDown = true;
-				}
-			}
-			
-			else isKeyDown = false;
-		
-			//Check timer to see if it's time to move the active piece down
-			if (Timer.nanoToSeconds(timer.getElapsedTime()) > 1 || moveNow == true) {
-				if (!theBoard.getActivePiece().move(MoveType.MOVE_DOWN, moveAmount)){
-					theBoard.update();
-					
-					if (theBoard.isAnimationPlaying())
-						return;
-					
-					if (!theBoard.spawnPiece())
-						gameOver = true;
-				}
-				timer.reset();
-			}
+		try {
+			recorder.close();
+			ReplayRecorder.awaitWrites();
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
+		simulation.setRecorder(null);
+	}
+	
+	
+	
+	
+	/**
+	 * Saves the session (board, pieces, gravity and any line clear in progress) to a buffer.
+	 * @return Returns the number of bytes written.
+	 */
+	public int saveState(ByteBuffer buffer) {
+		return simulation.saveState(buffer);
+	}
+	
+	
+	
+	
+	/**
+	 * Replaces the session with one saved by saveState(). A line clear that was in progress is replayed
+	 * from the start, and the next piece spawns once it's done.
+	 */
+	public void loadState(ByteBuffer buffer) throws IOException {
+		simulation.loadState(buffer);
+		loop.stateLoaded();
+	}
+	
+	
+	
+	
+	public void setAnimateRowDeletes(boolean animateRowDeletes) {
+		loop.setAnimateRowDeletes(animateRowDeletes);
+	}
+	
+	
+	
+	
+	/**
+	 * Chooses whether the game stops while the row delete animation plays (the default), or keeps going
+	 * with the next piece while the animation plays as an overlay.
+	 */
+	public void setPauseForRowDeletes(boolean pauseForRowDeletes) {
+		loop.setPauseForRowDeletes(pauseForRowDeletes);
+	}
+	
+	
+	
+	
+	/**
+	 * Runs however many simulation ticks have come due since the last frame. Slick's delta is only in
+	 * whole milliseconds, so the loop measures the time itself.
+	 */
+	@Override
+	public void update(GameContainer container, int delta)
+			throws SlickException {
 		
+		long start = System.nanoTime();
+		loop.update();
 		
-		
-		else {
+		if (simulation.isGameOver()) {
+			closeRecorder();
 			System.out.println("Displaying game over screen");
 			container.exit();
 		}
+		Metrics.updateTime.recordSince(start);
+	}
+	
+	
+	
+	
+	/**
+	 * Queues key presses, with the time they actually happened. They're applied in update(), each at the
+	 * first tick that ends at or after it.
+	 */
+	@Override
+	public void keyPressed(int key, char c) {
+		if (key == Input.KEY_ESCAPE) {
+			simulation.setGameOver();
+			return;
+		}
 		
-		
+		InputAction action = getAction(key);
+		if (action != null && simulation.getAutoplayer() == null)
+			loop.getInput().press(getEventTime(), action);
+	}
+	
+	
+	
+	
+	@Override
+	public void keyReleased(int key, char c) {
+		InputAction action = getAction(key);
+		if (action != null && simulation.getAutoplayer() == null)
+			loop.getInput().release(getEventTime(), action);
+	}
+	
+	
+	
+	
+	/**
+	 * Gets when the key event being handled happened, on the game clock. Slick calls keyPressed() and
+	 * keyReleased() while it reads LWJGL's event queue in Input.poll(), right before update(), so the time
+	 * now is when the event was read, not when it happened. LWJGL keeps the real time with each event.
+	 */
+	private long getEventTime() {
+		return eventClock.toGameTime(Keyboard.getEventNanoseconds(), loop.getClock().nanoTime(), loop.getLastUpdateTime());
+	}
+	
+	
+	
+	
+	/**
+	 * Maps a key to what it does.
+	 * @return Returns null if the key doesn't do anything.
+	 */
+	private static InputAction getAction(int key) {
+		switch (key) {
+		case Input.KEY_LEFT:
+			return InputAction.MOVE_LEFT;
+		case Input.KEY_RIGHT:
+			return InputAction.MOVE_RIGHT;
+		case Input.KEY_DOWN:
+			return InputAction.SOFT_DROP;
+		case Input.KEY_SPACE:
+			return InputAction.HARD_DROP;
+			
+		//Qwerty configuration; for Dvorak, change to semicolon and q respectively.
+		case Input.KEY_Z:
+			return InputAction.ROTATE_LEFT;
+		case Input.KEY_X:
+			return InputAction.ROTATE_RIGHT;
+		default:
+			return null;
+		}
 	}
 }
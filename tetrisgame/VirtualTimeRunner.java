@@ -0,0 +1,142 @@
+package tetrisgame;
+
+import headless.Driver;
+import logic.GameBoard;
+import point.Point;
+import timer.ManualClock;
+
+/**
+ * Plays a whole game on virtual time: the same GameLoop the window uses, on a ManualClock that jumps ahead
+ * one frame at a time instead of waiting for it. A driver plays, and with the same seed the game plays out
+ * the same every time.
+ *
+ * Nothing is drawn, so there are no animations either: the loop gets a stand-in that never plays any, and
+ * the game doesn't stop for row deletes. That keeps Slick out of it entirely, so this runs without a
+ * window or the Slick jar (like HeadlessGame), as fast as the CPU allows.
+ *
+ */
+public class VirtualTimeRunner {
+
+	private GameBoard theBoard;
+	private GameLoop loop;
+	private ManualClock clock;
+	private long frameNanos;
+	private long frames;
+
+
+
+
+	/**
+	 * @param theBoard - The board to play on (with its piece generator already set up).
+	 * @param autoplayer - Who plays.
+	 * @param frameNanos - How far the clock moves between updates, in nanoseconds. The loop's tick cap is
+	 * lifted, so this can be as large as you like; smaller steps just mean more updates.
+	 */
+	public VirtualTimeRunner(GameBoard theBoard, Driver autoplayer, long frameNanos) {
+		this.theBoard   = theBoard;
+		this.frameNanos = frameNanos;
+		clock           = new ManualClock();
+		loop            = new GameLoop(theBoard, new NoAnimations(), clock);
+		loop.setMaxTicksPerUpdate(Integer.MAX_VALUE);
+		loop.getSimulation().setAutoplayer(autoplayer);
+	}
+
+
+
+
+	/**
+	 * Animations that are never drawn, so they never play.
+	 */
+	private static class NoAnimations implements GameLoop.Animations {
+
+		@Override
+		public boolean isAnimationPlaying() {
+			return false;
+		}
+
+
+
+		@Override
+		public void startAnimation(long now) {
+		}
+
+
+
+		@Override
+		public void stopAnimation() {
+		}
+
+
+
+		@Override
+		public void flashLock(Point[] piece, long now) {
+		}
+
+
+
+		@Override
+		public void updateAnimations(long now) {
+		}
+
+
+
+		@Override
+		public void setAnimationOverlay(boolean animationOverlay) {
+		}
+	}
+
+
+
+
+	public GameLoop getLoop() {
+		return loop;
+	}
+
+
+
+
+	public ManualClock getClock() {
+		return clock;
+	}
+
+
+
+
+	/**
+	 * Plays until the game ends or the given number of ticks have run.
+	 * @return Returns false if the first piece didn't fit.
+	 */
+	public boolean run(long numTicks) {
+		GameSimulation simulation = loop.getSimulation();
+		if (!loop.start())
+			return false;
+
+		while (simulation.getTick() < numTicks && !simulation.isGameOver()) {
+			clock.advance(frameNanos);
+			loop.update();
+			++frames;
+		}
+		return true;
+	}
+
+
+
+
+	/**
+	 * Gets the number of updates (frames) run so far.
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+
+
+
+	/**
+	 * Gets how much virtual time has passed, in nanoseconds.
+	 */
+	public long getVirtualTime() {
+		return clock.nanoTime();
+	}
+
+}
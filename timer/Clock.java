@@ -0,0 +1,16 @@
+package timer;
+
+/**
+ * Where game time comes from. Live play uses the SystemClock; simulations and tests can use a
+ * ManualClock, which only moves when it's told to, so a game runs as fast as the CPU allows and plays out
+ * the same every time.
+ *
+ */
+public interface Clock {
+
+	/**
+	 * Gets the current time in nanoseconds. Only differences between times mean anything.
+	 */
+	public long nanoTime();
+
+}
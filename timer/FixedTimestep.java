@@ -0,0 +1,97 @@
+package timer;
+
+/**
+ * Turns elapsed real time into a whole number of fixed-length simulation ticks.
+ *
+ * Time is added to an accumulator, and every full tick's worth is taken back out, so ticks happen at a
+ * steady rate on average no matter how uneven the frames are (several ticks in a slow frame, none in a
+ * fast one). What's left over is how far we are into the next tick, which the renderer can use to
+ * interpolate (see getAlpha()).
+ *
+ */
+public class FixedTimestep {
+
+	private long tickNanos;
+	private long accumulator;
+	private int maxTicksPerAdvance;
+
+
+
+
+	/**
+	 * @param tickNanos - Length of a tick, in nanoseconds.
+	 * @param maxTicksPerAdvance - The most ticks a single advance() will ask for. If the game falls further
+	 * behind than that (e.g. after a stall), the extra time is dropped rather than making every later
+	 * frame even slower trying to catch up.
+	 */
+	public FixedTimestep(long tickNanos, int maxTicksPerAdvance) {
+		this.tickNanos          = tickNanos;
+		this.maxTicksPerAdvance = maxTicksPerAdvance;
+	}
+
+
+
+
+	/**
+	 * Sets the most ticks a single advance() will ask for.
+	 */
+	public void setMaxTicksPerAdvance(int maxTicksPerAdvance) {
+		this.maxTicksPerAdvance = Math.max(maxTicksPerAdvance, 1);
+	}
+
+
+
+
+	/**
+	 * Adds elapsed time.
+	 * @return Returns the number of ticks to run now.
+	 */
+	public int advance(long elapsedNanos) {
+		accumulator += Math.max(elapsedNanos, 0);
+		long ticks = accumulator / tickNanos;
+
+		if (ticks > maxTicksPerAdvance) {
+			ticks       = maxTicksPerAdvance;
+			accumulator = accumulator % tickNanos;
+		}
+		else
+			accumulator -= ticks * tickNanos;
+		return (int)ticks;
+	}
+
+
+
+
+	/**
+	 * Gets how far into the next tick the leftover time is, from 0 (just ticked) to 1.
+	 */
+	public float getAlpha() {
+		return (float)accumulator / tickNanos;
+	}
+
+
+
+
+	/**
+	 * Gets the time that's been added but not yet handed out as a tick, in nanoseconds. The last tick
+	 * advance() asked for ends this long before the time it was called with.
+	 */
+	public long getLeftover() {
+		return accumulator;
+	}
+
+
+
+
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+
+
+
+	public void reset() {
+		accumulator = 0;
+	}
+
+}
@@ -0,0 +1,50 @@
+package timer;
+
+/**
+ * Virtual time: a clock that stands still until it's advanced.
+ *
+ */
+public class ManualClock implements Clock {
+
+	private long time;
+
+
+
+
+	public ManualClock() {
+		this(0);
+	}
+
+
+
+
+	public ManualClock(long time) {
+		this.time = time;
+	}
+
+
+
+
+	public long nanoTime() {
+		return time;
+	}
+
+
+
+
+	/**
+	 * Moves the clock forward.
+	 * @param nanos - How far, in nanoseconds.
+	 */
+	public void advance(long nanos) {
+		time += nanos;
+	}
+
+
+
+
+	public void setTime(long time) {
+		this.time = time;
+	}
+
+}
@@ -0,0 +1,24 @@
+package timer;
+
+/**
+ * Real time, from System.nanoTime().
+ *
+ */
+public class SystemClock implements Clock {
+
+	public static final SystemClock instance = new SystemClock();
+
+
+
+
+	private SystemClock() {
+	}
+
+
+
+
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+}